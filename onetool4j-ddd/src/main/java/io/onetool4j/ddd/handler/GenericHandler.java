@@ -19,7 +19,7 @@ public abstract class GenericHandler<REQ, REP> {
      */
     public GenericHandler() {
         this.handlerConfig = getHandlerConfig();
-        this.log = LazyLogger.getLogger(this.getClass(), handlerConfig.getSerializableType());
+        this.log = LazyLogger.forClass(this.getClass(), handlerConfig.getSerializableType());
     }
 
     /**
@@ -0,0 +1,173 @@
+package io.onetool4j.util;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 2024/3/21 10:00
+ * 数值聚合记录, 通过 LazyLogger#aggregate 获取
+ * <p>
+ * 高频的数值(耗时、大小、批次数量等)不逐条输出, 只记录到计数器, 后台线程每个窗口输出一条汇总:
+ * [rpc.latency] count=1200 min=3 max=480 avg=12.5 p50<=15 p90<=31 p99<=511
+ * <p>
+ * 计数、求和与直方图的每个桶使用 LongAdder, 最小值与最大值使用 LongAccumulator, 都是分段累加, 多线程记录时没有锁也几乎没有竞争;
+ * 分位数来自 2 的幂分桶的直方图, 输出的是所在桶的上界(不超过最大值), 只是估计值.
+ * 级别未开启时 record 直接返回. 窗口内没有记录时不输出, 输出时各计数器分别清零, 与同时进行的记录之间不保证原子性
+ *
+ * @author yinbingqiu
+ */
+public final class AggregateRecorder {
+
+    /**
+     * 汇总的格式
+     */
+    static final String summary_format = "[{}] count={} min={} max={} avg={} p50<={} p90<={} p99<={}";
+    /**
+     * 汇总窗口, 秒
+     */
+    static final long window_seconds = Math.max(1, Long.parseLong(System.getProperty("lazylogger.aggregate.window.seconds", "60")));
+    /**
+     * 直方图桶数, 桶 0 为小于等于 0 的值, 桶 i 为 [2^(i-1), 2^i)
+     */
+    private static final int buckets = 65;
+
+    /**
+     * 有数值聚合的 LazyLogger
+     */
+    private static final Map<LazyLogger, Boolean> registry = new WeakHashMap<>();
+    /**
+     * 后台线程, 第一次需要时创建
+     */
+    private static ScheduledExecutorService flusher;
+
+    private final LazyLogger logger;
+    private final LoggerBridge.LevelBridge level;
+    private final int levelBit;
+    private final String key;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    private final LongAdder[] histogram = new LongAdder[buckets];
+
+    /**
+     * 构造方法
+     *
+     * @param logger   LazyLogger
+     * @param level    级别桥接
+     * @param levelBit 级别位, 见 LevelCache
+     * @param key      汇总名称
+     */
+    AggregateRecorder(LazyLogger logger, LoggerBridge.LevelBridge level, int levelBit, String key) {
+        this.logger = logger;
+        this.level = level;
+        this.levelBit = levelBit;
+        this.key = key;
+        for (int i = 0; i < buckets; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 注册 LazyLogger, 后台线程每个窗口输出一次汇总
+     *
+     * @param logger LazyLogger
+     */
+    static void register(LazyLogger logger) {
+        synchronized (registry) {
+            registry.put(logger, Boolean.TRUE);
+            if (flusher == null) {
+                flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "lazy-logger-aggregate-flush");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                flusher.scheduleAtFixedRate(AggregateRecorder::flushAll, window_seconds, window_seconds, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * 输出所有 LazyLogger 的汇总
+     */
+    private static void flushAll() {
+        List<LazyLogger> loggers;
+        synchronized (registry) {
+            loggers = new ArrayList<>(registry.keySet());
+        }
+        for (LazyLogger logger : loggers) {
+            try {
+                logger.flushAggregates();
+            } catch (Throwable throwable) {
+                // 单个日志后端异常不影响其它 LazyLogger
+                LogStatus.report("flush aggregates failed", throwable);
+            }
+        }
+    }
+
+    /**
+     * 记录一个数值, 级别未开启时直接返回
+     *
+     * @param value 数值
+     */
+    public void record(long value) {
+        if (!logger.isEnabled(levelBit, level)) {
+            return;
+        }
+        count.increment();
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+        histogram[value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value)].increment();
+    }
+
+    /**
+     * 立即输出当前窗口的汇总并清零, 窗口内没有记录时不输出
+     */
+    public void flush() {
+        long total = count.sumThenReset();
+        if (total == 0) {
+            return;
+        }
+        long totalSum = sum.sumThenReset();
+        long minValue = min.getThenReset();
+        long maxValue = max.getThenReset();
+        long[] counts = new long[buckets];
+        long histogramTotal = 0;
+        for (int i = 0; i < buckets; i++) {
+            counts[i] = histogram[i].sumThenReset();
+            histogramTotal += counts[i];
+        }
+        logger.reportAggregate(level, levelBit, new Object[]{key, total, minValue, maxValue
+                , Math.round(totalSum * 100.0 / total) / 100.0
+                , percentile(counts, histogramTotal, 0.5, maxValue)
+                , percentile(counts, histogramTotal, 0.9, maxValue)
+                , percentile(counts, histogramTotal, 0.99, maxValue)});
+    }
+
+    /**
+     * 分位数所在桶的上界, 不超过最大值
+     *
+     * @param counts   直方图
+     * @param total    直方图计数
+     * @param quantile 分位, (0, 1)
+     * @param maxValue 最大值
+     * @return 分位数估计
+     */
+    static long percentile(long[] counts, long total, double quantile, long maxValue) {
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long upper = i == 0 ? 0 : i == 64 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(upper, maxValue);
+            }
+        }
+        return maxValue;
+    }
+}
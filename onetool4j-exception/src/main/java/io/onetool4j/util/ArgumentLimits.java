@@ -0,0 +1,249 @@
+package io.onetool4j.util;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * 2024/3/13 14:10
+ * 日志参数序列化的长度预算、集合摘要与嵌套深度
+ * <p>
+ * 通过系统属性配置:
+ * lazylogger.argument.max.length 单个参数序列化后的最大长度, 默认 8192
+ * lazylogger.message.max.length 一条日志所有参数序列化后的最大长度, 默认 32768, 按参数个数平分
+ * lazylogger.collection.max.elements 集合、数组、Map 最多输出的元素个数, 默认 100, 超出部分只输出总数
+ * lazylogger.object.max.depth 对象嵌套的最大深度, 默认 8
+ *
+ * @author yinbingqiu
+ */
+final class ArgumentLimits {
+
+    /**
+     * 单个参数的最大长度
+     */
+    static final int max_argument_length = Math.max(Integer.parseInt(System.getProperty("lazylogger.argument.max.length", "8192")), 16);
+    /**
+     * 一条日志所有参数的最大长度
+     */
+    static final int max_message_length = Math.max(Integer.parseInt(System.getProperty("lazylogger.message.max.length", "32768")), 16);
+    /**
+     * 集合最多输出的元素个数
+     */
+    static final int max_elements = Math.max(Integer.parseInt(System.getProperty("lazylogger.collection.max.elements", "100")), 0);
+    /**
+     * 对象嵌套的最大深度
+     */
+    static final int max_depth = Math.max(Integer.parseInt(System.getProperty("lazylogger.object.max.depth", "8")), 1);
+    /**
+     * 截断标记
+     */
+    static final String truncated_marker = "...(truncated)";
+
+    private ArgumentLimits() {
+    }
+
+    /**
+     * 每个参数的最大长度, 一条日志的预算按参数个数平分
+     *
+     * @param count 参数个数
+     * @return 最大长度
+     */
+    static int argumentLimit(int count) {
+        return count <= 1 ? Math.min(max_argument_length, max_message_length)
+                : Math.min(max_argument_length, max_message_length / count);
+    }
+
+    /**
+     * 截断 builder 中从 start 开始超出 maxLength 的部分
+     *
+     * @param builder   StringBuilder
+     * @param start     参数开始的位置
+     * @param maxLength 最大长度
+     */
+    static void truncate(StringBuilder builder, int start, int maxLength) {
+        if (builder.length() - start > maxLength) {
+            builder.setLength(start + maxLength);
+            builder.append(truncated_marker);
+        }
+    }
+
+    /**
+     * 截断字符串
+     *
+     * @param value     字符串
+     * @param maxLength 最大长度
+     * @return 截断后的字符串
+     */
+    static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength) + truncated_marker;
+    }
+
+    /**
+     * 按元素个数与嵌套深度摘要集合、数组、Map, 用于无法在序列化过程中限制元素个数与深度的序列化实现(如 fastjson):
+     * 超出 max_elements 的部分替换为总数, 超过 max_depth 的集合替换为类名(与 JsonArgumentSerializer 一致),
+     * 嵌套的集合同样处理. 不进入普通对象的属性. 没有超出限制时返回原参数, 不复制
+     *
+     * @param argument  参数
+     * @param maxLength 最大长度, 每个元素至少输出 2 个字符, 超出长度预算的元素不再遍历
+     * @return 摘要或原参数
+     */
+    static Object summarize(Object argument, int maxLength) {
+        return new Summarizer(Math.max(maxLength / 2, 1)).summarize(argument, 0);
+    }
+
+    /**
+     * 集合摘要中省略部分的说明
+     *
+     * @param size 总数
+     * @return 说明
+     */
+    static String remaining(int size) {
+        return "...(size=" + size + ")";
+    }
+
+    /**
+     * 集合摘要, 记录剩余的元素预算
+     */
+    private static final class Summarizer {
+        /**
+         * 剩余可以遍历的元素个数
+         */
+        private int budget;
+
+        Summarizer(int budget) {
+            this.budget = budget;
+        }
+
+        Object summarize(Object value, int depth) {
+            if (value instanceof Collection) {
+                return depth >= max_depth ? value.getClass().getName() : summarizeCollection((Collection<?>) value, depth);
+            } else if (value instanceof Map) {
+                return depth >= max_depth ? value.getClass().getName() : summarizeMap((Map<?, ?>) value, depth);
+            } else if (value != null && value.getClass().isArray() && !(value instanceof char[])) {
+                return depth >= max_depth ? value.getClass().getName() : summarizeArray(value, depth);
+            }
+            return value;
+        }
+
+        /**
+         * 本层最多输出的元素个数
+         */
+        private int elementLimit() {
+            return Math.min(max_elements, Math.max(budget, 0));
+        }
+
+        private Object summarizeCollection(Collection<?> collection, int depth) {
+            int limit = elementLimit();
+            List<Object> summary = null;
+            int i = 0;
+            for (Object element : collection) {
+                if (i == limit || budget <= 0) {
+                    break;
+                }
+                budget--;
+                Object summarized = summarize(element, depth + 1);
+                if (summary == null && summarized != element) {
+                    summary = copyOf(collection, i);
+                }
+                if (summary != null) {
+                    summary.add(summarized);
+                }
+                i++;
+            }
+            int size = collection.size();
+            if (i < size) {
+                if (summary == null) {
+                    summary = copyOf(collection, i);
+                }
+                summary.add(remaining(size));
+            }
+            return summary == null ? collection : summary;
+        }
+
+        private Object summarizeMap(Map<?, ?> map, int depth) {
+            int limit = elementLimit();
+            Map<Object, Object> summary = null;
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (i == limit || budget <= 0) {
+                    break;
+                }
+                budget--;
+                Object summarized = summarize(entry.getValue(), depth + 1);
+                if (summary == null && summarized != entry.getValue()) {
+                    summary = copyOf(map, i);
+                }
+                if (summary != null) {
+                    summary.put(entry.getKey(), summarized);
+                }
+                i++;
+            }
+            int size = map.size();
+            if (i < size) {
+                if (summary == null) {
+                    summary = copyOf(map, i);
+                }
+                summary.put("...", remaining(size));
+            }
+            return summary == null ? map : summary;
+        }
+
+        private Object summarizeArray(Object array, int depth) {
+            int length = Array.getLength(array);
+            int limit = elementLimit();
+            boolean objects = array instanceof Object[];
+            List<Object> summary = null;
+            int i = 0;
+            for (; i < length && i < limit && budget > 0; i++) {
+                budget--;
+                if (!objects) {
+                    continue;
+                }
+                Object element = ((Object[]) array)[i];
+                Object summarized = summarize(element, depth + 1);
+                if (summary == null && summarized != element) {
+                    summary = copyOf(array, i);
+                }
+                if (summary != null) {
+                    summary.add(summarized);
+                }
+            }
+            if (i < length) {
+                if (summary == null) {
+                    summary = copyOf(array, i);
+                }
+                summary.add(remaining(length));
+            }
+            return summary == null ? array : summary;
+        }
+
+        private static List<Object> copyOf(Collection<?> collection, int count) {
+            List<Object> copy = new ArrayList<>(count + 1);
+            Iterator<?> iterator = collection.iterator();
+            for (int i = 0; i < count; i++) {
+                copy.add(iterator.next());
+            }
+            return copy;
+        }
+
+        private static Map<Object, Object> copyOf(Map<?, ?> map, int count) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator();
+            for (int i = 0; i < count; i++) {
+                Map.Entry<?, ?> entry = iterator.next();
+                copy.put(entry.getKey(), entry.getValue());
+            }
+            return copy;
+        }
+
+        private static List<Object> copyOf(Object array, int count) {
+            List<Object> copy = new ArrayList<>(count + 1);
+            for (int i = 0; i < count; i++) {
+                copy.add(Array.get(array, i));
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.onetool4j.util;
+
+/**
+ * 2024/3/12 10:05
+ * LazyLogger 日志参数序列化扩展点
+ * <p>
+ * 通过 ServiceLoader 加载, 在 META-INF/services/io.onetool4j.util.ArgumentSerializer 中声明实现类,
+ * 使用 LazyLogger#serializer(String) 按名称选择. 内置 json(无依赖的反射 JSON 序列化) 与 fastjson 两种实现
+ *
+ * @author yinbingqiu
+ */
+public interface ArgumentSerializer {
+
+    /**
+     * 名称, LazyLogger#serializer(String) 按名称选择
+     *
+     * @return 名称
+     */
+    String name();
+
+    /**
+     * 序列化为字符串
+     *
+     * @param argument 参数, 不为 null
+     * @return 序列化后的字符串
+     */
+    String serialize(Object argument);
+
+    /**
+     * 序列化并追加到 builder, 日志后端支持时(如 log4j2 StringBuilderFormattable)直接写入后端的缓冲区
+     *
+     * @param argument 参数, 不为 null
+     * @param builder  StringBuilder
+     */
+    default void serializeTo(Object argument, StringBuilder builder) {
+        builder.append(serialize(argument));
+    }
+
+    /**
+     * 在长度预算内序列化, 默认实现序列化后截断, 实现类应在序列化过程中停止写入以限制内存和耗时
+     *
+     * @param argument  参数, 不为 null
+     * @param maxLength 最大长度, 超出部分截断并追加截断标记
+     * @return 序列化后的字符串
+     */
+    default String serialize(Object argument, int maxLength) {
+        return ArgumentLimits.truncate(serialize(argument), maxLength);
+    }
+
+    /**
+     * 在长度预算内序列化并追加到 builder, 默认实现序列化后截断
+     *
+     * @param argument  参数, 不为 null
+     * @param builder   StringBuilder
+     * @param maxLength 最大长度, 超出部分截断并追加截断标记
+     */
+    default void serializeTo(Object argument, StringBuilder builder, int maxLength) {
+        int start = builder.length();
+        serializeTo(argument, builder);
+        ArgumentLimits.truncate(builder, start, maxLength);
+    }
+}
@@ -0,0 +1,79 @@
+package io.onetool4j.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * 2024/3/12 10:20
+ * ArgumentSerializer 注册表
+ * <p>
+ * 内置 json 与 fastjson, 第一次使用时通过 ServiceLoader 加载扩展实现, 同名的扩展实现覆盖内置实现
+ *
+ * @author yinbingqiu
+ */
+final class ArgumentSerializers {
+
+    /**
+     * 无依赖的反射 JSON 序列化
+     */
+    static final String JSON = "json";
+    /**
+     * fastjson 序列化
+     */
+    static final String FASTJSON = "fastjson";
+
+    private ArgumentSerializers() {
+    }
+
+    /**
+     * 按名称获取
+     *
+     * @param name 名称
+     * @return ArgumentSerializer
+     */
+    static ArgumentSerializer get(String name) {
+        assert name != null;
+        ArgumentSerializer serializer = Holder.serializers.get(name);
+        if (serializer != null) {
+            return serializer;
+        }
+        if (FASTJSON.equals(name)) {
+            // 抛出未引入 fastjson 的异常
+            return FastjsonSerializer.getInstance();
+        }
+        throw new IllegalArgumentException("未找到日志参数序列化实现:" + name);
+    }
+
+    /**
+     * 第一次使用时加载
+     */
+    private static final class Holder {
+        private static final Map<String, ArgumentSerializer> serializers = load();
+
+        private static Map<String, ArgumentSerializer> load() {
+            Map<String, ArgumentSerializer> serializers = new HashMap<>();
+            serializers.put(JSON, JsonArgumentSerializer.getInstance());
+            if (Reflections.hasClass("com.alibaba.fastjson.JSON") || Reflections.hasClass("com.alibaba.fastjson2.JSON")) {
+                serializers.put(FASTJSON, FastjsonSerializer.getInstance());
+            }
+
+            Iterator<ArgumentSerializer> iterator = ServiceLoader.load(ArgumentSerializer.class, ArgumentSerializer.class.getClassLoader()).iterator();
+            while (true) {
+                try {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    ArgumentSerializer serializer = iterator.next();
+                    serializers.put(serializer.name(), serializer);
+                } catch (ServiceConfigurationError error) {
+                    // 单个扩展实现加载失败不影响其它实现
+                    LogStatus.report("load ArgumentSerializer failed", error);
+                }
+            }
+            return serializers;
+        }
+    }
+}
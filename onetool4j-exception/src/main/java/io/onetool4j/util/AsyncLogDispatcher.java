@@ -0,0 +1,354 @@
+package io.onetool4j.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 2024/2/26 16:05
+ * LazyLogger 异步日志分发器
+ * <p>
+ * 多生产者单消费者的环形缓冲区, 槽位预先分配, 生产者通过 CAS 申请序号后只写入已经求值的参数,
+ * 消费者线程负责序列化、异常摘要渲染以及调用日志后端
+ *
+ * @author yinbingqiu
+ */
+final class AsyncLogDispatcher {
+
+    /**
+     * 默认分发器, 第一次使用时创建
+     */
+    private static volatile AsyncLogDispatcher default_dispatcher;
+
+    /**
+     * 槽位
+     */
+    private final Slot[] slots;
+    /**
+     * 序号掩码
+     */
+    private final int mask;
+    /**
+     * 消费者等待策略
+     */
+    private final LazyLogger.WaitStrategy waitStrategy;
+    /**
+     * 缓冲区满时的策略
+     */
+    private final LazyLogger.FullPolicy fullPolicy;
+    /**
+     * 生产者序号
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * 丢弃的日志数量
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * 消费者线程
+     */
+    private final Thread consumer;
+    /**
+     * JVM 关闭时输出剩余事件, close 时移除
+     */
+    private final Thread shutdownHook;
+    /**
+     * 消费者序号
+     */
+    private volatile long head;
+    /**
+     * 消费者是否在等待, BLOCKING 策略下生产者据此唤醒消费者
+     */
+    private volatile boolean waiting;
+    /**
+     * 是否运行中
+     */
+    private volatile boolean running = true;
+
+    /**
+     * 构造方法
+     *
+     * @param bufferSize   缓冲区大小, 向上取整为 2 的幂
+     * @param waitStrategy 消费者等待策略
+     * @param fullPolicy   缓冲区满时的策略
+     */
+    AsyncLogDispatcher(int bufferSize, LazyLogger.WaitStrategy waitStrategy, LazyLogger.FullPolicy fullPolicy) {
+        assert bufferSize > 0;
+        assert waitStrategy != null;
+        assert fullPolicy != null;
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+        this.fullPolicy = fullPolicy;
+
+        this.consumer = new Thread(this::consume, "lazy-logger-async");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+        this.shutdownHook = new Thread(this::shutdown, "lazy-logger-async-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * 默认分发器, 通过系统属性配置
+     * lazylogger.async.buffer.size 缓冲区大小, 默认 8192
+     * lazylogger.async.wait.strategy 等待策略, 默认 SLEEPING
+     * lazylogger.async.full.policy 缓冲区满时的策略, 默认 DROP
+     *
+     * @return AsyncLogDispatcher
+     */
+    static AsyncLogDispatcher getDefault() {
+        AsyncLogDispatcher dispatcher = default_dispatcher;
+        if (dispatcher == null) {
+            synchronized (AsyncLogDispatcher.class) {
+                dispatcher = default_dispatcher;
+                if (dispatcher == null) {
+                    dispatcher = new AsyncLogDispatcher(
+                            Math.min(Integer.parseInt(System.getProperty("lazylogger.async.buffer.size", "8192")), 1 << 20)
+                            , LazyLogger.WaitStrategy.valueOf(System.getProperty("lazylogger.async.wait.strategy", "SLEEPING"))
+                            , LazyLogger.FullPolicy.valueOf(System.getProperty("lazylogger.async.full.policy", "DROP")));
+                    default_dispatcher = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    /**
+     * 发布日志事件
+     *
+     * @param logger    LazyLogger
+     * @param level     级别桥接
+     * @param format    格式
+     * @param count     参数个数, 小于 0 表示使用 arguments
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     * @param arguments 参数
+     */
+    void publish(LazyLogger logger
+            , LoggerBridge.LevelBridge level
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4
+            , Object[] arguments) {
+        if (!running || Thread.currentThread() == consumer) {
+            // 已关闭或在消费者线程内打印日志时同步输出, 避免 BLOCK 策略下自己等待自己
+            logger.write(level, format, count, argument1, argument2, argument3, argument4, arguments);
+            return;
+        }
+
+        long sequence;
+        Slot slot;
+        while (true) {
+            sequence = tail.get();
+            slot = slots[(int) sequence & mask];
+            long diff = slot.sequence - sequence;
+            if (diff == 0) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                // 缓冲区已满
+                if (fullPolicy == LazyLogger.FullPolicy.DROP) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.parkNanos(1000L);
+                if (!running) {
+                    logger.write(level, format, count, argument1, argument2, argument3, argument4, arguments);
+                    return;
+                }
+            }
+        }
+
+        slot.logger = logger;
+        slot.level = level;
+        slot.format = format;
+        slot.count = count;
+        slot.argument1 = argument1;
+        slot.argument2 = argument2;
+        slot.argument3 = argument3;
+        slot.argument4 = argument4;
+        slot.arguments = arguments;
+        slot.context = LogContext.currentOrNull();
+        slot.sequence = sequence + 1;
+
+        if (waiting) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * 消费者循环
+     */
+    private void consume() {
+        int idle = 0;
+        while (true) {
+            Slot slot = slots[(int) head & mask];
+            if (slot.sequence == head + 1) {
+                idle = 0;
+                process(slot);
+                slot.sequence = head + slots.length;
+                head = head + 1;
+                continue;
+            }
+
+            if (!running && head == tail.get()) {
+                return;
+            }
+            idle = await(idle);
+        }
+    }
+
+    /**
+     * 处理一个事件, 处理完后清空引用以便回收
+     *
+     * @param slot 槽位
+     */
+    private void process(Slot slot) {
+        try {
+            if (slot.context == null) {
+                slot.logger.write(slot.level, slot.format, slot.count, slot.argument1, slot.argument2, slot.argument3, slot.argument4, slot.arguments);
+            } else {
+                // 使用发布日志时捕获的上下文
+                try (LogContext.Scope ignored = LogContext.attach(slot.context)) {
+                    slot.logger.write(slot.level, slot.format, slot.count, slot.argument1, slot.argument2, slot.argument3, slot.argument4, slot.arguments);
+                }
+            }
+        } catch (Throwable throwable) {
+            LogStatus.report("async write failed", throwable);
+        } finally {
+            slot.logger = null;
+            slot.level = null;
+            slot.format = null;
+            slot.argument1 = null;
+            slot.argument2 = null;
+            slot.argument3 = null;
+            slot.argument4 = null;
+            slot.arguments = null;
+            slot.context = null;
+        }
+    }
+
+    /**
+     * 缓冲区为空时等待
+     *
+     * @param idle 连续空转次数
+     * @return 新的空转次数
+     */
+    private int await(int idle) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                return idle;
+            case YIELDING:
+                Thread.yield();
+                return idle;
+            case SLEEPING:
+                if (idle < 100) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(100_000L);
+                }
+                return idle + 1;
+            case BLOCKING:
+            default:
+                waiting = true;
+                if (slots[(int) head & mask].sequence != head + 1 && running) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                }
+                waiting = false;
+                return idle;
+        }
+    }
+
+    /**
+     * 等待当前已发布的事件全部输出
+     *
+     * @param timeout 超时时间, 毫秒
+     * @return 是否在超时前全部输出
+     */
+    boolean flush(long timeout) {
+        long target = tail.get();
+        long deadline = System.currentTimeMillis() + timeout;
+        while (head < target) {
+            if (!consumer.isAlive() || System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(100_000L);
+        }
+        return true;
+    }
+
+    /**
+     * 停止接收新事件并输出缓冲区中的剩余事件
+     */
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 停止分发器并移除 JVM 关闭钩子, 重新配置 LazyLogger 的异步输出时关闭之前的分发器, 默认分发器不关闭
+     */
+    void close() {
+        if (this == default_dispatcher) {
+            return;
+        }
+        shutdown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM 正在关闭, 钩子会自己执行
+        }
+    }
+
+    /**
+     * 丢弃的日志数量
+     *
+     * @return 丢弃的日志数量
+     */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 预分配的槽位
+     */
+    private static final class Slot {
+        /**
+         * 槽位序号, 等于生产者序号表示可写, 等于生产者序号 + 1 表示可读
+         */
+        private volatile long sequence;
+        private LazyLogger logger;
+        private LoggerBridge.LevelBridge level;
+        private String format;
+        private int count;
+        private Object argument1;
+        private Object argument2;
+        private Object argument3;
+        private Object argument4;
+        private Object[] arguments;
+        /**
+         * 发布日志时捕获的上下文
+         */
+        private LogContext.Snapshot context;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.onetool4j.util;
+
+/**
+ * 2024/3/18 10:20
+ * 支持线程上下文(如 MDC)的 LoggerAdapter 额外实现该接口
+ * <p>
+ * 实现时 LogEventBuilder 的键值对在输出期间写入上下文, 输出后恢复; 未实现时键值对追加到消息后面
+ *
+ * @author yinbingqiu
+ */
+public interface ContextAware {
+
+    /**
+     * 写入当前线程的上下文
+     *
+     * @param key   键
+     * @param value 值
+     * @return 原来的值, 没有时返回 null
+     */
+    String putContext(String key, String value);
+
+    /**
+     * 恢复当前线程的上下文
+     *
+     * @param key      键
+     * @param previous putContext 返回的原来的值, 为 null 时移除
+     */
+    void restoreContext(String key, String previous);
+}
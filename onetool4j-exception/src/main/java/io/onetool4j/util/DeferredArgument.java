@@ -0,0 +1,93 @@
+package io.onetool4j.util;
+
+/**
+ * 2024/2/28 11:20
+ * 延迟序列化的日志参数
+ * <p>
+ * 日志后端真正格式化消息时才调用 toString 序列化, 被后端过滤器、appender 阈值丢弃的事件不产生序列化开销,
+ * 序列化结果缓存, 同一个参数最多序列化一次, 序列化长度受 ArgumentLimits 的预算限制
+ *
+ * @author yinbingqiu
+ */
+class DeferredArgument {
+
+    /**
+     * 运行环境中是否有 log4j2 的 StringBuilderFormattable
+     */
+    private static final boolean log4j2_formattable = Reflections.hasClass("org.apache.logging.log4j.util.StringBuilderFormattable");
+
+    /**
+     * 参数
+     */
+    private final Object argument;
+    /**
+     * 序列化
+     */
+    private final ArgumentSerializer serializer;
+    /**
+     * 最大长度
+     */
+    private final int maxLength;
+    /**
+     * 序列化结果
+     */
+    private volatile String serialized;
+
+    /**
+     * 构造方法
+     *
+     * @param argument   参数
+     * @param serializer 序列化
+     * @param maxLength  最大长度
+     */
+    DeferredArgument(Object argument, ArgumentSerializer serializer, int maxLength) {
+        this.argument = argument;
+        this.serializer = serializer;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 创建延迟序列化参数, 有 log4j2 时创建支持 StringBuilderFormattable 的实现
+     * 返回 Object, 避免没有 log4j2 时类校验加载 Log4j2DeferredArgument
+     *
+     * @param argument   参数
+     * @param serializer 序列化
+     * @param maxLength  最大长度
+     * @return DeferredArgument
+     */
+    static Object of(Object argument, ArgumentSerializer serializer, int maxLength) {
+        if (log4j2_formattable) {
+            return new Log4j2DeferredArgument(argument, serializer, maxLength);
+        }
+        return new DeferredArgument(argument, serializer, maxLength);
+    }
+
+    /**
+     * 参数
+     *
+     * @return 参数
+     */
+    Object getArgument() {
+        return argument;
+    }
+
+    /**
+     * 序列化结果
+     *
+     * @return 序列化结果
+     */
+    @Override
+    public String toString() {
+        String result = serialized;
+        if (result == null) {
+            synchronized (this) {
+                result = serialized;
+                if (result == null) {
+                    result = String.valueOf(serializer.serialize(argument, maxLength));
+                    serialized = result;
+                }
+            }
+        }
+        return result;
+    }
+}
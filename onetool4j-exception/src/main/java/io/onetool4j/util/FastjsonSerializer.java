@@ -0,0 +1,370 @@
+package io.onetool4j.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 2024/3/1 15:40
+ * fastjson 序列化, 同时支持 fastjson 1.x 与 fastjson2
+ * <p>
+ * 除了返回字符串, 还支持直接写入调用方的 StringBuilder, 写入时复用线程内的缓冲区.
+ * 长度预算、集合元素个数与嵌套深度见 ArgumentLimits
+ *
+ * @author yinbingqiu
+ */
+final class FastjsonSerializer implements ArgumentSerializer {
+
+    /**
+     * 单例, 运行环境没有 fastjson 时为 null
+     */
+    private static final FastjsonSerializer instance = create();
+    /**
+     * 线程内缓冲区超过该大小后不再复用
+     */
+    private static final int max_buffer_size = 64 * 1024;
+
+    /**
+     * JSON.toJSONString(Object)
+     */
+    private final MethodHandle toJSONString;
+    /**
+     * fastjson 1.x: JSON.writeJSONString(Writer, Object), 不支持时为 null
+     */
+    private final MethodHandle writeToWriter;
+    /**
+     * fastjson2: JSON.writeTo(OutputStream, Object), 不支持时为 null
+     */
+    private final MethodHandle writeToStream;
+    /**
+     * 线程内复用的缓冲区
+     */
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    private FastjsonSerializer(MethodHandle toJSONString, MethodHandle writeToWriter, MethodHandle writeToStream) {
+        this.toJSONString = toJSONString;
+        this.writeToWriter = writeToWriter;
+        this.writeToStream = writeToStream;
+    }
+
+    /**
+     * 获取实例
+     *
+     * @return FastjsonSerializer
+     */
+    static FastjsonSerializer getInstance() {
+        if (instance == null) {
+            throw new IllegalArgumentException("当前运行环境未引入fastjson依赖,无法支持fastjson的日志参数序列化");
+        }
+        return instance;
+    }
+
+    /**
+     * 查找 fastjson 的序列化方法
+     *
+     * @return FastjsonSerializer
+     */
+    private static FastjsonSerializer create() {
+        String className;
+        if (Reflections.hasClass("com.alibaba.fastjson.JSON")) {
+            className = "com.alibaba.fastjson.JSON";
+        } else if (Reflections.hasClass("com.alibaba.fastjson2.JSON")) {
+            className = "com.alibaba.fastjson2.JSON";
+        } else {
+            return null;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            MethodHandle toJSONString = lookup.unreflect(Reflections.getMethod(className, "toJSONString", Object.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+            return new FastjsonSerializer(toJSONString
+                    , findWriteTo(lookup, className, Writer.class)
+                    , findWriteTo(lookup, className, OutputStream.class));
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 查找 writeJSONString(Writer, Object, SerializerFeature...) 或 writeTo(OutputStream, Object, JSONWriter.Feature...)
+     *
+     * @param lookup     Lookup
+     * @param className  JSON 类名
+     * @param targetType Writer 或 OutputStream
+     * @return (targetType, Object)void, 不支持时为 null
+     */
+    private static MethodHandle findWriteTo(MethodHandles.Lookup lookup, String className, Class<?> targetType) {
+        for (Method method : Reflections.getAllMethods(className)) {
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            if (!("writeJSONString".equals(method.getName()) || "writeTo".equals(method.getName()))
+                    || !Modifier.isPublic(method.getModifiers())
+                    || !Modifier.isStatic(method.getModifiers())
+                    || parameterTypes.length != 3
+                    || parameterTypes[0] != targetType
+                    || parameterTypes[1] != Object.class
+                    || !parameterTypes[2].isArray()) {
+                continue;
+            }
+            try {
+                Object features = Array.newInstance(parameterTypes[2].getComponentType(), 0);
+                return MethodHandles.insertArguments(lookup.unreflect(method), 2, features)
+                        .asType(MethodType.methodType(void.class, targetType, Object.class));
+            } catch (IllegalAccessException e) {
+                // 继续查找其它重载
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String name() {
+        return ArgumentSerializers.FASTJSON;
+    }
+
+    /**
+     * 序列化为字符串
+     *
+     * @param argument 参数
+     * @return 序列化后的字符串
+     */
+    @Override
+    public String serialize(Object argument) {
+        try {
+            return (String) toJSONString.invokeExact(argument);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        }
+    }
+
+    /**
+     * 在长度预算内序列化, 见 serializeTo(Object, StringBuilder, int)
+     *
+     * @param argument  参数
+     * @param maxLength 最大长度
+     * @return 序列化后的字符串
+     */
+    @Override
+    public String serialize(Object argument, int maxLength) {
+        StringBuilder builder = new StringBuilder();
+        serializeTo(argument, builder, maxLength);
+        return builder.toString();
+    }
+
+    /**
+     * 序列化并追加到 builder, 不限制长度
+     *
+     * @param argument 参数
+     * @param builder  StringBuilder
+     */
+    @Override
+    public void serializeTo(Object argument, StringBuilder builder) {
+        serializeTo(argument, builder, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 在长度预算内序列化并追加到 builder.
+     * 集合的元素个数、嵌套深度与字符串长度先通过 ArgumentLimits#summarize 限制, 仍由 fastjson 序列化, @JSONField 等配置照常生效;
+     * fastjson 1.x 写入 Writer, 超出预算立即中止序列化; fastjson2 在内部缓冲区中序列化完整个对象后才写出, 序列化后再截断
+     *
+     * @param argument  参数
+     * @param builder   StringBuilder
+     * @param maxLength 最大长度
+     */
+    @Override
+    public void serializeTo(Object argument, StringBuilder builder, int maxLength) {
+        Object summarized = ArgumentLimits.summarize(argument, maxLength);
+        int start = builder.length();
+        if (writeToWriter != null) {
+            writeTo(summarized, builder, maxLength);
+        } else if (writeToStream != null) {
+            writeToStream(summarized, builder);
+        } else {
+            builder.append(serialize(summarized));
+        }
+        ArgumentLimits.truncate(builder, start, maxLength);
+    }
+
+    /**
+     * fastjson 1.x: 直接写入 builder, 超出预算时中止
+     *
+     * @param argument  参数
+     * @param builder   StringBuilder
+     * @param maxLength 最大长度
+     */
+    private void writeTo(Object argument, StringBuilder builder, int maxLength) {
+        Buffer buffer = buffers.get();
+        // 序列化过程中再次打印日志时不复用缓冲区
+        BuilderWriter writer = buffer.inUse ? new BuilderWriter() : buffer.writer;
+        boolean reused = !buffer.inUse;
+        buffer.inUse = true;
+        writer.builder = builder;
+        writer.limit = (int) Math.min(Integer.MAX_VALUE - 1, (long) builder.length() + maxLength);
+        try {
+            writeToWriter.invokeExact((Writer) writer, argument);
+        } catch (LimitExceeded e) {
+            // 超出预算, 已经写入的部分由调用方截断
+        } catch (RuntimeException | Error e) {
+            if (!(e.getCause() instanceof LimitExceeded)) {
+                throw e;
+            }
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        } finally {
+            writer.builder = null;
+            writer.limit = Integer.MAX_VALUE;
+            if (reused) {
+                buffer.inUse = false;
+            }
+        }
+    }
+
+    /**
+     * fastjson2: 写入线程内的字节缓冲区后解码, 超过 max_buffer_size 的缓冲区用完后释放
+     *
+     * @param argument 参数
+     * @param builder  StringBuilder
+     */
+    private void writeToStream(Object argument, StringBuilder builder) {
+        Buffer buffer = buffers.get();
+        if (buffer.inUse) {
+            builder.append(serialize(argument));
+            return;
+        }
+        buffer.inUse = true;
+        try {
+            writeToStream.invokeExact((OutputStream) buffer.bytes, argument);
+            buffer.bytes.decodeTo(builder);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        } finally {
+            buffer.bytes.reset();
+            buffer.bytes.trim();
+            buffer.inUse = false;
+        }
+    }
+
+    /**
+     * 线程内复用的缓冲区
+     */
+    private static final class Buffer {
+        private final BuilderWriter writer = new BuilderWriter();
+        private final Utf8Bytes bytes = new Utf8Bytes();
+        private boolean inUse;
+    }
+
+    /**
+     * 直接写入 StringBuilder 的 Writer
+     */
+    private static final class BuilderWriter extends Writer {
+        private StringBuilder builder;
+        /**
+         * builder 的长度上限, 超过后中止序列化
+         */
+        private int limit = Integer.MAX_VALUE;
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+            checkLimit();
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            builder.append(buffer, offset, Math.min(length, Math.max(limit - builder.length(), 0) + 1));
+            checkLimit();
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            builder.append(str, offset, offset + Math.min(length, Math.max(limit - builder.length(), 0) + 1));
+            checkLimit();
+        }
+
+        private void checkLimit() {
+            if (builder.length() > limit) {
+                throw LimitExceeded.instance;
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 超出长度预算, 用于中止 fastjson 的序列化, 不填充堆栈
+     */
+    private static final class LimitExceeded extends RuntimeException {
+        /**
+         * serialVersionUID
+         */
+        private static final long serialVersionUID = 1L;
+        private static final LimitExceeded instance = new LimitExceeded();
+
+        private LimitExceeded() {
+            super("lazylogger argument length limit exceeded", null, false, false);
+        }
+    }
+
+    /**
+     * 可复用的 UTF-8 字节缓冲区
+     */
+    private static final class Utf8Bytes extends ByteArrayOutputStream {
+
+        Utf8Bytes() {
+            super(256);
+        }
+
+        /**
+         * 超过 max_buffer_size 时替换为初始大小的缓冲区, 避免一次很大的参数让线程一直持有大数组
+         */
+        void trim() {
+            if (buf.length > max_buffer_size) {
+                buf = new byte[256];
+            }
+        }
+
+        /**
+         * 按 UTF-8 解码追加到 builder
+         *
+         * @param builder StringBuilder
+         */
+        void decodeTo(StringBuilder builder) {
+            int i = 0;
+            while (i < count) {
+                int b = buf[i] & 0xFF;
+                if (b < 0x80) {
+                    builder.append((char) b);
+                    i += 1;
+                } else if (b < 0xE0 && i + 1 < count) {
+                    builder.append((char) (((b & 0x1F) << 6) | (buf[i + 1] & 0x3F)));
+                    i += 2;
+                } else if (b < 0xF0 && i + 2 < count) {
+                    builder.append((char) (((b & 0x0F) << 12) | ((buf[i + 1] & 0x3F) << 6) | (buf[i + 2] & 0x3F)));
+                    i += 3;
+                } else if (i + 3 < count) {
+                    builder.appendCodePoint(((b & 0x07) << 18) | ((buf[i + 1] & 0x3F) << 12) | ((buf[i + 2] & 0x3F) << 6) | (buf[i + 3] & 0x3F));
+                    i += 4;
+                } else {
+                    builder.append('\uFFFD');
+                    i += 1;
+                }
+            }
+        }
+    }
+}
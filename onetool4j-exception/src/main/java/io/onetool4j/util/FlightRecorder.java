@@ -0,0 +1,190 @@
+package io.onetool4j.util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 2024/3/14 16:30
+ * LazyLogger 飞行记录
+ * <p>
+ * 开启飞行记录的 LazyLogger 把未开启级别的日志记录到线程内固定大小的环形缓冲区, 只保存格式与参数引用,
+ * 不格式化、不执行 Supplier. 同一线程输出 ERROR 或 SummaryException 摘要时, 才把之前的日志格式化并一起输出.
+ * 缓冲区大小通过 lazylogger.flight.recorder.size 配置, 默认 64
+ *
+ * @author yinbingqiu
+ */
+final class FlightRecorder {
+
+    /**
+     * 缓冲区大小
+     */
+    private static final int size = Math.max(Math.min(Integer.parseInt(System.getProperty("lazylogger.flight.recorder.size", "64")), 4096), 1);
+    private static final DateTimeFormatter time_formatter = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    /**
+     * 线程内的缓冲区
+     */
+    private static final ThreadLocal<FlightRecorder> recorders = ThreadLocal.withInitial(FlightRecorder::new);
+    /**
+     * 是否有 LazyLogger 开启了飞行记录, 未开启时 ERROR 不查询线程内的缓冲区
+     */
+    static volatile boolean active;
+
+    private final LazyLogger[] loggers = new LazyLogger[size];
+    private final int[] levels = new int[size];
+    private final long[] timestamps = new long[size];
+    private final String[] formats = new String[size];
+    private final int[] counts = new int[size];
+    /**
+     * 固定参数, 每条日志 4 个
+     */
+    private final Object[] fixedArguments = new Object[size * 4];
+    private final Object[][] arguments = new Object[size][];
+    /**
+     * 下一条日志的位置
+     */
+    private long next;
+    /**
+     * 最早一条未输出日志的位置
+     */
+    private long first;
+    /**
+     * 是否正在输出, 输出过程中 Supplier 打印的日志不记录
+     */
+    private boolean draining;
+
+    private FlightRecorder() {
+    }
+
+    /**
+     * 记录一条未开启级别的日志
+     *
+     * @param logger    LazyLogger
+     * @param levelBit  级别位, 见 LevelCache
+     * @param format    格式
+     * @param count     参数个数, 小于 0 表示使用 arguments
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     * @param arguments 参数, 保存引用, 不复制
+     */
+    static void record(LazyLogger logger
+            , int levelBit
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4
+            , Object[] arguments) {
+        FlightRecorder recorder = recorders.get();
+        if (recorder.draining) {
+            return;
+        }
+        int index = (int) (recorder.next % size);
+        recorder.loggers[index] = logger;
+        recorder.levels[index] = levelBit;
+        recorder.timestamps[index] = System.currentTimeMillis();
+        recorder.formats[index] = format;
+        recorder.counts[index] = count;
+        recorder.fixedArguments[index * 4] = argument1;
+        recorder.fixedArguments[index * 4 + 1] = argument2;
+        recorder.fixedArguments[index * 4 + 2] = argument3;
+        recorder.fixedArguments[index * 4 + 3] = argument4;
+        recorder.arguments[index] = arguments;
+        recorder.next++;
+        if (recorder.next - recorder.first > size) {
+            recorder.first = recorder.next - size;
+        }
+    }
+
+    /**
+     * 格式化并清空当前线程记录的日志
+     *
+     * @param trigger 触发原因
+     * @return 格式化后的日志, 没有记录时返回 null
+     */
+    static String drain(String trigger) {
+        FlightRecorder recorder = recorders.get();
+        if (recorder.draining || recorder.next == recorder.first) {
+            return null;
+        }
+
+        recorder.draining = true;
+        try {
+            StringBuilder builder = new StringBuilder(256);
+            builder.append("flight recorder: ").append(recorder.next - recorder.first)
+                    .append(" events before ").append(trigger)
+                    .append(" on thread ").append(Thread.currentThread().getName());
+            for (long sequence = recorder.first; sequence < recorder.next; sequence++) {
+                int index = (int) (sequence % size);
+                builder.append("\n\t[").append(levelName(recorder.levels[index])).append("] ");
+                time_formatter.formatTo(Instant.ofEpochMilli(recorder.timestamps[index]), builder);
+                builder.append(' ');
+                try {
+                    recorder.loggers[index].render(builder
+                            , recorder.formats[index]
+                            , recorder.counts[index]
+                            , recorder.fixedArguments[index * 4]
+                            , recorder.fixedArguments[index * 4 + 1]
+                            , recorder.fixedArguments[index * 4 + 2]
+                            , recorder.fixedArguments[index * 4 + 3]
+                            , recorder.arguments[index]);
+                } catch (Throwable throwable) {
+                    builder.append(recorder.formats[index]).append(" (render failed: ").append(throwable).append(')');
+                }
+            }
+            return builder.toString();
+        } finally {
+            recorder.clear();
+            recorder.draining = false;
+        }
+    }
+
+    /**
+     * 清空当前线程记录的日志, 线程池中可以在每个请求开始时调用
+     */
+    static void reset() {
+        FlightRecorder recorder = recorders.get();
+        if (!recorder.draining) {
+            recorder.clear();
+        }
+    }
+
+    /**
+     * 清空并释放参数引用
+     */
+    private void clear() {
+        for (int i = 0; i < size; i++) {
+            loggers[i] = null;
+            formats[i] = null;
+            arguments[i] = null;
+        }
+        for (int i = 0; i < fixedArguments.length; i++) {
+            fixedArguments[i] = null;
+        }
+        first = next;
+    }
+
+    /**
+     * 级别名称
+     *
+     * @param levelBit 级别位
+     * @return 级别名称
+     */
+    private static String levelName(int levelBit) {
+        switch (levelBit) {
+            case LevelCache.TRACE:
+                return "TRACE";
+            case LevelCache.DEBUG:
+                return "DEBUG";
+            case LevelCache.INFO:
+                return "INFO";
+            case LevelCache.WARN:
+                return "WARN";
+            default:
+                return "ERROR";
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package io.onetool4j.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * 2024/3/12 11:00
+ * 无依赖的 JSON 日志参数序列化
+ * <p>
+ * 与 fastjson 默认行为一致: 输出 public getter 与 public 字段, 属性按名称排序, Date 输出毫秒数.
+ * 每个类的属性访问器(MethodHandle)通过 ClassValue 只解析一次, 序列化时不再有 Method.invoke,
+ * 直接写入调用方的 StringBuilder, 返回字符串时复用线程内的缓冲区.
+ * 长度预算、集合元素个数与嵌套深度见 ArgumentLimits, 超出预算后立即停止写入
+ *
+ * @author yinbingqiu
+ */
+final class JsonArgumentSerializer implements ArgumentSerializer {
+
+    /**
+     * 单例
+     */
+    private static final JsonArgumentSerializer instance = new JsonArgumentSerializer();
+    /**
+     * 线程内缓冲区超过该大小后不再复用
+     */
+    private static final int max_buffer_size = 64 * 1024;
+    /**
+     * 类 -> 属性访问器
+     */
+    private static final ClassValue<Property[]> properties = new ClassValue<Property[]>() {
+        @Override
+        protected Property[] computeValue(Class<?> type) {
+            return resolveProperties(type);
+        }
+    };
+    private static final char[] hex = "0123456789abcdef".toCharArray();
+
+    /**
+     * 线程内复用的缓冲区
+     */
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private JsonArgumentSerializer() {
+    }
+
+    /**
+     * 获取实例
+     *
+     * @return JsonArgumentSerializer
+     */
+    static JsonArgumentSerializer getInstance() {
+        return instance;
+    }
+
+    @Override
+    public String name() {
+        return ArgumentSerializers.JSON;
+    }
+
+    @Override
+    public String serialize(Object argument) {
+        return serialize(argument, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String serialize(Object argument, int maxLength) {
+        StringBuilder buffer = buffers.get();
+        if (buffer.length() > 0) {
+            // 序列化过程中再次打印日志时不复用缓冲区
+            buffer = new StringBuilder();
+        }
+        try {
+            serializeTo(argument, buffer, maxLength);
+            return buffer.toString();
+        } finally {
+            buffer.setLength(0);
+            if (buffer.capacity() > max_buffer_size) {
+                buffer.trimToSize();
+            }
+        }
+    }
+
+    @Override
+    public void serializeTo(Object argument, StringBuilder builder) {
+        serializeTo(argument, builder, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void serializeTo(Object argument, StringBuilder builder, int maxLength) {
+        int start = builder.length();
+        int limit = (int) Math.min(Integer.MAX_VALUE - 1, (long) start + maxLength);
+        write(argument, builder, 0, limit);
+        ArgumentLimits.truncate(builder, start, maxLength);
+    }
+
+    /**
+     * 写入一个值, builder 长度超过 limit 后停止写入, 超出的部分最多是一个数字或属性名
+     *
+     * @param value   值
+     * @param builder StringBuilder
+     * @param depth   嵌套深度
+     * @param limit   builder 的长度上限
+     */
+    private static void write(Object value, StringBuilder builder, int depth, int limit) {
+        if (value == null) {
+            builder.append("null");
+        } else if (value instanceof String) {
+            writeString((String) value, builder, limit);
+        } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            builder.append(value);
+        } else if (value instanceof Number) {
+            writeNumber((Number) value, builder);
+        } else if (value instanceof Character || value instanceof Enum) {
+            writeString(value.toString(), builder, limit);
+        } else if (value instanceof Date) {
+            builder.append(((Date) value).getTime());
+        } else if (depth >= ArgumentLimits.max_depth) {
+            writeString(value.getClass().getName(), builder, limit);
+        } else if (value instanceof Map) {
+            writeMap((Map<?, ?>) value, builder, depth, limit);
+        } else if (value instanceof Collection) {
+            writeCollection((Collection<?>) value, builder, depth, limit);
+        } else if (value.getClass().isArray()) {
+            writeArray(value, builder, depth, limit);
+        } else if (value instanceof Optional) {
+            write(((Optional<?>) value).orElse(null), builder, depth, limit);
+        } else if (isValueType(value.getClass())) {
+            writeString(value.toString(), builder, limit);
+        } else {
+            writeBean(value, builder, depth, limit);
+        }
+    }
+
+    /**
+     * JDK 中的其它类型(如 java.time、UUID)按 toString 输出
+     *
+     * @param type 类型
+     * @return 是否按 toString 输出
+     */
+    private static boolean isValueType(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.");
+    }
+
+    private static void writeNumber(Number number, StringBuilder builder) {
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                builder.append("null");
+                return;
+            }
+        }
+        builder.append(number);
+    }
+
+    /**
+     * 写入 Map, 超过 max_elements 的部分只输出总数
+     */
+    private static void writeMap(Map<?, ?> map, StringBuilder builder, int depth, int limit) {
+        builder.append('{');
+        int count = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (builder.length() > limit) {
+                return;
+            }
+            if (count > 0) {
+                builder.append(',');
+            }
+            if (count == ArgumentLimits.max_elements) {
+                builder.append("\"...\":");
+                writeString(ArgumentLimits.remaining(map.size()), builder, limit);
+                break;
+            }
+            count++;
+            writeString(String.valueOf(entry.getKey()), builder, limit);
+            builder.append(':');
+            write(entry.getValue(), builder, depth + 1, limit);
+        }
+        builder.append('}');
+    }
+
+    /**
+     * 写入集合, 超过 max_elements 的部分只输出总数
+     */
+    private static void writeCollection(Collection<?> collection, StringBuilder builder, int depth, int limit) {
+        builder.append('[');
+        int count = 0;
+        for (Object element : collection) {
+            if (builder.length() > limit) {
+                return;
+            }
+            if (count > 0) {
+                builder.append(',');
+            }
+            if (count == ArgumentLimits.max_elements) {
+                writeString(ArgumentLimits.remaining(collection.size()), builder, limit);
+                break;
+            }
+            count++;
+            write(element, builder, depth + 1, limit);
+        }
+        builder.append(']');
+    }
+
+    /**
+     * 写入数组, 超过 max_elements 的部分只输出总数
+     */
+    private static void writeArray(Object array, StringBuilder builder, int depth, int limit) {
+        if (array instanceof char[]) {
+            char[] chars = (char[]) array;
+            writeString(new String(chars, 0, Math.min(chars.length, Math.max(limit - builder.length(), 0) + 1)), builder, limit);
+            return;
+        }
+        int length = Array.getLength(array);
+        int count = Math.min(length, ArgumentLimits.max_elements);
+        builder.append('[');
+        for (int i = 0; i < count; i++) {
+            if (builder.length() > limit) {
+                return;
+            }
+            if (i > 0) {
+                builder.append(',');
+            }
+            if (array instanceof Object[]) {
+                write(((Object[]) array)[i], builder, depth + 1, limit);
+            } else if (array instanceof int[]) {
+                builder.append(((int[]) array)[i]);
+            } else if (array instanceof long[]) {
+                builder.append(((long[]) array)[i]);
+            } else {
+                write(Array.get(array, i), builder, depth + 1, limit);
+            }
+        }
+        if (count < length) {
+            builder.append(',');
+            writeString(ArgumentLimits.remaining(length), builder, limit);
+        }
+        builder.append(']');
+    }
+
+    private static void writeBean(Object bean, StringBuilder builder, int depth, int limit) {
+        builder.append('{');
+        boolean first = true;
+        for (Property property : properties.get(bean.getClass())) {
+            if (builder.length() > limit) {
+                return;
+            }
+            Object value;
+            try {
+                value = property.getter.invokeExact(bean);
+            } catch (Throwable throwable) {
+                // getter 异常时忽略该属性
+                continue;
+            }
+            if (value == null) {
+                continue;
+            }
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            builder.append(property.quotedName);
+            write(value, builder, depth + 1, limit);
+        }
+        builder.append('}');
+    }
+
+    /**
+     * 写入字符串, 最多写到超过 limit 一个字符
+     */
+    private static void writeString(String value, StringBuilder builder, int limit) {
+        builder.append('"');
+        int start = 0;
+        int length = (int) Math.min(value.length(), Math.max((long) limit - builder.length(), 0) + 1);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            builder.append(value, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    builder.append("\\u00").append(hex[c >> 4]).append(hex[c & 0xF]);
+            }
+        }
+        builder.append(value, start, length);
+        if (length == value.length()) {
+            builder.append('"');
+        }
+    }
+
+    /**
+     * 解析类的属性访问器: public getter 与 public 字段, 按名称排序
+     *
+     * @param type 类
+     * @return 属性访问器
+     */
+    private static Property[] resolveProperties(Class<?> type) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType getterType = MethodType.methodType(Object.class, Object.class);
+        Map<String, Property> result = new TreeMap<>();
+        for (Method method : type.getMethods()) {
+            String name = propertyName(method);
+            if (name == null || result.containsKey(name)) {
+                continue;
+            }
+            try {
+                method.setAccessible(true);
+                result.put(name, new Property(name, lookup.unreflect(method).asType(getterType)));
+            } catch (RuntimeException | IllegalAccessException e) {
+                // 无法访问的 getter 忽略
+            }
+        }
+        for (Field field : type.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || result.containsKey(field.getName())) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                result.put(field.getName(), new Property(field.getName(), lookup.unreflectGetter(field).asType(getterType)));
+            } catch (RuntimeException | IllegalAccessException e) {
+                // 无法访问的字段忽略
+            }
+        }
+        return result.values().toArray(new Property[0]);
+    }
+
+    /**
+     * getter 对应的属性名
+     *
+     * @param method 方法
+     * @return 属性名, 不是 getter 时返回 null
+     */
+    private static String propertyName(Method method) {
+        if (Modifier.isStatic(method.getModifiers())
+                || method.getParameterCount() != 0
+                || method.getReturnType() == void.class
+                || method.getDeclaringClass() == Object.class) {
+            return null;
+        }
+        String name = method.getName();
+        int prefix;
+        if (name.startsWith("get") && name.length() > 3) {
+            prefix = 3;
+        } else if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+            prefix = 2;
+        } else {
+            return null;
+        }
+        return Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1);
+    }
+
+    /**
+     * 属性访问器
+     */
+    private static final class Property {
+        /**
+         * "name":
+         */
+        private final String quotedName;
+        /**
+         * (Object)Object
+         */
+        private final MethodHandle getter;
+
+        Property(String name, MethodHandle getter) {
+            StringBuilder builder = new StringBuilder(name.length() + 3);
+            writeString(name, builder, Integer.MAX_VALUE - 1);
+            this.quotedName = builder.append(':').toString();
+            this.getter = getter;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.onetool4j.util;
+
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * 2024/3/18 11:00
+ * java.util.logging 适配器
+ * <p>
+ * 按 {} 占位符格式化后输出, 最后一个参数是异常时作为 LogRecord 的异常.
+ * 不推断调用位置(JUL 推断会遍历线程栈, 且只能找到适配器自身), 输出时使用日志名称
+ *
+ * @author yinbingqiu
+ */
+final class JulLoggerAdapter implements LoggerAdapter {
+
+    /**
+     * LoggerAdapter.Level 序号 -> JUL 级别
+     */
+    private static final java.util.logging.Level[] levels = {
+            java.util.logging.Level.FINEST
+            , java.util.logging.Level.FINE
+            , java.util.logging.Level.INFO
+            , java.util.logging.Level.WARNING
+            , java.util.logging.Level.SEVERE};
+
+    @Override
+    public String loggerTypeName() {
+        return "java.util.logging.Logger";
+    }
+
+    @Override
+    public boolean isEnabled(Object logger, Level level) {
+        return ((Logger) logger).isLoggable(levels[level.ordinal()]);
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object[] arguments) {
+        Logger log = (Logger) logger;
+        LogRecord record = new LogRecord(levels[level.ordinal()], LoggerAdapters.format(format, arguments));
+        record.setLoggerName(log.getName());
+        record.setSourceClassName(null);
+        record.setThrown(LoggerAdapters.throwableOf(arguments));
+        log.log(record);
+    }
+}
@@ -0,0 +1,94 @@
+package io.onetool4j.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 2024/3/28 10:00
+ * 键值对追加到格式后面的结果: "done" + [orderId, latencyMs] -> "done orderId={} latencyMs={}"
+ * <p>
+ * 日志后端不支持上下文时使用. 同一调用点的格式与键基本不变, 每个格式缓存最近一次的键和结果, 键相同时直接复用,
+ * 避免每次输出都拼接新的格式字符串并重新解析占位符
+ *
+ * @author yinbingqiu
+ */
+final class KeyValueFormat {
+
+    /**
+     * 缓存上限, 与模板缓存共用配置
+     */
+    private static final int cache_threshold = Math.min(Integer.parseInt(System.getProperty("lazylogger.template.cache.threshold", "4096")), 65536);
+    /**
+     * 原格式 -> 最近一次的结果
+     */
+    private static final Map<String, KeyValueFormat> format_cache = new ConcurrentHashMap<>();
+
+    /**
+     * 键
+     */
+    private final String[] keys;
+    /**
+     * 追加键值对后的格式
+     */
+    final String format;
+    /**
+     * 原格式的占位符个数
+     */
+    final int placeholders;
+
+    /**
+     * 构造方法
+     */
+    private KeyValueFormat(String format, String[] keys) {
+        StringBuilder builder = new StringBuilder(format.length() + keys.length * 16).append(format);
+        for (String key : keys) {
+            builder.append(' ').append(key).append("={}");
+        }
+        this.keys = keys;
+        this.format = builder.toString();
+        this.placeholders = MessageTemplate.of(format).getPlaceholderCount();
+    }
+
+    /**
+     * 获取追加键值对后的格式
+     *
+     * @param format 原格式, 可以为 null
+     * @param keys   键
+     * @param size   键个数
+     * @return KeyValueFormat
+     */
+    static KeyValueFormat of(String format, String[] keys, int size) {
+        String realFormat = format == null ? "null" : format;
+        KeyValueFormat cached = format_cache.get(realFormat);
+        if (cached != null && cached.matches(keys, size)) {
+            return cached;
+        }
+
+        KeyValueFormat created = new KeyValueFormat(realFormat, Arrays.copyOf(keys, size));
+        if (cached != null || format_cache.size() < cache_threshold) {
+            format_cache.put(realFormat, created);
+        }
+        return created;
+    }
+
+    /**
+     * 键是否相同
+     *
+     * @param keys 键
+     * @param size 键个数
+     * @return 是否相同
+     */
+    private boolean matches(String[] keys, int size) {
+        if (this.keys.length != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!Objects.equals(this.keys[i], keys[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,13 +2,11 @@ package io.onetool4j.util;
 
 import io.onetool4j.exception.Asserts;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Supplier;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * 2024/1/25 13:56
@@ -18,7 +16,12 @@ import java.util.regex.Pattern;
  */
 public class LazyLogger {
 
-    public static final List<Class<?>> support_logger_types = new ArrayList<>();
+    /**
+     * 支持的日志类型, 与之前的版本一样预先包含运行环境中存在的 slf4j、log4j2、log4j、logback 日志接口.
+     * 可以添加额外的类型, 需要提供 slf4j 风格的 isXxxEnabled / xxx(String, Object...) 方法, 通过方法句柄桥接.
+     * 内置支持的日志类型与扩展方式见 LoggerAdapter, 内置适配器都不匹配时才使用这里的类型
+     */
+    public static final List<Class<?>> support_logger_types = new CopyOnWriteArrayList<>();
 
     static {
         try {
@@ -46,55 +49,86 @@ public class LazyLogger {
      */
     private Object wrapped;
     /**
-     * 实例化类型
+     * 参数序列化, 为 null 时参数原样传给日志后端
+     */
+    private ArgumentSerializer serializer;
+    /**
+     * 日志后端是否为 log4j2, 序列化时复用参数包装对象, 见 Log4j2ReusableArguments
+     */
+    private boolean log4j2Backend;
+    /**
+     * 日志后端桥接
+     */
+    private LoggerBridge bridge;
+    /**
+     * 级别缓存, 见 LevelCache, UNCACHED 表示每次调用日志后端判断
      */
-    private SerializableType serializableType;
+    private volatile int levelMask = LevelCache.UNCACHED;
     /**
-     * fastjson序列化方法
+     * 是否缓存级别
      */
-    private Method fastjsonMethod;
+    private boolean levelCached;
     /**
-     * 日志方法
+     * 日志后端是否为 LogJournal, 异常摘要作为参数传入, 不拼接到格式中, 避免每个不同的异常都在格式表中新增一项
      */
-    private Method traceMethod;
+    private boolean journalBackend;
     /**
-     * 日志方法
+     * 异步分发器, 为 null 时同步输出
      */
-    private Method isTraceEnabledMethod;
+    private AsyncLogDispatcher dispatcher;
     /**
-     * 日志方法
+     * 按调用点采样或限流, 为 null 时不限制
      */
-    private Method debugMethod;
+    private LogThrottle throttle;
     /**
-     * 日志方法
+     * 重复日志聚合, 为 null 时不聚合
      */
-    private Method isDebugEnabledMethod;
+    private RepeatAggregator repeatAggregator;
     /**
-     * 日志方法
+     * 是否开启飞行记录, 见 FlightRecorder
      */
-    private Method infoMethod;
+    private boolean flightRecording;
     /**
-     * 日志方法
+     * 数值聚合, 级别 -> 汇总名称 -> 记录, 第一次使用时创建
      */
-    private Method isInfoEnabledMethod;
+    private volatile Map<LoggerAdapter.Level, Map<String, AggregateRecorder>> aggregates;
     /**
-     * 日志方法
+     * 日志名称, 用于匹配 LogConfig 中按名称的配置, 通过 getLogger 创建时第一次需要时从日志后端获取
      */
-    private Method warnMethod;
+    private String name;
     /**
-     * 日志方法
+     * 按当前 LogConfig 解析的配置, 配置变化时重新解析
      */
-    private Method isWarnEnabledMethod;
+    private LogConfig.Settings settings = LogConfig.Settings.none;
     /**
-     * 日志方法
+     * 运行指标, 为 null 时不统计
      */
-    private Method errorMethod;
+    private LogMetrics metrics;
+    /**
+     * 统计耗时的序列化包装, 序列化方式不变时复用
+     */
+    private ArgumentSerializer timedSerializer;
+
+    /**
+     * 每个 LazyLogger 每个级别的数值聚合名称上限, 超过上限的名称合并到 "other"
+     */
+    private static final int aggregate_key_threshold = Math.min(Integer.parseInt(System.getProperty("lazylogger.aggregate.key.threshold", "1024")), 65536);
+    /**
+     * LogJournal 中异常摘要的占位符, 拼接在格式后面
+     */
+    private static final String summary_placeholder = "\n{}";
+
     /**
-     * 日志方法
+     * 按名称缓存的实例
      */
-    private Method isErrorEnabledMethod;
+    private static final Map<SerializableType, Map<String, LazyLogger>> named_loggers = new EnumMap<>(SerializableType.class);
+
+    static {
+        for (SerializableType type : SerializableType.values()) {
+            named_loggers.put(type, new ConcurrentHashMap<>());
+        }
+    }
 
-    private static final Pattern pattern = Pattern.compile("\\{ *\\}");
     private static final Set<String> excludeClassList = new HashSet<>(Arrays.asList(
             LazyLogger.class.getName()
             , Asserts.class.getName()));
@@ -111,35 +145,16 @@ public class LazyLogger {
      */
     private LazyLogger(Object log, SerializableType serializableType) {
         assert log != null;
-        if (SerializableType.FASTJSON.equals(serializableType)) {
-            if (Reflections.hasClass("com.alibaba.fastjson.JSON")) {
-                fastjsonMethod = Reflections.getMethod("com.alibaba.fastjson.JSON", "toJSONString", Object.class);
-            } else if (Reflections.hasClass("com.alibaba.fastjson2.JSON")) {
-                fastjsonMethod = Reflections.getMethod("com.alibaba.fastjson2.JSON", "toJSONString", Object.class);
-            } else {
-                throw new IllegalArgumentException("当前运行环境未引入fastjson依赖,无法支持fastjson的日志参数序列化");
-            }
-        }
+        this.serializer = serializableType == null ? null : serializableType.getSerializer();
 
-        /**
-         * 检查是否支持的日志类型
-         */
-        support_logger_types.stream().filter(loggerType -> loggerType.isInstance(log))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("不支持的日志类型:" + log.getClass().getName()));
-
-        this.traceMethod = Reflections.getMethod(log.getClass(), "trace", String.class, Object[].class);
-        this.isTraceEnabledMethod = Reflections.getMethod(log.getClass(), "isTraceEnabled");
-        this.debugMethod = Reflections.getMethod(log.getClass(), "debug", String.class, Object[].class);
-        this.isDebugEnabledMethod = Reflections.getMethod(log.getClass(), "isDebugEnabled");
-        this.infoMethod = Reflections.getMethod(log.getClass(), "info", String.class, Object[].class);
-        this.isInfoEnabledMethod = Reflections.getMethod(log.getClass(), "isInfoEnabled");
-        this.warnMethod = Reflections.getMethod(log.getClass(), "warn", String.class, Object[].class);
-        this.isWarnEnabledMethod = Reflections.getMethod(log.getClass(), "isWarnEnabled");
-        this.errorMethod = Reflections.getMethod(log.getClass(), "error", String.class, Object[].class);
-        this.isErrorEnabledMethod = Reflections.getMethod(log.getClass(), "isErrorEnabled");
+        LoggerBackend backend = LoggerBackend.of(log);
+        this.bridge = backend.bridge;
+        this.log4j2Backend = backend.log4j2;
         this.wrapped = log;
-        this.serializableType = serializableType;
+        this.journalBackend = log instanceof LogJournal;
+        if (LevelCache.enabled) {
+            levelCacheEnable();
+        }
     }
     private int durationThreshold = Math.min(Integer.parseInt(System.getProperty("exception.supportSummary.seconds.threshold", "60")) * 1000, (int) Duration.ofDays(1).toMillis());
     private boolean supportSummary = true;
@@ -157,7 +172,7 @@ public class LazyLogger {
     }
 
     /**
-     * @param log Logger 仅支持 support_logger_types 中的类型org.slf4j.Logger, org.apache.logging.log4j.Logger, org.apache.log4j.Logger, ch.qos.logback.classic.Logger
+     * @param log Logger 支持 slf4j、log4j2、log4j、logback、java.util.logging、System.Logger、LogJournal, 以及 LoggerAdapter 扩展与 support_logger_types 中的类型
      * @return LazyLogger 实例
      */
     public static LazyLogger getLogger(Object log) {
@@ -167,7 +182,7 @@ public class LazyLogger {
     /**
      * 获取实例
      *
-     * @param log              Logger 仅支持 support_logger_types 中的类型org.slf4j.Logger, org.apache.logging.log4j.Logger, org.apache.log4j.Logger, ch.qos.logback.classic.Logger
+     * @param log              Logger 支持 slf4j、log4j2、log4j、logback、java.util.logging、System.Logger、LogJournal, 以及 LoggerAdapter 扩展与 support_logger_types 中的类型
      * @param serializableType 序列化类型
      * @return LazyLogger
      */
@@ -177,37 +192,87 @@ public class LazyLogger {
     }
 
     /**
-     * fastjson序列化
+     * 按名称获取缓存的实例, 日志后端依次尝试 slf4j、log4j2、log4j
+     * 同名的调用方共享同一个实例, 不要在返回的实例上调用 summary、async 等配置方法
      *
-     * @param argument 参数
-     * @return 序列化后的字符串
+     * @param name 日志名称
+     * @return LazyLogger
      */
-    private String fastjsonSerialize(Object argument) {
-        try {
-            return (String) fastjsonMethod.invoke(null, argument);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
+    public static LazyLogger forName(String name) {
+        return forName(name, SerializableType.RAW);
+    }
+
+    /**
+     * 按名称获取缓存的实例
+     *
+     * @param name             日志名称
+     * @param serializableType 序列化类型
+     * @return LazyLogger
+     */
+    public static LazyLogger forName(String name, SerializableType serializableType) {
+        assert name != null;
+        assert serializableType != null;
+        Map<String, LazyLogger> loggers = named_loggers.get(serializableType);
+        LazyLogger logger = loggers.get(name);
+        if (logger != null) {
+            return logger;
         }
+        return loggers.computeIfAbsent(name, key -> {
+            LazyLogger created = new LazyLogger(LoggerBackend.getLogger(key), serializableType);
+            created.name = key;
+            if (LogMetrics.enabled) {
+                created.metrics();
+            }
+            return created;
+        });
     }
 
-    public LazyLogger summaryDisable() {
-        this.supportSummary = false;
+    /**
+     * 按类名获取缓存的实例
+     *
+     * @param clazz 类
+     * @return LazyLogger
+     */
+    public static LazyLogger forClass(Class<?> clazz) {
+        return forName(clazz.getName(), SerializableType.RAW);
+    }
+
+    /**
+     * 按类名获取缓存的实例
+     *
+     * @param clazz            类
+     * @param serializableType 序列化类型
+     * @return LazyLogger
+     */
+    public static LazyLogger forClass(Class<?> clazz, SerializableType serializableType) {
+        return forName(clazz.getName(), serializableType);
+    }
+
+    /**
+     * 按名称选择参数序列化, 内置 json、fastjson, 其它实现通过 ServiceLoader 加载, 见 ArgumentSerializer
+     *
+     * @param name 名称
+     * @return LazyLogger
+     */
+    public LazyLogger serializer(String name) {
+        this.serializer = ArgumentSerializers.get(name);
         return this;
     }
 
     /**
-     * 反射调用方法
+     * 指定参数序列化
      *
-     * @param method 方法
-     * @param args   参数
-     * @return 返回值
+     * @param serializer 参数序列化, 为 null 时参数原样传给日志后端
+     * @return LazyLogger
      */
-    private Object invoke(Method method, Object... args) {
-        try {
-            return method.invoke(wrapped, args);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
-        }
+    public LazyLogger serializer(ArgumentSerializer serializer) {
+        this.serializer = serializer;
+        return this;
+    }
+
+    public LazyLogger summaryDisable() {
+        this.supportSummary = false;
+        return this;
     }
 
     public LazyLogger summary(int countThreshold, Duration durationThreshold) {
@@ -217,230 +282,2046 @@ public class LazyLogger {
     }
 
     /**
-     * 获取参数
+     * 开启级别缓存, 关闭的级别只需要一次 volatile 读, 日志后端重新配置时刷新
+     * 日志上下文配置了与线程上下文相关的过滤器(如 logback TurboFilter、log4j2 DynamicThresholdFilter)时不缓存
      *
-     * @param arguments 参数
-     * @return 参数
+     * @return LazyLogger
      */
-    private Object[] getArgs(Object... arguments) {
-        if (arguments == null || arguments.length == 0) {
-            return null;
+    public synchronized LazyLogger levelCacheEnable() {
+        if (!levelCached) {
+            this.levelCached = true;
+            refreshLevels();
+            LevelCache.register(this, wrapped);
         }
-        Object[] newArgs = new Object[arguments.length];
-        for (int i = 0; i < newArgs.length; i++) {
-            Object argument = arguments[i];
-            if (argument == null || argument instanceof String) {
-                newArgs[i] = argument;
-                continue;
-            }
-
-            Object realArgument = argument;
-            if (argument instanceof LazyExecutor) {
-                realArgument = ((LazyExecutor) argument).supplier.get();
-            } else if (argument instanceof Supplier) {
-                realArgument = ((Supplier<?>) argument).get();
-            }
+        return this;
+    }
 
-            if (realArgument == null
-                    || realArgument instanceof String
-                    || realArgument instanceof Throwable) {
-                newArgs[i] = realArgument;
-                continue;
-            }
+    /**
+     * 关闭级别缓存, 每次调用都由日志后端判断级别
+     * 使用了与线程上下文相关的过滤器(如 logback TurboFilter、log4j2 DynamicThresholdFilter)时需要关闭
+     *
+     * @return LazyLogger
+     */
+    public LazyLogger levelCacheDisable() {
+        this.levelCached = false;
+        this.levelMask = LevelCache.UNCACHED;
+        return this;
+    }
 
-            if (SerializableType.FASTJSON.equals(serializableType)) {
-                newArgs[i] = fastjsonSerialize(realArgument);
-            } else {
-                newArgs[i] = realArgument;
-            }
+    /**
+     * 重新读取日志后端的级别
+     */
+    void refreshLevels() {
+        if (!levelCached) {
+            return;
         }
-
-        return newArgs;
+        if (LevelCache.contextFiltered(wrapped)) {
+            // 过滤器按线程上下文判断级别, 不能缓存
+            this.levelMask = LevelCache.UNCACHED;
+            return;
+        }
+        int mask = 0;
+        mask |= bridge.trace.isEnabled(wrapped) ? LevelCache.TRACE : 0;
+        mask |= bridge.debug.isEnabled(wrapped) ? LevelCache.DEBUG : 0;
+        mask |= bridge.info.isEnabled(wrapped) ? LevelCache.INFO : 0;
+        mask |= bridge.warn.isEnabled(wrapped) ? LevelCache.WARN : 0;
+        mask |= bridge.error.isEnabled(wrapped) ? LevelCache.ERROR : 0;
+        this.levelMask = mask & settings().levelMask;
     }
 
     /**
-     * Log a message at the TRACE level according to the specified format
-     * and arguments.
+     * 级别是否开启, 有缓存时只读一次 volatile
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
-     * @since 1.4
+     * @param levelBit 级别位
+     * @param level    级别桥接
+     * @return 是否开启
      */
-    public void trace(String format, Object... arguments) {
-        if (!(Boolean) invoke(isTraceEnabledMethod)) {
-            return;
+    boolean isEnabled(int levelBit, LoggerBridge.LevelBridge level) {
+        int mask = levelMask;
+        if (mask != LevelCache.UNCACHED) {
+            return (mask & levelBit) != 0;
         }
-        Object[] realArgs = getArgs(arguments);
-        invoke(traceMethod, getFormat(format, realArgs), realArgs);
+        return (settings().levelMask & levelBit) != 0 && level.isEnabled(wrapped);
     }
 
-    private String getFormat(String format, Object[] realArgs) {
-        if (!supportSummary
-                || realArgs == null || realArgs.length == 0
-                || format == null || format.isEmpty()) {
-            return format;
+    /**
+     * 当前 LogConfig 对应的配置, 配置未变化时只读一次 volatile
+     *
+     * @return LogConfig.Settings
+     */
+    private LogConfig.Settings settings() {
+        LogConfig.Snapshot snapshot = LogConfig.current;
+        LogConfig.Settings cached = settings;
+        if (cached.snapshot == snapshot) {
+            return cached;
         }
-
-        Matcher matcher = pattern.matcher(format);
-        int count = 0;
-        while (matcher.find()) {
-            count++;
+        if (name == null && snapshot.hasLoggerRules()) {
+            name = LoggerBackend.of(wrapped).nameOf(wrapped);
         }
+        cached = snapshot.resolve(name);
+        settings = cached;
+        return cached;
+    }
 
-        if (count + 1 != realArgs.length
-                || !(realArgs[realArgs.length - 1] instanceof Throwable)) {
-            return format;
+    /**
+     * 当前的参数序列化, LogConfig 中配置的优先
+     *
+     * @return 参数序列化, 为 null 时参数原样传给日志后端
+     */
+    private ArgumentSerializer serializer() {
+        LogConfig.Settings config = settings();
+        ArgumentSerializer current = config.serializerConfigured ? config.serializer : serializer;
+        if (metrics == null) {
+            return current;
         }
+        ArgumentSerializer timed = metrics.timed(current, timedSerializer);
+        timedSerializer = timed;
+        return timed;
+    }
 
-        Throwable throwable = (Throwable) realArgs[realArgs.length - 1];
-        realArgs[realArgs.length - 1] = null;
-        return format + "\n" + SummaryExceptions.getFullStackTrace(throwable
-                , wrapped
-                , excludeClassList
-                , countThreshold
-                , durationThreshold);
+    /**
+     * 级别桥接对应的级别位
+     *
+     * @param level 级别桥接
+     * @return 级别位
+     */
+    private int levelBit(LoggerBridge.LevelBridge level) {
+        return level == bridge.trace ? LevelCache.TRACE
+                : level == bridge.debug ? LevelCache.DEBUG
+                : level == bridge.info ? LevelCache.INFO
+                : level == bridge.warn ? LevelCache.WARN
+                : LevelCache.ERROR;
     }
 
     /**
-     * Log a message at the TRACE level according to the specified format
-     * and arguments.
+     * LogConfig 的级别、格式模板与采样判断
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
-     * @since 1.4
+     * @param level  级别桥接
+     * @param format 格式
+     * @return 是否放行
      */
-    public void trace(String format, Supplier<?>... arguments) {
-        if (!(Boolean) invoke(isTraceEnabledMethod)) {
-            return;
+    private boolean admitConfigured(LoggerBridge.LevelBridge level, String format) {
+        LogConfig.Settings config = settings();
+        if (config.snapshot.templates != null && format != null) {
+            LogConfig.Template template = config.snapshot.templates.get(format);
+            if (template != null) {
+                if ((template.levelMask & levelBit(level)) == 0) {
+                    return false;
+                }
+                if (template.throttle != null && !admit(template.throttle, level, format)) {
+                    return false;
+                }
+            }
         }
-        Object[] realArgs = getArgs(arguments);
-        invoke(traceMethod, getFormat(format, realArgs), realArgs);
+        LogThrottle current = config.throttle != null ? config.throttle : throttle;
+        return current == null || admit(current, level, format);
     }
 
     /**
-     * Log a message at the DEBUG level according to the specified format
-     * and arguments.
+     * 开启异步输出, 使用默认分发器
+     * 调用线程只负责级别判断和 Supplier 求值, 序列化、异常摘要渲染以及日志后端调用都在分发线程中执行,
+     * 因此日志后端看到的线程名和 MDC 是分发线程的
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
+     * @return LazyLogger
      */
-    public void debug(String format, Object... arguments) {
-        if (!(Boolean) invoke(isDebugEnabledMethod)) {
-            return;
-        }
-        Object[] realArgs = getArgs(arguments);
-        invoke(debugMethod, getFormat(format, realArgs), realArgs);
+    public LazyLogger async() {
+        replaceDispatcher(AsyncLogDispatcher.getDefault());
+        return this;
     }
 
+    /**
+     * 开启异步输出, 使用独立的分发器
+     * 之前配置的独立分发器会在输出剩余日志后关闭
+     *
+     * @param bufferSize   缓冲区大小, 向上取整为 2 的幂
+     * @param waitStrategy 分发线程等待策略
+     * @param fullPolicy   缓冲区满时的策略
+     * @return LazyLogger
+     */
+    public LazyLogger async(int bufferSize, WaitStrategy waitStrategy, FullPolicy fullPolicy) {
+        replaceDispatcher(new AsyncLogDispatcher(bufferSize, waitStrategy, fullPolicy));
+        return this;
+    }
 
     /**
-     * Log a message at the DEBUG level according to the specified format
-     * and arguments.
+     * 替换分发器, 关闭之前的分发器, 避免重复配置时遗留线程和 JVM 关闭钩子
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
+     * @param next 新的分发器
      */
-    public void debug(String format, Supplier<?>... arguments) {
-        if (!(Boolean) invoke(isDebugEnabledMethod)) {
-            return;
+    private synchronized void replaceDispatcher(AsyncLogDispatcher next) {
+        AsyncLogDispatcher previous = this.dispatcher;
+        this.dispatcher = next;
+        if (previous != null && previous != next) {
+            previous.close();
         }
-        Object[] realArgs = getArgs(arguments);
-        invoke(debugMethod, getFormat(format, realArgs), realArgs);
     }
 
     /**
-     * Log a message at the INFO level according to the specified format
-     * and arguments.
+     * 等待异步模式下已经提交的日志全部输出, 同步模式下直接返回
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
+     * @param timeout 超时时间
+     * @return 是否在超时前全部输出
      */
-    public void info(String format, Object... arguments) {
-        if (!(Boolean) invoke(isInfoEnabledMethod)) {
-            return;
-        }
-        Object[] realArgs = getArgs(arguments);
-        invoke(infoMethod, getFormat(format, realArgs), realArgs);
+    public boolean flush(Duration timeout) {
+        return dispatcher == null || dispatcher.flush(timeout.toMillis());
     }
 
     /**
-     * Log a message at the INFO level according to the specified format
-     * and arguments.
+     * 按调用点(格式字符串)采样, 每个调用点按比例确定性地放行
+     * 被丢弃的日志不会执行 Supplier, 也不会序列化参数, 与 rateLimited 同时使用时以后调用的为准
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
+     * @param rate 采样率, (0, 1]
+     * @return LazyLogger
      */
-    public void info(String format, Supplier<?>... arguments) {
-        if (!(Boolean) invoke(isInfoEnabledMethod)) {
-            return;
+    public LazyLogger sampled(double rate) {
+        this.throttle = LogThrottle.sampled(rate);
+        return this;
+    }
+
+    /**
+     * 按调用点(格式字符串)限流, 令牌桶容量为 1 秒的许可数
+     * 被丢弃的日志不会执行 Supplier, 也不会序列化参数, 与 sampled 同时使用时以后调用的为准
+     *
+     * @param permitsPerSecond 每个调用点每秒许可数
+     * @return LazyLogger
+     */
+    public LazyLogger rateLimited(double permitsPerSecond) {
+        this.throttle = LogThrottle.rateLimited(permitsPerSecond);
+        return this;
+    }
+
+    /**
+     * 开启重复日志聚合, 不带异常的日志按格式模板分组, 时间窗口内只输出第一条,
+     * 窗口结束后输出一条 "repeated N times in Ws", 窗口内重复的日志不会执行 Supplier
+     *
+     * @param window 时间窗口
+     * @return LazyLogger
+     */
+    public LazyLogger repeatAggregation(Duration window) {
+        this.repeatAggregator = new RepeatAggregator(window.toNanos());
+        RepeatAggregator.register(this);
+        return this;
+    }
+
+    /**
+     * 输出已结束窗口的重复日志汇总, 由 RepeatAggregator 的后台线程调用
+     */
+    void sweepRepeated() {
+        RepeatAggregator aggregator = repeatAggregator;
+        if (aggregator != null) {
+            aggregator.sweep(this::reportRepeated);
         }
-        Object[] realArgs = getArgs(arguments);
-        invoke(infoMethod, getFormat(format, realArgs), realArgs);
     }
 
     /**
-     * Log a message at the WARN level according to the specified format
-     * and arguments.
+     * 输出重复日志汇总
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
+     * @param level   级别桥接
+     * @param format  格式
+     * @param repeats 重复次数
      */
-    public void warn(String format, Object... arguments) {
-        if (!(Boolean) invoke(isWarnEnabledMethod)) {
-            return;
+    private void reportRepeated(LoggerBridge.LevelBridge level, String format, long repeats) {
+        dispatch(level, RepeatAggregator.repeated_format, 3, format, repeats, repeatAggregator.getWindowSeconds(), null);
+    }
+
+    /**
+     * 重复日志聚合判断, 带异常的日志不聚合
+     *
+     * @param level  级别桥接
+     * @param format 格式
+     * @param last   最后一个参数
+     * @return 是否输出
+     */
+    private boolean aggregateRepeated(LoggerBridge.LevelBridge level, String format, Object last) {
+        if (last instanceof Throwable) {
+            return true;
         }
-        Object[] realArgs = getArgs(arguments);
-        invoke(warnMethod, getFormat(format, realArgs), realArgs);
+        long repeats = repeatAggregator.tryAdmit(level, format);
+        if (repeats == RepeatAggregator.DROP) {
+            return false;
+        }
+        if (repeats > 0) {
+            reportRepeated(level, format, repeats);
+        }
+        return true;
     }
 
     /**
-     * Log a message at the WARN level according to the specified format
-     * and arguments.
+     * 数值聚合, INFO 级别, 见 AggregateRecorder
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
+     * @param key 汇总名称
+     * @return AggregateRecorder
      */
-    public void warn(String format, Supplier<?>... arguments) {
-        if (!(Boolean) invoke(isWarnEnabledMethod)) {
+    public AggregateRecorder aggregate(String key) {
+        return aggregate(key, LoggerAdapter.Level.INFO);
+    }
+
+    /**
+     * 数值聚合, 同一名称与级别返回同一个记录, 后台线程每个窗口(lazylogger.aggregate.window.seconds, 默认 60 秒)输出一条汇总,
+     * 调用方可以保存返回的记录避免每次查找
+     *
+     * @param key   汇总名称
+     * @param level 级别
+     * @return AggregateRecorder
+     */
+    public AggregateRecorder aggregate(String key, LoggerAdapter.Level level) {
+        assert key != null && level != null;
+        Map<LoggerAdapter.Level, Map<String, AggregateRecorder>> levels = aggregates;
+        if (levels == null) {
+            synchronized (this) {
+                levels = aggregates;
+                if (levels == null) {
+                    levels = new EnumMap<>(LoggerAdapter.Level.class);
+                    for (LoggerAdapter.Level value : LoggerAdapter.Level.values()) {
+                        levels.put(value, new ConcurrentHashMap<>());
+                    }
+                    aggregates = levels;
+                    AggregateRecorder.register(this);
+                }
+            }
+        }
+        Map<String, AggregateRecorder> recorders = levels.get(level);
+        AggregateRecorder recorder = recorders.get(key);
+        if (recorder != null) {
+            return recorder;
+        }
+        if (recorders.size() >= aggregate_key_threshold) {
+            key = "other";
+        }
+        return recorders.computeIfAbsent(key, name -> newAggregateRecorder(name, level));
+    }
+
+    private AggregateRecorder newAggregateRecorder(String key, LoggerAdapter.Level level) {
+        switch (level) {
+            case TRACE:
+                return new AggregateRecorder(this, bridge.trace, LevelCache.TRACE, key);
+            case DEBUG:
+                return new AggregateRecorder(this, bridge.debug, LevelCache.DEBUG, key);
+            case INFO:
+                return new AggregateRecorder(this, bridge.info, LevelCache.INFO, key);
+            case WARN:
+                return new AggregateRecorder(this, bridge.warn, LevelCache.WARN, key);
+            default:
+                return new AggregateRecorder(this, bridge.error, LevelCache.ERROR, key);
+        }
+    }
+
+    /**
+     * 输出所有数值聚合的汇总, 由 AggregateRecorder 的后台线程调用
+     */
+    void flushAggregates() {
+        Map<LoggerAdapter.Level, Map<String, AggregateRecorder>> levels = aggregates;
+        if (levels == null) {
             return;
         }
-        Object[] realArgs = getArgs(arguments);
-        invoke(warnMethod, getFormat(format, realArgs), realArgs);
+        for (Map<String, AggregateRecorder> recorders : levels.values()) {
+            for (AggregateRecorder recorder : recorders.values()) {
+                recorder.flush();
+            }
+        }
     }
 
     /**
-     * Log a message at the ERROR level according to the specified format
-     * and arguments.
+     * 输出数值聚合的汇总, 不经过重复聚合与限流
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
+     * @param level     级别桥接
+     * @param levelBit  级别位
+     * @param arguments 汇总参数, 见 AggregateRecorder#summary_format
      */
-    public void error(String format, Object... arguments) {
-        if (!(Boolean) invoke(isErrorEnabledMethod)) {
+    void reportAggregate(LoggerBridge.LevelBridge level, int levelBit, Object[] arguments) {
+        if (!isEnabled(levelBit, level)) {
             return;
         }
-        Object[] realArgs = getArgs(arguments);
-        invoke(errorMethod, getFormat(format, realArgs), realArgs);
+        if (dispatcher != null) {
+            dispatcher.publish(this, level, AggregateRecorder.summary_format, -1, null, null, null, null, arguments);
+            return;
+        }
+        write(level, AggregateRecorder.summary_format, -1, null, null, null, null, arguments);
     }
 
     /**
-     * Log a message at the ERROR level according to the specified format
-     * and arguments.
+     * 输出调用点被丢弃的数量, 由 LogThrottle 的后台线程调用
      *
-     * @param format    the format string
-     * @param arguments a list of 3 or more arguments
+     * @param level      级别桥接
+     * @param suppressed 丢弃数量
+     * @param format     调用点格式
      */
-    public void error(String format, Supplier<?>... arguments) {
-        if (!(Boolean) invoke(isErrorEnabledMethod)) {
-            return;
+    void reportSuppressed(LoggerBridge.LevelBridge level, long suppressed, String format) {
+        dispatch(level, LogThrottle.suppressed_format, 2, suppressed, format, null, null);
+    }
+
+    /**
+     * 开启运行指标并注册到 JMX, 见 LazyLoggerMXBean, 同名的 LazyLogger 共用一份指标.
+     * 系统属性 lazylogger.metrics.enabled=true 时按名称获取的实例默认开启
+     *
+     * @return LazyLogger
+     */
+    public LazyLogger metrics() {
+        if (name == null) {
+            name = LoggerBackend.of(wrapped).nameOf(wrapped);
         }
-        Object[] realArgs = getArgs(arguments);
-        invoke(errorMethod, getFormat(format, realArgs), realArgs);
+        this.metrics = LogMetrics.forName(name == null ? wrapped.getClass().getName() : name);
+        return this;
     }
 
+    /**
+     * 运行指标
+     *
+     * @return 未开启时返回 null
+     */
+    public LazyLoggerMXBean getMetrics() {
+        return metrics;
+    }
 
-    public enum SerializableType {
-        FASTJSON, RAW
+    /**
+     * 开启飞行记录, 未开启级别的日志只保存格式与参数引用到线程内的环形缓冲区, 不格式化、不执行 Supplier,
+     * 同一线程输出 ERROR 或 SummaryException 摘要时才格式化并输出之前的日志
+     *
+     * @return LazyLogger
+     */
+    public LazyLogger flightRecorder() {
+        this.flightRecording = true;
+        FlightRecorder.active = true;
+        return this;
+    }
+
+    /**
+     * 清空当前线程的飞行记录, 线程池中可以在每个请求开始时调用, 避免输出上一个请求的日志
+     */
+    public static void resetFlightRecorder() {
+        FlightRecorder.reset();
+    }
+
+    /**
+     * TRACE 级别的键值对日志, 级别未开启时返回共享的空构造器
+     *
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder atTrace() {
+        return isEnabled(LevelCache.TRACE, bridge.trace) ? LogEventBuilder.acquire(this, bridge.trace) : LogEventBuilder.noop;
+    }
+
+    /**
+     * DEBUG 级别的键值对日志, 级别未开启时返回共享的空构造器
+     *
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder atDebug() {
+        return isEnabled(LevelCache.DEBUG, bridge.debug) ? LogEventBuilder.acquire(this, bridge.debug) : LogEventBuilder.noop;
+    }
+
+    /**
+     * INFO 级别的键值对日志, 级别未开启时返回共享的空构造器
+     *
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder atInfo() {
+        return isEnabled(LevelCache.INFO, bridge.info) ? LogEventBuilder.acquire(this, bridge.info) : LogEventBuilder.noop;
+    }
+
+    /**
+     * WARN 级别的键值对日志, 级别未开启时返回共享的空构造器
+     *
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder atWarn() {
+        return isEnabled(LevelCache.WARN, bridge.warn) ? LogEventBuilder.acquire(this, bridge.warn) : LogEventBuilder.noop;
+    }
+
+    /**
+     * ERROR 级别的键值对日志
+     *
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder atError() {
+        return isEnabled(LevelCache.ERROR, bridge.error) ? LogEventBuilder.acquire(this, bridge.error) : LogEventBuilder.noop;
+    }
+
+    /**
+     * 输出键值对日志
+     * 先按原格式做重复聚合、格式模板、采样与限流判断, 被丢弃的日志不执行键值对的 Supplier, 也不序列化值;
+     * 同步模式且日志后端支持上下文时, 键值对在输出期间写入上下文(MDC / ThreadContext), 输出后恢复原值;
+     * 否则以 key={} 追加到格式后面, 末尾没有占位符的异常参数仍然放在最后
+     *
+     * @param level     级别桥接
+     * @param format    格式
+     * @param arguments 参数, 可以为 null
+     * @param event     键值对
+     */
+    void logKeyValues(LoggerBridge.LevelBridge level, String format, Object[] arguments, LogEventBuilder event) {
+        if (!admitLog(level, format, arguments == null || arguments.length == 0 ? null : arguments[arguments.length - 1])) {
+            return;
+        }
+        int size = event.size;
+        if (size == 0) {
+            emitLog(level, format, arguments);
+            return;
+        }
+
+        ContextAware context = bridge.contextAdapter;
+        if (context != null && dispatcher == null) {
+            int put = 0;
+            try {
+                for (; put < size; put++) {
+                    event.previous[put] = context.putContext(event.keys[put], event.valueAt(put, serializer()));
+                }
+                emitLog(level, format, arguments);
+            } finally {
+                for (int i = put - 1; i >= 0; i--) {
+                    context.restoreContext(event.keys[i], event.previous[i]);
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (event.types[i] != LogEventBuilder.TYPE_OBJECT) {
+                event.objects[i] = event.valueAt(i, null);
+            }
+        }
+        KeyValueFormat keyValueFormat = KeyValueFormat.of(format, event.keys, size);
+        emitLog(level, keyValueFormat.format, appendKeyValues(keyValueFormat, arguments, event.objects, size));
+    }
+
+    /**
+     * 按追加键值对后的格式补齐参数, 多余的参数忽略, 末尾没有占位符的异常参数仍然放在最后
+     *
+     * @param format    追加键值对后的格式
+     * @param arguments 参数, 可以为 null
+     * @param values    值, 作为参数传给日志后端, 与普通参数一样求值和序列化
+     * @param size      键值对个数
+     * @return 新的参数
+     */
+    private static Object[] appendKeyValues(KeyValueFormat format, Object[] arguments, Object[] values, int size) {
+        int placeholders = format.placeholders;
+        int argumentCount = arguments == null ? 0 : arguments.length;
+        Throwable throwable = argumentCount > placeholders && arguments[argumentCount - 1] instanceof Throwable
+                ? (Throwable) arguments[argumentCount - 1] : null;
+        Object[] realArgs = new Object[placeholders + size + (throwable == null ? 0 : 1)];
+        for (int i = 0; i < placeholders; i++) {
+            // 参数不足时保留占位符原文, 多余的参数忽略, 与 slf4j 一致
+            realArgs[i] = i < argumentCount ? arguments[i] : "{}";
+        }
+        System.arraycopy(values, 0, realArgs, placeholders, size);
+        if (throwable != null) {
+            realArgs[realArgs.length - 1] = throwable;
+        }
+        return realArgs;
+    }
+
+    /**
+     * 记录未开启级别的日志
+     *
+     * @param levelBit  级别位
+     * @param format    格式
+     * @param count     参数个数, 小于 0 表示使用 arguments
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     * @param arguments 参数
+     */
+    private void record(int levelBit
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4
+            , Object[] arguments) {
+        if (metrics != null) {
+            metrics.disabled();
+        }
+        if (flightRecording) {
+            FlightRecorder.record(this, levelBit, format, count, argument1, argument2, argument3, argument4, arguments);
+        }
+    }
+
+    /**
+     * ERROR 日志输出前先输出当前线程的飞行记录
+     *
+     * @param level 级别桥接
+     */
+    private void dumpFlightRecorder(LoggerBridge.LevelBridge level) {
+        String recorded = FlightRecorder.drain("ERROR");
+        if (recorded != null) {
+            dispatch(level, "{}", 1, recorded, null, null, null);
+        }
+    }
+
+    /**
+     * 格式化飞行记录中的日志, 此时才执行 Supplier 与序列化
+     *
+     * @param builder   StringBuilder
+     * @param format    格式
+     * @param count     参数个数, 小于 0 表示使用 arguments
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     * @param arguments 参数
+     */
+    void render(StringBuilder builder
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4
+            , Object[] arguments) {
+        if (format == null) {
+            builder.append("null");
+            return;
+        }
+        Object[] realArgs = count < 0
+                ? (arguments == null ? null : arguments.clone())
+                : Arrays.copyOf(new Object[]{argument1, argument2, argument3, argument4}, count);
+        if (realArgs != null) {
+            ArgumentSerializer current = serializer();
+            int maxLength = ArgumentLimits.argumentLimit(realArgs.length);
+            for (int i = 0; i < realArgs.length; i++) {
+                Object argument = resolve(realArgs[i]);
+                if (current != null && argument != null && !(argument instanceof String) && !(argument instanceof Throwable)) {
+                    argument = current.serialize(argument, maxLength);
+                }
+                realArgs[i] = argument;
+            }
+        }
+        MessageTemplate.of(format).formatTo(builder, realArgs);
+    }
+
+    /**
+     * 采样或限流判断, 放行时先补充输出该调用点被丢弃的数量
+     *
+     * @param throttle 采样或限流
+     * @param level    级别桥接
+     * @param format   格式
+     * @return 是否放行
+     */
+    private boolean admit(LogThrottle throttle, LoggerBridge.LevelBridge level, String format) {
+        LogThrottle.Callsite callsite = throttle.callsite(format);
+        if (!throttle.tryAcquire(callsite, this, level)) {
+            return false;
+        }
+        long suppressed = throttle.drainSuppressed(callsite);
+        if (suppressed > 0) {
+            dispatch(level, LogThrottle.suppressed_format, 2, suppressed, format, null, null);
+        }
+        return true;
+    }
+
+    /**
+     * 求值参数, 执行 Supplier / LazyExecutor
+     *
+     * @param argument 参数
+     * @return 参数
+     */
+    private Object resolve(Object argument) {
+        Supplier<?> supplier;
+        if (argument instanceof LazyExecutor) {
+            supplier = ((LazyExecutor<?>) argument).supplier;
+        } else if (argument instanceof Supplier) {
+            supplier = (Supplier<?>) argument;
+        } else {
+            return argument;
+        }
+        LogMetrics current = metrics;
+        if (current == null) {
+            return supplier.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            current.supplier(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 求值参数, 没有参数需要求值时直接复用调用方的数组
+     *
+     * @param arguments 参数
+     * @return 参数
+     */
+    private Object[] resolveArgs(Object[] arguments) {
+        if (arguments == null || arguments.length == 0) {
+            return null;
+        }
+
+        int i = 0;
+        while (i < arguments.length
+                && !(arguments[i] instanceof Supplier)
+                && !(arguments[i] instanceof LazyExecutor)) {
+            i++;
+        }
+        if (i == arguments.length) {
+            return arguments;
+        }
+
+        Object[] newArgs = arguments.clone();
+        for (; i < newArgs.length; i++) {
+            newArgs[i] = resolve(arguments[i]);
+        }
+        return newArgs;
+    }
+
+    /**
+     * 序列化已经求值的参数, 包装为延迟序列化参数, 日志后端真正输出时才序列化,
+     * 有可复用的 log4j2 参数时使用复用的包装对象
+     *
+     * @param argument  参数
+     * @param reusable  可复用的 log4j2 参数, 可以为 null
+     * @param index     参数位置
+     * @param maxLength 序列化后的最大长度, 见 ArgumentLimits
+     * @return 参数
+     */
+    private Object getArg(Object argument, Log4j2ReusableArguments reusable, int index, int maxLength) {
+        if (argument == null
+                || argument instanceof String
+                || argument instanceof Throwable) {
+            return argument;
+        }
+
+        ArgumentSerializer current = serializer();
+        if (current != null) {
+            if (reusable != null) {
+                return reusable.wrap(index, argument, current, maxLength);
+            }
+            return DeferredArgument.of(argument, current, maxLength);
+        }
+        return argument;
+    }
+
+    /**
+     * 序列化已经求值的参数, 没有参数需要序列化时直接复用传入的数组
+     *
+     * @param arguments 参数
+     * @return 参数
+     */
+    private Object[] getArgs(Object[] arguments) {
+        if (arguments == null || serializer() == null) {
+            return arguments;
+        }
+
+        int maxLength = ArgumentLimits.argumentLimit(arguments.length);
+        Object[] newArgs = arguments.clone();
+        for (int i = 0; i < newArgs.length; i++) {
+            newArgs[i] = getArg(arguments[i], null, i, maxLength);
+        }
+        return newArgs;
+    }
+
+    /**
+     * 最后一个参数是否为需要摘要的异常, 即异常参数没有对应的占位符
+     *
+     * @param format        格式
+     * @param argumentCount 参数个数
+     * @param last          最后一个参数
+     * @return 是否需要摘要
+     */
+    private boolean isSummaryThrowable(String format, int argumentCount, Object last) {
+        if (!supportSummary
+                || !(last instanceof Throwable)
+                || format == null || format.isEmpty()) {
+            return false;
+        }
+        return MessageTemplate.of(format).getPlaceholderCount() + 1 == argumentCount;
+    }
+
+    /**
+     * 把异常摘要拼接到格式后面
+     *
+     * @param format    格式
+     * @param throwable 异常
+     * @return 格式
+     */
+    private String getFormat(String format, Throwable throwable) {
+        return format + "\n" + getSummary(throwable);
+    }
+
+    /**
+     * 异常摘要或完整堆栈
+     *
+     * @param throwable 异常
+     * @return 摘要
+     */
+    private String getSummary(Throwable throwable) {
+        LogConfig.Settings config = settings();
+        LogMetrics current = metrics;
+        long start = current == null ? 0 : System.nanoTime();
+        String summary = SummaryExceptions.getFullStackTrace(throwable
+                , wrapped
+                , excludeClassList
+                , config.countThreshold >= 0 ? config.countThreshold : countThreshold
+                , config.durationThreshold >= 0 ? config.durationThreshold : durationThreshold);
+        if (current != null) {
+            current.summary(System.nanoTime() - start, summary.length());
+        }
+        return summary;
+    }
+
+    /**
+     * 统计被丢弃的日志
+     */
+    private void dropped() {
+        if (metrics != null) {
+            metrics.dropped();
+        }
+    }
+
+    /**
+     * 打印日志
+     *
+     * @param level     级别桥接
+     * @param format    格式
+     * @param count     参数个数, 0 ~ 4
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     */
+    private void doLog(LoggerBridge.LevelBridge level
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4) {
+        Object last = count == 1 ? argument1
+                : count == 2 ? argument2
+                : count == 3 ? argument3
+                : argument4;
+        if (!admitLog(level, format, last)) {
+            return;
+        }
+        if (FlightRecorder.active && level == bridge.error) {
+            dumpFlightRecorder(level);
+        }
+        dispatch(level, format, count, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * 求值参数后同步输出或交给异步分发器
+     *
+     * @param level     级别桥接
+     * @param format    格式
+     * @param count     参数个数, 0 ~ 4
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     */
+    private void dispatch(LoggerBridge.LevelBridge level
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4) {
+        Object realArgument1 = resolve(argument1);
+        Object realArgument2 = resolve(argument2);
+        Object realArgument3 = resolve(argument3);
+        Object realArgument4 = resolve(argument4);
+        if (dispatcher != null) {
+            dispatcher.publish(this, level, format, count, realArgument1, realArgument2, realArgument3, realArgument4, null);
+            return;
+        }
+        write(level, format, count, realArgument1, realArgument2, realArgument3, realArgument4, null);
+    }
+
+    /**
+     * 打印日志
+     *
+     * @param level     级别桥接
+     * @param format    格式
+     * @param arguments 参数
+     */
+    private void doLog(LoggerBridge.LevelBridge level, String format, Object[] arguments) {
+        if (admitLog(level, format, arguments == null || arguments.length == 0 ? null : arguments[arguments.length - 1])) {
+            emitLog(level, format, arguments);
+        }
+    }
+
+    /**
+     * 重复聚合、格式模板、采样与限流判断, 丢弃时记录
+     *
+     * @param level  级别桥接
+     * @param format 格式
+     * @param last   最后一个参数
+     * @return 是否输出
+     */
+    private boolean admitLog(LoggerBridge.LevelBridge level, String format, Object last) {
+        if (repeatAggregator != null && !aggregateRepeated(level, format, last)) {
+            dropped();
+            return false;
+        }
+        if (!admitConfigured(level, format)) {
+            dropped();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 输出已经放行的日志
+     *
+     * @param level     级别桥接
+     * @param format    格式
+     * @param arguments 参数
+     */
+    private void emitLog(LoggerBridge.LevelBridge level, String format, Object[] arguments) {
+        if (FlightRecorder.active && level == bridge.error) {
+            dumpFlightRecorder(level);
+        }
+        Object[] realArgs = resolveArgs(arguments);
+        if (dispatcher != null) {
+            // 调用方返回后可能修改数组, 异步输出前先复制
+            dispatcher.publish(this, level, format, -1, null, null, null, null
+                    , realArgs == arguments && realArgs != null ? realArgs.clone() : realArgs);
+            return;
+        }
+        write(level, format, -1, null, null, null, null, realArgs);
+    }
+
+    /**
+     * 输出已经求值的日志事件, 异步模式下由分发线程调用
+     *
+     * @param level     级别桥接
+     * @param format    格式
+     * @param count     参数个数, 小于 0 表示使用 arguments
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     * @param arguments 参数
+     */
+    void write(LoggerBridge.LevelBridge level
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4
+            , Object[] arguments) {
+        if (metrics != null) {
+            metrics.event(levelBit(level));
+        }
+        LogContext.Snapshot context = LogContext.currentOrNull();
+        if (context != null) {
+            writeWithContext(context, level, format, count, argument1, argument2, argument3, argument4, arguments);
+            return;
+        }
+        writeDirect(level, format, count, argument1, argument2, argument3, argument4, arguments);
+    }
+
+    /**
+     * 输出带上下文的日志事件
+     * 日志后端支持上下文时输出期间写入上下文, 输出后恢复原值; 否则以 key={} 追加到格式后面
+     *
+     * @param context   上下文
+     * @param level     级别桥接
+     * @param format    格式
+     * @param count     参数个数, 小于 0 表示使用 arguments
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     * @param arguments 参数
+     */
+    private void writeWithContext(LogContext.Snapshot context
+            , LoggerBridge.LevelBridge level
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4
+            , Object[] arguments) {
+        int size = context.size();
+        ContextAware adapter = bridge.contextAdapter;
+        if (adapter != null) {
+            String[] previous = new String[size];
+            int put = 0;
+            try {
+                for (; put < size; put++) {
+                    previous[put] = adapter.putContext(context.keyAt(put), contextValue(context.valueAt(put)));
+                }
+                writeDirect(level, format, count, argument1, argument2, argument3, argument4, arguments);
+            } finally {
+                for (int i = put - 1; i >= 0; i--) {
+                    adapter.restoreContext(context.keyAt(i), previous[i]);
+                }
+            }
+            return;
+        }
+
+        Object[] realArgs = count < 0 ? arguments
+                : Arrays.copyOf(new Object[]{argument1, argument2, argument3, argument4}, count);
+        Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = resolve(context.valueAt(i));
+        }
+        KeyValueFormat keyValueFormat = KeyValueFormat.of(format, context.keys(), size);
+        write(level, keyValueFormat.format, appendKeyValues(keyValueFormat, realArgs, values, size));
+    }
+
+    /**
+     * 上下文值的字符串形式, 执行 Supplier, 非字符串对象按当前序列化方式序列化
+     *
+     * @param value 值
+     * @return 字符串
+     */
+    private String contextValue(Object value) {
+        Object realValue = resolve(value);
+        if (realValue == null || realValue instanceof String) {
+            return (String) realValue;
+        }
+        ArgumentSerializer current = serializer();
+        return current == null ? String.valueOf(realValue) : current.serialize(realValue, ArgumentLimits.max_argument_length);
+    }
+
+    /**
+     * 输出已经求值的日志事件, 不处理上下文
+     *
+     * @param level     级别桥接
+     * @param format    格式
+     * @param count     参数个数, 小于 0 表示使用 arguments
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     * @param arguments 参数
+     */
+    private void writeDirect(LoggerBridge.LevelBridge level
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4
+            , Object[] arguments) {
+        if (count < 0) {
+            write(level, format, arguments);
+            return;
+        }
+
+        Log4j2ReusableArguments reusable = log4j2Backend && serializer() != null ? Log4j2ReusableArguments.acquire() : null;
+        try {
+            int maxLength = ArgumentLimits.argumentLimit(count);
+            Object realArgument1 = getArg(argument1, reusable, 0, maxLength);
+            Object realArgument2 = getArg(argument2, reusable, 1, maxLength);
+            Object realArgument3 = getArg(argument3, reusable, 2, maxLength);
+            Object realArgument4 = getArg(argument4, reusable, 3, maxLength);
+            Object last = count == 1 ? realArgument1
+                    : count == 2 ? realArgument2
+                    : count == 3 ? realArgument3
+                    : realArgument4;
+            String realFormat = format;
+            Object lastArgument = last;
+            if (count > 0 && isSummaryThrowable(format, count, last)) {
+                if (journalBackend) {
+                    // 摘要作为最后一个参数
+                    realFormat = format + summary_placeholder;
+                    lastArgument = getSummary((Throwable) last);
+                } else {
+                    // 异常已经拼接到格式中, 不再作为参数传给日志后端
+                    realFormat = getFormat(format, (Throwable) last);
+                    lastArgument = null;
+                }
+            }
+
+            switch (count) {
+                case 0:
+                    level.log(wrapped, format);
+                    break;
+                case 1:
+                    level.log(wrapped, realFormat, lastArgument);
+                    break;
+                case 2:
+                    level.log(wrapped, realFormat, realArgument1, lastArgument);
+                    break;
+                case 3:
+                    level.log(wrapped, realFormat, realArgument1, realArgument2, lastArgument);
+                    break;
+                default:
+                    level.log(wrapped, realFormat, realArgument1, realArgument2, realArgument3, lastArgument);
+            }
+        } finally {
+            if (reusable != null) {
+                reusable.release();
+            }
+        }
+    }
+
+    /**
+     * 输出日志
+     *
+     * @param level     级别桥接
+     * @param format    格式
+     * @param arguments 已求值的参数
+     */
+    private void write(LoggerBridge.LevelBridge level, String format, Object[] arguments) {
+        Object[] realArgs = getArgs(arguments);
+        int last = realArgs == null ? -1 : realArgs.length - 1;
+        if (last >= 0 && isSummaryThrowable(format, realArgs.length, realArgs[last])) {
+            Throwable throwable = (Throwable) realArgs[last];
+            if (realArgs == arguments) {
+                // 不修改调用方的数组
+                realArgs = realArgs.clone();
+            }
+            if (journalBackend) {
+                realArgs[last] = getSummary(throwable);
+                level.log(wrapped, format + summary_placeholder, realArgs);
+            } else {
+                realArgs[last] = null;
+                level.log(wrapped, getFormat(format, throwable), realArgs);
+            }
+        } else {
+            level.log(wrapped, format, realArgs);
+        }
+    }
+
+    /**
+     * Log a message at the TRACE level.
+     *
+     * @param format the message string
+     */
+    public void trace(String format) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, 0, null, null, null, null, null);
+            return;
+        }
+        doLog(bridge.trace, format, 0, null, null, null, null);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void trace(String format, Object argument) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.trace, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void trace(String format, Object argument1, Object argument2) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.trace, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void trace(String format, Object argument1, Object argument2, Object argument3) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.trace, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void trace(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.trace, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void trace(String format, Supplier<?> argument) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.trace, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void trace(String format, Supplier<?> argument1, Supplier<?> argument2) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.trace, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void trace(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.trace, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void trace(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3, Supplier<?> argument4) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.trace, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void trace(String format, Object... arguments) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.trace, format, arguments);
+    }
+
+    /**
+     * Log a message at the TRACE level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void trace(String format, Supplier<?>... arguments) {
+        if (!isEnabled(LevelCache.TRACE, bridge.trace)) {
+            record(LevelCache.TRACE, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.trace, format, arguments);
+    }
+
+    /**
+     * Log a message at the DEBUG level.
+     *
+     * @param format the message string
+     */
+    public void debug(String format) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, 0, null, null, null, null, null);
+            return;
+        }
+        doLog(bridge.debug, format, 0, null, null, null, null);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void debug(String format, Object argument) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.debug, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void debug(String format, Object argument1, Object argument2) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.debug, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void debug(String format, Object argument1, Object argument2, Object argument3) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.debug, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void debug(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.debug, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void debug(String format, Supplier<?> argument) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.debug, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void debug(String format, Supplier<?> argument1, Supplier<?> argument2) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.debug, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void debug(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.debug, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void debug(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3, Supplier<?> argument4) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.debug, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void debug(String format, Object... arguments) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.debug, format, arguments);
+    }
+
+    /**
+     * Log a message at the DEBUG level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void debug(String format, Supplier<?>... arguments) {
+        if (!isEnabled(LevelCache.DEBUG, bridge.debug)) {
+            record(LevelCache.DEBUG, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.debug, format, arguments);
+    }
+
+    /**
+     * Log a message at the INFO level.
+     *
+     * @param format the message string
+     */
+    public void info(String format) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, 0, null, null, null, null, null);
+            return;
+        }
+        doLog(bridge.info, format, 0, null, null, null, null);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void info(String format, Object argument) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.info, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void info(String format, Object argument1, Object argument2) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.info, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void info(String format, Object argument1, Object argument2, Object argument3) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.info, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void info(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.info, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void info(String format, Supplier<?> argument) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.info, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void info(String format, Supplier<?> argument1, Supplier<?> argument2) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.info, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void info(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.info, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void info(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3, Supplier<?> argument4) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.info, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void info(String format, Object... arguments) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.info, format, arguments);
+    }
+
+    /**
+     * Log a message at the INFO level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void info(String format, Supplier<?>... arguments) {
+        if (!isEnabled(LevelCache.INFO, bridge.info)) {
+            record(LevelCache.INFO, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.info, format, arguments);
+    }
+
+    /**
+     * Log a message at the WARN level.
+     *
+     * @param format the message string
+     */
+    public void warn(String format) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, 0, null, null, null, null, null);
+            return;
+        }
+        doLog(bridge.warn, format, 0, null, null, null, null);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void warn(String format, Object argument) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.warn, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void warn(String format, Object argument1, Object argument2) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.warn, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void warn(String format, Object argument1, Object argument2, Object argument3) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.warn, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void warn(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.warn, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void warn(String format, Supplier<?> argument) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.warn, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void warn(String format, Supplier<?> argument1, Supplier<?> argument2) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.warn, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void warn(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.warn, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void warn(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3, Supplier<?> argument4) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.warn, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void warn(String format, Object... arguments) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.warn, format, arguments);
+    }
+
+    /**
+     * Log a message at the WARN level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void warn(String format, Supplier<?>... arguments) {
+        if (!isEnabled(LevelCache.WARN, bridge.warn)) {
+            record(LevelCache.WARN, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.warn, format, arguments);
+    }
+
+    /**
+     * Log a message at the ERROR level.
+     *
+     * @param format the message string
+     */
+    public void error(String format) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, 0, null, null, null, null, null);
+            return;
+        }
+        doLog(bridge.error, format, 0, null, null, null, null);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void error(String format, Object argument) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.error, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void error(String format, Object argument1, Object argument2) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.error, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void error(String format, Object argument1, Object argument2, Object argument3) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.error, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void error(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.error, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and argument.
+     *
+     * @param format    the format string
+     * @param argument  the argument
+     */
+    public void error(String format, Supplier<?> argument) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, 1, argument, null, null, null, null);
+            return;
+        }
+        doLog(bridge.error, format, 1, argument, null, null, null);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     */
+    public void error(String format, Supplier<?> argument1, Supplier<?> argument2) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, 2, argument1, argument2, null, null, null);
+            return;
+        }
+        doLog(bridge.error, format, 2, argument1, argument2, null, null);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     */
+    public void error(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, 3, argument1, argument2, argument3, null, null);
+            return;
+        }
+        doLog(bridge.error, format, 3, argument1, argument2, argument3, null);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param argument1 the first argument
+     * @param argument2 the second argument
+     * @param argument3 the third argument
+     * @param argument4 the fourth argument
+     */
+    public void error(String format, Supplier<?> argument1, Supplier<?> argument2, Supplier<?> argument3, Supplier<?> argument4) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, 4, argument1, argument2, argument3, argument4, null);
+            return;
+        }
+        doLog(bridge.error, format, 4, argument1, argument2, argument3, argument4);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void error(String format, Object... arguments) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.error, format, arguments);
+    }
+
+    /**
+     * Log a message at the ERROR level according to the specified format
+     * and arguments.
+     *
+     * @param format    the format string
+     * @param arguments the arguments
+     */
+    public void error(String format, Supplier<?>... arguments) {
+        if (!isEnabled(LevelCache.ERROR, bridge.error)) {
+            record(LevelCache.ERROR, format, -1, null, null, null, null, arguments);
+            return;
+        }
+        doLog(bridge.error, format, arguments);
+    }
+
+
+    public enum SerializableType {
+        /**
+         * fastjson 序列化
+         */
+        FASTJSON,
+        /**
+         * 内置的无依赖 JSON 序列化
+         */
+        JSON,
+        /**
+         * 参数原样传给日志后端
+         */
+        RAW;
+
+        /**
+         * 对应的参数序列化
+         *
+         * @return ArgumentSerializer, RAW 返回 null
+         */
+        ArgumentSerializer getSerializer() {
+            switch (this) {
+                case FASTJSON:
+                    return FastjsonSerializer.getInstance();
+                case JSON:
+                    return JsonArgumentSerializer.getInstance();
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 异步分发线程在缓冲区为空时的等待策略
+     */
+    public enum WaitStrategy {
+        /**
+         * 忙等, 延迟最低, 独占一个 CPU
+         */
+        BUSY_SPIN,
+        /**
+         * 让出 CPU
+         */
+        YIELDING,
+        /**
+         * 先让出 CPU, 持续空闲后短暂休眠
+         */
+        SLEEPING,
+        /**
+         * 挂起直到有新的日志, CPU 占用最低
+         */
+        BLOCKING
+    }
+
+    /**
+     * 异步缓冲区满时的策略
+     */
+    public enum FullPolicy {
+        /**
+         * 丢弃日志
+         */
+        DROP,
+        /**
+         * 阻塞调用线程直到有空位
+         */
+        BLOCK
     }
 
     /**
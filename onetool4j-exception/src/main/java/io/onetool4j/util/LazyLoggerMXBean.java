@@ -0,0 +1,70 @@
+package io.onetool4j.util;
+
+/**
+ * 2024/3/25 10:00
+ * LazyLogger 运行指标, 通过 LazyLogger#metrics 开启后注册到 JMX
+ * <p>
+ * 单个日志名称注册为 io.onetool4j:type=LazyLogger,name="日志名称", 同名的 LazyLogger 共用,
+ * 所有开启指标的 LazyLogger 的合计注册为 io.onetool4j:type=LazyLogger,name=all
+ *
+ * @author yinbingqiu
+ */
+public interface LazyLoggerMXBean {
+
+    long getTraceCount();
+
+    long getDebugCount();
+
+    long getInfoCount();
+
+    long getWarnCount();
+
+    long getErrorCount();
+
+    /**
+     * 级别未开启的日志数
+     *
+     * @return 数量
+     */
+    long getDisabledCount();
+
+    /**
+     * 被采样、限流、重复聚合或 LogConfig 丢弃的日志数
+     *
+     * @return 数量
+     */
+    long getDroppedCount();
+
+    /**
+     * 执行参数 Supplier 的耗时
+     *
+     * @return 纳秒
+     */
+    long getSupplierNanos();
+
+    /**
+     * 参数序列化(json、fastjson 等)的耗时, 延迟序列化时在日志后端格式化时计入
+     *
+     * @return 纳秒
+     */
+    long getSerializeNanos();
+
+    /**
+     * 异常摘要渲染的耗时
+     *
+     * @return 纳秒
+     */
+    long getSummaryNanos();
+
+    /**
+     * 参数序列化与异常摘要产生的字符数
+     *
+     * @return 字符数
+     */
+    long getRenderedChars();
+
+    /**
+     * 清零
+     */
+    void reset();
+}
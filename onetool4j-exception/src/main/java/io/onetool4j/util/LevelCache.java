@@ -0,0 +1,377 @@
+package io.onetool4j.util;
+
+import java.beans.PropertyChangeListener;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 2024/3/5 10:45
+ * LazyLogger 级别缓存的刷新
+ * <p>
+ * LazyLogger 把 5 个级别是否开启缓存在一个 volatile 位掩码里, 关闭的级别只需要一次 volatile 读.
+ * log4j2(log4j-core) 通过 LoggerContext 的 PropertyChangeListener, logback 通过 LoggerContextListener 在重新配置时刷新,
+ * 其它后端由后台线程按 lazylogger.level.refresh.millis(默认 1000 毫秒) 定时刷新.
+ * <p>
+ * 级别缓存默认关闭, 通过 lazylogger.level.cache.enabled=true 或 LazyLogger#levelCacheEnable 开启:
+ * logback TurboFilter、log4j2 上下文级别的 Filter(如 DynamicThresholdFilter)按 MDC 等线程上下文判断级别, 缓存后结果不正确.
+ * 开启后如果日志上下文配置了这类过滤器, 不缓存, 每次调用日志后端判断, 重新配置时重新检查.
+ * 日志上下文取自日志后端本身(通过 log4j-slf4j-impl 桥接的 slf4j Logger 取其包装的 log4j2 Logger 的上下文),
+ * 获取上下文与检查过滤器的方法句柄按类型只查找一次
+ *
+ * @author yinbingqiu
+ */
+final class LevelCache {
+
+    static final int TRACE = 1;
+    static final int DEBUG = 1 << 1;
+    static final int INFO = 1 << 2;
+    static final int WARN = 1 << 3;
+    static final int ERROR = 1 << 4;
+    /**
+     * 不缓存, 每次调用日志后端判断
+     */
+    static final int UNCACHED = -1;
+
+    /**
+     * 是否开启级别缓存
+     */
+    static final boolean enabled = Boolean.parseBoolean(System.getProperty("lazylogger.level.cache.enabled", "false"));
+    /**
+     * 定时刷新间隔
+     */
+    private static final long refresh_millis = Math.max(Long.parseLong(System.getProperty("lazylogger.level.refresh.millis", "1000")), 10);
+
+    /**
+     * 已注册的 LazyLogger, 值表示是否需要定时刷新
+     */
+    private static final Map<LazyLogger, Boolean> registry = new WeakHashMap<>();
+    /**
+     * 已注册监听器的日志上下文
+     */
+    private static final Set<Object> listened_contexts = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * 定时刷新线程, 第一次需要时创建
+     */
+    private static ScheduledExecutorService poller;
+    /**
+     * 日志实现类 -> 获取日志上下文的方法
+     */
+    private static final ClassValue<ContextGetter> context_getters = new ClassValue<ContextGetter>() {
+        @Override
+        protected ContextGetter computeValue(Class<?> type) {
+            return ContextGetter.of(type);
+        }
+    };
+    /**
+     * 日志上下文类型 -> 是否配置了过滤器, (Object)boolean, 不支持的上下文为 null
+     */
+    private static final ClassValue<Optional<MethodHandle>> filter_checks = new ClassValue<Optional<MethodHandle>>() {
+        @Override
+        protected Optional<MethodHandle> computeValue(Class<?> type) {
+            return Optional.ofNullable(findFilterCheck(type));
+        }
+    };
+
+    private LevelCache() {
+    }
+
+    /**
+     * 注册 LazyLogger, 后端支持监听时注册监听器, 否则加入定时刷新
+     *
+     * @param logger LazyLogger
+     * @param log    日志后端
+     */
+    static void register(LazyLogger logger, Object log) {
+        boolean polling = !listen(log);
+        synchronized (registry) {
+            registry.put(logger, polling);
+            if (polling && poller == null) {
+                poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "lazy-logger-level-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                poller.scheduleWithFixedDelay(() -> refresh(true), refresh_millis, refresh_millis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 刷新已注册的 LazyLogger
+     *
+     * @param pollingOnly 是否只刷新需要定时刷新的
+     */
+    static void refresh(boolean pollingOnly) {
+        List<LazyLogger> loggers;
+        synchronized (registry) {
+            loggers = new ArrayList<>(registry.size());
+            for (Map.Entry<LazyLogger, Boolean> entry : registry.entrySet()) {
+                if (!pollingOnly || entry.getValue()) {
+                    loggers.add(entry.getKey());
+                }
+            }
+        }
+        for (LazyLogger logger : loggers) {
+            try {
+                logger.refreshLevels();
+            } catch (Throwable throwable) {
+                // 单个日志后端异常不影响其它 LazyLogger
+                LogStatus.report("refresh levels failed", throwable);
+            }
+        }
+    }
+
+    /**
+     * 在日志后端的上下文上注册重新配置的监听器
+     *
+     * @param log 日志后端
+     * @return 是否注册成功
+     */
+    private static boolean listen(Object log) {
+        try {
+            Object context = contextOf(log);
+            if (context == null) {
+                return false;
+            }
+            if (typeNamed(context.getClass(), "ch.qos.logback.classic.LoggerContext") != null) {
+                return listenOnce(context, () -> listenLogback(context));
+            }
+            if (typeNamed(context.getClass(), "org.apache.logging.log4j.core.LoggerContext") != null) {
+                return listenOnce(context, () -> listenLog4j2(context));
+            }
+        } catch (Throwable throwable) {
+            // 无法注册监听器时退化为定时刷新
+        }
+        return false;
+    }
+
+    /**
+     * 日志上下文是否配置了与线程上下文相关的过滤器: logback TurboFilter, log4j2 LoggerContext 级别的 Filter
+     *
+     * @param log 日志后端
+     * @return 是否配置了过滤器, 无法判断时返回 false
+     */
+    static boolean contextFiltered(Object log) {
+        try {
+            Object context = contextOf(log);
+            if (context == null) {
+                return false;
+            }
+            MethodHandle filterCheck = filter_checks.get(context.getClass()).orElse(null);
+            return filterCheck != null && (boolean) filterCheck.invokeExact(context);
+        } catch (Throwable throwable) {
+            // 无法判断时按没有过滤器处理
+        }
+        return false;
+    }
+
+    /**
+     * 日志后端所属的日志上下文
+     *
+     * @param log 日志后端
+     * @return logback / log4j2 LoggerContext, 其它后端返回 null
+     */
+    private static Object contextOf(Object log) throws Throwable {
+        ContextGetter getter = context_getters.get(log.getClass());
+        if (getter.getter == null) {
+            return null;
+        }
+        Object value = getter.getter.invokeExact(log);
+        if (!getter.delegate) {
+            return value;
+        }
+        return value == null ? null : contextOf(value);
+    }
+
+    /**
+     * 查找检查日志上下文是否配置了过滤器的方法
+     *
+     * @param type 日志上下文类型
+     * @return (Object)boolean, 不支持的上下文返回 null
+     */
+    private static MethodHandle findFilterCheck(Class<?> type) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodType check = MethodType.methodType(boolean.class, Object.class);
+            Class<?> logback = typeNamed(type, "ch.qos.logback.classic.LoggerContext");
+            if (logback != null) {
+                MethodHandle turboFilters = lookup.unreflect(logback.getMethod("getTurboFilterList"))
+                        .asType(MethodType.methodType(Collection.class, Object.class));
+                MethodHandle notEmpty = MethodHandles.lookup().findStatic(LevelCache.class, "notEmpty", MethodType.methodType(boolean.class, Collection.class));
+                return MethodHandles.filterReturnValue(turboFilters, notEmpty).asType(check);
+            }
+            Class<?> log4j2 = typeNamed(type, "org.apache.logging.log4j.core.LoggerContext");
+            if (log4j2 != null) {
+                Method getConfiguration = log4j2.getMethod("getConfiguration");
+                MethodHandle configuration = lookup.unreflect(getConfiguration);
+                MethodHandle hasFilter = lookup.unreflect(getConfiguration.getReturnType().getMethod("hasFilter"));
+                return MethodHandles.filterReturnValue(configuration, hasFilter).asType(check);
+            }
+        } catch (Throwable throwable) {
+            // 无法判断时按没有过滤器处理
+        }
+        return null;
+    }
+
+    private static boolean notEmpty(Collection<?> collection) {
+        return !collection.isEmpty();
+    }
+
+    /**
+     * 每个上下文只注册一次监听器
+     *
+     * @param context  日志上下文
+     * @param listener 注册监听器
+     * @return 是否注册成功
+     */
+    private static boolean listenOnce(Object context, ListenerRegistration listener) throws Exception {
+        synchronized (listened_contexts) {
+            if (listened_contexts.contains(context)) {
+                return true;
+            }
+            listener.register();
+            listened_contexts.add(context);
+            return true;
+        }
+    }
+
+    /**
+     * log4j2 LoggerContext 在 setConfiguration / updateLoggers 时触发 PropertyChangeEvent
+     *
+     * @param context org.apache.logging.log4j.core.LoggerContext
+     */
+    private static void listenLog4j2(Object context) throws Exception {
+        PropertyChangeListener listener = event -> refresh(false);
+        Reflections.getMethod(context, "addPropertyChangeListener", PropertyChangeListener.class).invoke(context, listener);
+    }
+
+    /**
+     * logback LoggerContext 在级别变更、reset 时通知 LoggerContextListener
+     *
+     * @param context ch.qos.logback.classic.LoggerContext
+     */
+    private static void listenLogback(Object context) throws Exception {
+        Class<?> listenerType = Class.forName("ch.qos.logback.classic.spi.LoggerContextListener", false, context.getClass().getClassLoader());
+        Object listener = Proxy.newProxyInstance(listenerType.getClassLoader(), new Class<?>[]{listenerType}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isResetResistant":
+                    return true;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "LazyLoggerLevelListener";
+                default:
+                    refresh(false);
+                    return null;
+            }
+        });
+        Method addListener = Reflections.getMethod(context, "addListener", listenerType);
+        addListener.invoke(context, listener);
+    }
+
+    /**
+     * 类型本身、父类与接口中指定名称的类型, 不加载新的类
+     *
+     * @param type      类型
+     * @param className 类名
+     * @return 类型, 不存在时返回 null
+     */
+    private static Class<?> typeNamed(Class<?> type, String className) {
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            if (className.equals(clazz.getName())) {
+                return clazz;
+            }
+            for (Class<?> interfaceType : clazz.getInterfaces()) {
+                Class<?> found = typeNamed(interfaceType, className);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取日志上下文的方法
+     */
+    private static final class ContextGetter {
+        private static final ContextGetter none = new ContextGetter(null, false);
+
+        /**
+         * (Object)Object, 不支持的日志实现类为 null
+         */
+        final MethodHandle getter;
+        /**
+         * getter 返回的是被包装的日志后端, 而不是日志上下文
+         */
+        final boolean delegate;
+
+        private ContextGetter(MethodHandle getter, boolean delegate) {
+            this.getter = getter;
+            this.delegate = delegate;
+        }
+
+        /**
+         * 查找日志实现类获取日志上下文的方法:
+         * logback Logger#getLoggerContext, log4j-core Logger#getContext, log4j-slf4j-impl Log4jLogger 包装的 log4j2 Logger
+         *
+         * @param type 日志实现类
+         * @return ContextGetter
+         */
+        static ContextGetter of(Class<?> type) {
+            MethodType getterType = MethodType.methodType(Object.class, Object.class);
+            try {
+                Class<?> logback = typeNamed(type, "ch.qos.logback.classic.Logger");
+                if (logback != null) {
+                    return new ContextGetter(MethodHandles.publicLookup().unreflect(logback.getMethod("getLoggerContext")).asType(getterType), false);
+                }
+                Class<?> log4j2 = typeNamed(type, "org.apache.logging.log4j.core.Logger");
+                if (log4j2 != null) {
+                    return new ContextGetter(MethodHandles.publicLookup().unreflect(log4j2.getMethod("getContext")).asType(getterType), false);
+                }
+                Class<?> slf4j = typeNamed(type, "org.apache.logging.slf4j.Log4jLogger");
+                if (slf4j != null) {
+                    return log4jLoggerContext(slf4j, getterType);
+                }
+            } catch (Throwable throwable) {
+                // 无法获取日志上下文时按不支持处理
+            }
+            return none;
+        }
+
+        /**
+         * Log4jLogger 没有公开被包装的 log4j2 Logger, 读取字段; 字段不存在时退化为当前类加载器的 LogManager.getContext(false)
+         *
+         * @param slf4j      org.apache.logging.slf4j.Log4jLogger
+         * @param getterType (Object)Object
+         * @return ContextGetter
+         */
+        private static ContextGetter log4jLoggerContext(Class<?> slf4j, MethodType getterType) throws Throwable {
+            try {
+                Field field = slf4j.getDeclaredField("logger");
+                field.setAccessible(true);
+                return new ContextGetter(MethodHandles.lookup().unreflectGetter(field).asType(getterType), true);
+            } catch (NoSuchFieldException | RuntimeException e) {
+                Class<?> logManager = Class.forName("org.apache.logging.log4j.LogManager", false, slf4j.getClassLoader());
+                MethodHandle getContext = MethodHandles.publicLookup().unreflect(logManager.getMethod("getContext", boolean.class));
+                MethodHandle current = MethodHandles.insertArguments(getContext, 0, false).asType(MethodType.methodType(Object.class));
+                return new ContextGetter(MethodHandles.dropArguments(current, 0, Object.class), false);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ListenerRegistration {
+        void register() throws Exception;
+    }
+}
@@ -0,0 +1,28 @@
+package io.onetool4j.util;
+
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * 2024/2/28 11:20
+ * 支持 log4j2 StringBuilderFormattable 的延迟序列化参数, log4j2 格式化消息时直接追加到它的 StringBuilder
+ *
+ * @author yinbingqiu
+ */
+final class Log4j2DeferredArgument extends DeferredArgument implements StringBuilderFormattable {
+
+    /**
+     * 构造方法
+     *
+     * @param argument   参数
+     * @param serializer 序列化
+     * @param maxLength  最大长度
+     */
+    Log4j2DeferredArgument(Object argument, ArgumentSerializer serializer, int maxLength) {
+        super(argument, serializer, maxLength);
+    }
+
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        buffer.append(toString());
+    }
+}
@@ -0,0 +1,80 @@
+package io.onetool4j.util;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+
+/**
+ * 2024/3/18 10:40
+ * log4j2 适配器, 固定参数直接调用 log4j2 的固定参数方法, 不构造数组, 可以使用 log4j2 的可复用消息.
+ * 键值对写入 ThreadContext
+ *
+ * @author yinbingqiu
+ */
+final class Log4j2LoggerAdapter implements LoggerAdapter, ContextAware {
+
+    /**
+     * LoggerAdapter.Level 序号 -> log4j2 级别
+     */
+    private static final org.apache.logging.log4j.Level[] levels = {
+            org.apache.logging.log4j.Level.TRACE
+            , org.apache.logging.log4j.Level.DEBUG
+            , org.apache.logging.log4j.Level.INFO
+            , org.apache.logging.log4j.Level.WARN
+            , org.apache.logging.log4j.Level.ERROR};
+
+    @Override
+    public String loggerTypeName() {
+        return "org.apache.logging.log4j.Logger";
+    }
+
+    @Override
+    public boolean isEnabled(Object logger, Level level) {
+        return ((Logger) logger).isEnabled(levels[level.ordinal()]);
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format) {
+        ((Logger) logger).log(levels[level.ordinal()], format);
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object argument) {
+        ((Logger) logger).log(levels[level.ordinal()], format, argument);
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object argument1, Object argument2) {
+        ((Logger) logger).log(levels[level.ordinal()], format, argument1, argument2);
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object argument1, Object argument2, Object argument3) {
+        ((Logger) logger).log(levels[level.ordinal()], format, argument1, argument2, argument3);
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        ((Logger) logger).log(levels[level.ordinal()], format, argument1, argument2, argument3, argument4);
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object[] arguments) {
+        ((Logger) logger).log(levels[level.ordinal()], format, arguments);
+    }
+
+    @Override
+    public String putContext(String key, String value) {
+        String previous = ThreadContext.get(key);
+        ThreadContext.put(key, value);
+        return previous;
+    }
+
+    @Override
+    public void restoreContext(String key, String previous) {
+        if (previous == null) {
+            ThreadContext.remove(key);
+        } else {
+            ThreadContext.put(key, previous);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.onetool4j.util;
+
+import org.apache.logging.log4j.util.Constants;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * 2024/3/1 16:30
+ * log4j2 无垃圾模式下线程内复用的日志参数
+ * <p>
+ * log4j2 开启 ThreadLocal 时使用可复用消息, 在日志方法返回前已经把参数格式化到自己的 StringBuilder,
+ * 因此参数包装对象可以在同一线程内复用, 序列化直接写入 log4j2 提供的 StringBuilder, 稳态下不再分配
+ *
+ * @author yinbingqiu
+ */
+final class Log4j2ReusableArguments {
+
+    /**
+     * 复用的参数个数, 与 LazyLogger 的固定参数方法一致
+     */
+    static final int size = 4;
+    /**
+     * log4j2 是否开启了 ThreadLocal, 未开启时 log4j2 不使用可复用消息, 参数可能在日志方法返回后才格式化
+     */
+    private static final boolean enabled = Constants.ENABLE_THREADLOCALS;
+    /**
+     * 线程内的参数
+     */
+    private static final ThreadLocal<Log4j2ReusableArguments> holders = ThreadLocal.withInitial(Log4j2ReusableArguments::new);
+
+    /**
+     * 参数
+     */
+    private final Argument[] arguments = new Argument[size];
+    /**
+     * 是否正在使用, 序列化过程中再次打印日志时不能复用
+     */
+    private boolean inUse;
+
+    private Log4j2ReusableArguments() {
+        for (int i = 0; i < size; i++) {
+            arguments[i] = new Argument();
+        }
+    }
+
+    /**
+     * 获取当前线程的参数, 不可复用时返回 null
+     *
+     * @return Log4j2ReusableArguments
+     */
+    static Log4j2ReusableArguments acquire() {
+        if (!enabled) {
+            return null;
+        }
+        Log4j2ReusableArguments holder = holders.get();
+        if (holder.inUse) {
+            return null;
+        }
+        holder.inUse = true;
+        return holder;
+    }
+
+    /**
+     * 包装参数
+     *
+     * @param index      参数位置
+     * @param argument   参数
+     * @param serializer 序列化
+     * @param maxLength  最大长度
+     * @return 包装后的参数
+     */
+    Object wrap(int index, Object argument, ArgumentSerializer serializer, int maxLength) {
+        Argument reusable = arguments[index];
+        reusable.argument = argument;
+        reusable.serializer = serializer;
+        reusable.maxLength = maxLength;
+        return reusable;
+    }
+
+    /**
+     * 日志方法返回后释放
+     */
+    void release() {
+        for (Argument argument : arguments) {
+            argument.argument = null;
+        }
+        inUse = false;
+    }
+
+    /**
+     * 可复用的参数
+     */
+    private static final class Argument implements StringBuilderFormattable {
+        private Object argument;
+        private ArgumentSerializer serializer;
+        private int maxLength;
+
+        @Override
+        public void formatTo(StringBuilder buffer) {
+            serializer.serializeTo(argument, buffer, maxLength);
+        }
+
+        @Override
+        public String toString() {
+            return serializer.serialize(argument, maxLength);
+        }
+    }
+}
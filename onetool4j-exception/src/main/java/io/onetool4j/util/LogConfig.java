@@ -0,0 +1,488 @@
+package io.onetool4j.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 2024/3/22 10:00
+ * LazyLogger 运行时配置, 支持监听配置文件热加载
+ * <p>
+ * 配置为 properties 格式, 每次加载生成不可变的 Snapshot, 通过 volatile 引用发布, 输出日志时只读一次 volatile, 没有锁.
+ * LazyLogger 按名称解析出自己的配置并缓存, Snapshot 变化时重新解析. 支持的配置:
+ * <pre>
+ * # 全局
+ * level=INFO
+ * sampled=1
+ * serializer=json
+ * summary.count.threshold=10
+ * summary.seconds.threshold=60
+ * # 按日志名称, 前缀匹配, 最长的前缀优先, 未配置的项继承上一级
+ * logger.com.example.level=WARN
+ * logger.com.example.order.sampled=0.1
+ * logger.com.example.order.serializer=raw
+ * logger.com.example.order.summary.count.threshold=100
+ * # 按格式模板, 空格、等号与冒号需要按 properties 规则转义
+ * template.cache\ miss\ key\={}.level=DEBUG
+ * template.cache\ miss\ key\={}.sampled=0.01
+ * </pre>
+ * level 是在日志后端级别之上的最低级别(OFF 关闭全部), 只能关闭日志, 不能开启日志后端未开启的级别:
+ * 日志后端在自己的输出方法中还会再判断一次级别, 开启需要修改后端的级别(logback / log4j2 的配置), 不在这里提供;
+ * sampled 与 serializer 覆盖代码中 sampled / rateLimited / serializer 的设置, serializer=raw 表示不序列化;
+ * summary 覆盖代码中 summary 与系统属性的阈值.
+ * <p>
+ * 系统属性 lazylogger.config.file 指定的文件在第一次输出日志时加载并开始监听, 也可以调用 watch 监听其它文件.
+ * 同一时间只监听一个文件, 再次调用 watch 时停止之前的监听, unwatch 停止监听.
+ * 配置有错误时保留之前的配置
+ *
+ * @author yinbingqiu
+ */
+public final class LogConfig {
+
+    /**
+     * 不序列化
+     */
+    static final String RAW = "raw";
+    /**
+     * 所有级别位
+     */
+    static final int ALL_LEVELS = LevelCache.TRACE | LevelCache.DEBUG | LevelCache.INFO | LevelCache.WARN | LevelCache.ERROR;
+    /**
+     * 文件修改后等待写入完成的时间
+     */
+    private static final long settle_millis = 100;
+
+    private static final String LOGGER_PREFIX = "logger.";
+    private static final String TEMPLATE_PREFIX = "template.";
+    private static final String LEVEL = "level";
+    private static final String SAMPLED = "sampled";
+    private static final String SERIALIZER = "serializer";
+    private static final String SUMMARY_COUNT = "summary.count.threshold";
+    private static final String SUMMARY_SECONDS = "summary.seconds.threshold";
+    private static final String[] logger_keys = {SUMMARY_COUNT, SUMMARY_SECONDS, SERIALIZER, SAMPLED, LEVEL};
+
+    /**
+     * 当前配置
+     */
+    static volatile Snapshot current = Snapshot.empty;
+    /**
+     * 当前的监听, 没有时为 null
+     */
+    private static Watcher watching;
+
+    static {
+        String file = System.getProperty("lazylogger.config.file");
+        if (file != null && !file.isEmpty()) {
+            try {
+                watch(Paths.get(file));
+            } catch (IOException | RuntimeException e) {
+                LogStatus.report("load config failed", e);
+            }
+        }
+    }
+
+    private LogConfig() {
+    }
+
+    /**
+     * 加载配置并替换当前配置
+     *
+     * @param properties 配置
+     * @throws IllegalArgumentException 配置有错误, 当前配置不变
+     */
+    public static void load(Properties properties) {
+        publish(Snapshot.parse(properties));
+    }
+
+    /**
+     * 加载配置文件并替换当前配置
+     *
+     * @param file 配置文件
+     * @throws IOException              读取失败, 当前配置不变
+     * @throws IllegalArgumentException 配置有错误, 当前配置不变
+     */
+    public static void load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        load(properties);
+    }
+
+    /**
+     * 加载配置文件, 并由后台线程监听文件修改, 修改后重新加载. 之前的监听会被停止
+     *
+     * @param file 配置文件
+     * @throws IOException 读取失败或无法监听, 之前的监听不变
+     */
+    public static synchronized void watch(Path file) throws IOException {
+        Path path = file.toAbsolutePath();
+        load(path);
+        WatchService service = path.getFileSystem().newWatchService();
+        try {
+            path.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | RuntimeException e) {
+            service.close();
+            throw e;
+        }
+        unwatch();
+        Watcher watcher = new Watcher(service, path);
+        watching = watcher;
+        watcher.thread.start();
+    }
+
+    /**
+     * 停止监听配置文件, 当前配置不变
+     */
+    public static synchronized void unwatch() {
+        if (watching != null) {
+            watching.close();
+            watching = null;
+        }
+    }
+
+    /**
+     * 停止监听并清空配置
+     */
+    public static synchronized void reset() {
+        unwatch();
+        publish(Snapshot.empty);
+    }
+
+    /**
+     * 发布新配置, 已缓存级别的 LazyLogger 重新读取级别
+     *
+     * @param snapshot 新配置
+     */
+    private static void publish(Snapshot snapshot) {
+        current = snapshot;
+        LevelCache.refresh(false);
+    }
+
+    /**
+     * 监听文件修改的后台线程
+     */
+    private static final class Watcher {
+        private final WatchService service;
+        private final Path file;
+        private final Thread thread;
+        private volatile boolean closed;
+
+        Watcher(WatchService service, Path file) {
+            this.service = service;
+            this.file = file;
+            this.thread = new Thread(this::watchLoop, "lazy-logger-config-watch");
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * 停止监听, 后台线程在 take 或等待写入完成时退出
+         */
+        void close() {
+            closed = true;
+            thread.interrupt();
+            try {
+                service.close();
+            } catch (IOException e) {
+                // 线程已中断, 关闭失败不影响退出
+            }
+        }
+
+        /**
+         * 监听文件修改
+         */
+        private void watchLoop() {
+            Path name = file.getFileName();
+            while (!closed) {
+                WatchKey key;
+                try {
+                    key = service.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= name.equals(event.context()) || event.kind() == StandardWatchEventKinds.OVERFLOW;
+                }
+                key.reset();
+                if (!changed) {
+                    continue;
+                }
+                try {
+                    // 编辑器保存时可能有多次修改事件, 等待写入完成后只加载一次
+                    TimeUnit.MILLISECONDS.sleep(settle_millis);
+                    for (WatchKey pending = service.poll(); pending != null; pending = service.poll()) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reload();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                } catch (NoSuchFileException e) {
+                    // 文件被删除或正在替换, 保留之前的配置
+                } catch (Exception e) {
+                    LogStatus.report("reload config failed, keep previous config", e);
+                }
+            }
+        }
+
+        /**
+         * 重新加载, 已停止的监听不再发布配置
+         */
+        private void reload() throws IOException {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            Snapshot snapshot = Snapshot.parse(properties);
+            synchronized (LogConfig.class) {
+                if (watching == this) {
+                    publish(snapshot);
+                }
+            }
+        }
+    }
+
+    /**
+     * 级别对应的级别位, OFF 为 0
+     *
+     * @param level 级别名称
+     * @return 不低于该级别的级别位
+     */
+    private static int levelMask(String level) {
+        if ("OFF".equalsIgnoreCase(level)) {
+            return 0;
+        }
+        int ordinal = LoggerAdapter.Level.valueOf(level.toUpperCase(Locale.ROOT)).ordinal();
+        return ALL_LEVELS & ~((1 << ordinal) - 1);
+    }
+
+    /**
+     * 一组配置项, 未配置的项为 null
+     */
+    private static final class Rule {
+        Integer levelMask;
+        Double sampled;
+        String serializer;
+        Integer countThreshold;
+        Integer durationThreshold;
+
+        void set(String key, String value) {
+            switch (key) {
+                case LEVEL:
+                    levelMask = levelMask(value);
+                    break;
+                case SAMPLED:
+                    // 提前校验
+                    LogThrottle.sampled(Double.parseDouble(value));
+                    sampled = Double.parseDouble(value);
+                    break;
+                case SERIALIZER:
+                    if (!RAW.equals(value)) {
+                        ArgumentSerializers.get(value);
+                    }
+                    serializer = value;
+                    break;
+                case SUMMARY_COUNT:
+                    countThreshold = Math.min(Integer.parseInt(value), 10000);
+                    break;
+                default:
+                    durationThreshold = (int) Math.min(TimeUnit.SECONDS.toMillis(Integer.parseInt(value)), TimeUnit.DAYS.toMillis(1));
+                    break;
+            }
+        }
+
+        void overlay(Rule rule) {
+            if (rule.levelMask != null) {
+                levelMask = rule.levelMask;
+            }
+            if (rule.sampled != null) {
+                sampled = rule.sampled;
+            }
+            if (rule.serializer != null) {
+                serializer = rule.serializer;
+            }
+            if (rule.countThreshold != null) {
+                countThreshold = rule.countThreshold;
+            }
+            if (rule.durationThreshold != null) {
+                durationThreshold = rule.durationThreshold;
+            }
+        }
+    }
+
+    /**
+     * 不可变的配置
+     */
+    static final class Snapshot {
+        static final Snapshot empty = new Snapshot(new Rule(), Collections.emptyMap(), Collections.emptyMap());
+
+        /**
+         * 全局配置
+         */
+        private final Rule root;
+        /**
+         * 日志名称前缀 -> 配置
+         */
+        private final Map<String, Rule> loggers;
+        /**
+         * 格式模板 -> 配置, 没有时为 null, 输出日志时据此跳过查找
+         */
+        final Map<String, Template> templates;
+
+        private Snapshot(Rule root, Map<String, Rule> loggers, Map<String, Template> templates) {
+            this.root = root;
+            this.loggers = loggers;
+            this.templates = templates.isEmpty() ? null : templates;
+        }
+
+        /**
+         * 解析配置
+         *
+         * @param properties 配置
+         * @return Snapshot
+         */
+        static Snapshot parse(Properties properties) {
+            Rule root = new Rule();
+            Map<String, Rule> loggers = new HashMap<>();
+            Map<String, Rule> templates = new HashMap<>();
+            for (String name : properties.stringPropertyNames()) {
+                String value = properties.getProperty(name).trim();
+                try {
+                    if (name.startsWith(TEMPLATE_PREFIX)) {
+                        String key = name.endsWith("." + LEVEL) ? LEVEL : name.endsWith("." + SAMPLED) ? SAMPLED : null;
+                        if (key == null) {
+                            throw new IllegalArgumentException("格式模板只支持 level 与 sampled");
+                        }
+                        String template = name.substring(TEMPLATE_PREFIX.length(), name.length() - key.length() - 1);
+                        templates.computeIfAbsent(template, k -> new Rule()).set(key, value);
+                    } else if (name.startsWith(LOGGER_PREFIX)) {
+                        String key = suffixOf(name);
+                        String logger = name.substring(LOGGER_PREFIX.length(), name.length() - key.length() - 1);
+                        loggers.computeIfAbsent(logger, k -> new Rule()).set(key, value);
+                    } else if (Arrays.asList(logger_keys).contains(name)) {
+                        root.set(name, value);
+                    }
+                    // 其它配置项忽略, 同一个文件可以放其它配置
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("lazy-logger 配置错误 " + name + "=" + value + ": " + e.getMessage(), e);
+                }
+            }
+
+            Map<String, Template> compiled = new HashMap<>();
+            for (Map.Entry<String, Rule> entry : templates.entrySet()) {
+                Rule rule = entry.getValue();
+                compiled.put(entry.getKey(), new Template(rule.levelMask == null ? ALL_LEVELS : rule.levelMask
+                        , rule.sampled == null ? null : LogThrottle.sampled(rule.sampled)));
+            }
+            return new Snapshot(root, loggers, compiled);
+        }
+
+        private static String suffixOf(String name) {
+            for (String key : logger_keys) {
+                if (name.endsWith("." + key) && name.length() > LOGGER_PREFIX.length() + key.length() + 1) {
+                    return key;
+                }
+            }
+            throw new IllegalArgumentException("未知的配置项");
+        }
+
+        /**
+         * 解析日志的配置, 前缀从短到长依次覆盖
+         *
+         * @param name 日志名称, 可以为 null
+         * @return Settings
+         */
+        Settings resolve(String name) {
+            Rule rule = new Rule();
+            rule.overlay(root);
+            if (name != null && !loggers.isEmpty()) {
+                List<String> prefixes = new ArrayList<>();
+                for (String prefix : loggers.keySet()) {
+                    if (name.equals(prefix) || name.startsWith(prefix + ".")) {
+                        prefixes.add(prefix);
+                    }
+                }
+                prefixes.sort(Comparator.comparingInt(String::length));
+                for (String prefix : prefixes) {
+                    rule.overlay(loggers.get(prefix));
+                }
+            }
+            return new Settings(this, rule);
+        }
+
+        /**
+         * 是否有按日志名称的配置, 没有时不需要获取日志名称
+         */
+        boolean hasLoggerRules() {
+            return !loggers.isEmpty();
+        }
+    }
+
+    /**
+     * 格式模板的配置
+     */
+    static final class Template {
+        /**
+         * 允许的级别位
+         */
+        final int levelMask;
+        /**
+         * 采样, 为 null 时不采样
+         */
+        final LogThrottle throttle;
+
+        Template(int levelMask, LogThrottle throttle) {
+            this.levelMask = levelMask;
+            this.throttle = throttle;
+        }
+    }
+
+    /**
+     * 单个 LazyLogger 解析后的配置
+     */
+    static final class Settings {
+        static final Settings none = new Settings(Snapshot.empty, new Rule());
+
+        /**
+         * 解析时的配置
+         */
+        final Snapshot snapshot;
+        /**
+         * 允许的级别位
+         */
+        final int levelMask;
+        /**
+         * 采样, 为 null 时使用代码中的设置
+         */
+        final LogThrottle throttle;
+        /**
+         * 是否配置了序列化
+         */
+        final boolean serializerConfigured;
+        /**
+         * 配置的序列化, raw 时为 null
+         */
+        final ArgumentSerializer serializer;
+        /**
+         * 异常摘要次数阈值, 小于 0 时使用代码中的设置
+         */
+        final int countThreshold;
+        /**
+         * 异常摘要时间阈值, 毫秒, 小于 0 时使用代码中的设置
+         */
+        final int durationThreshold;
+
+        private Settings(Snapshot snapshot, Rule rule) {
+            this.snapshot = snapshot;
+            this.levelMask = rule.levelMask == null ? ALL_LEVELS : rule.levelMask;
+            this.throttle = rule.sampled == null ? null : LogThrottle.sampled(rule.sampled);
+            this.serializerConfigured = rule.serializer != null;
+            this.serializer = rule.serializer == null || RAW.equals(rule.serializer) ? null : ArgumentSerializers.get(rule.serializer);
+            this.countThreshold = rule.countThreshold == null ? -1 : rule.countThreshold;
+            this.durationThreshold = rule.durationThreshold == null ? -1 : rule.durationThreshold;
+        }
+    }
+}
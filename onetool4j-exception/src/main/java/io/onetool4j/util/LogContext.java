@@ -0,0 +1,286 @@
+package io.onetool4j.util;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * 2024/3/20 10:00
+ * LazyLogger 日志上下文, 如 traceId
+ * <p>
+ * 上下文是不可变的 Snapshot, 修改时复制生成新的 Snapshot(上下文通常只有几个键, 复制比树结构更省内存、遍历更快),
+ * 因此 capture 只是读取当前引用, 跨线程传递不复制. 使用普通 ThreadLocal, 不使用 InheritableThreadLocal,
+ * 新线程不继承也不复制上下文, 通过 wrap 包装的 Runnable / Callable / Executor 显式传递, 线程池和大量短生命周期线程都没有额外开销.
+ * <p>
+ * 上下文只在日志真正输出时渲染: 日志后端支持上下文时(slf4j MDC、log4j2 ThreadContext)输出期间写入上下文,
+ * 否则以 key=value 追加到消息后面. 值可以是 Supplier, 输出时才执行. 异步模式下发布日志时捕获上下文, 分发线程输出时使用
+ * <p>
+ * try (LogContext.Scope ignored = LogContext.put("traceId", traceId)) {
+ * log.info("done");
+ * }
+ *
+ * @author yinbingqiu
+ */
+public final class LogContext {
+
+    /**
+     * 当前线程的上下文
+     */
+    private static final ThreadLocal<Snapshot> current = ThreadLocal.withInitial(() -> Snapshot.empty);
+
+    private LogContext() {
+    }
+
+    /**
+     * 在当前上下文中添加键值, Scope 关闭时恢复
+     *
+     * @param key   键
+     * @param value 值, 可以是 Supplier
+     * @return Scope
+     */
+    public static Scope put(String key, Object value) {
+        assert key != null;
+        Snapshot previous = current.get();
+        current.set(previous.with(key, value));
+        return new Scope(previous);
+    }
+
+    /**
+     * 从当前上下文中移除键, Scope 关闭时恢复
+     *
+     * @param key 键
+     * @return Scope
+     */
+    public static Scope remove(String key) {
+        Snapshot previous = current.get();
+        current.set(previous.without(key));
+        return new Scope(previous);
+    }
+
+    /**
+     * 获取当前上下文中的值
+     *
+     * @param key 键
+     * @return 值, 不存在时返回 null
+     */
+    public static Object get(String key) {
+        return current.get().get(key);
+    }
+
+    /**
+     * 捕获当前上下文, 只读取引用
+     *
+     * @return Snapshot
+     */
+    public static Snapshot capture() {
+        return current.get();
+    }
+
+    /**
+     * 把捕获的上下文设置为当前上下文, Scope 关闭时恢复
+     *
+     * @param snapshot 捕获的上下文
+     * @return Scope
+     */
+    public static Scope attach(Snapshot snapshot) {
+        Snapshot previous = current.get();
+        current.set(snapshot == null ? Snapshot.empty : snapshot);
+        return new Scope(previous);
+    }
+
+    /**
+     * 清空当前线程的上下文, 线程池中可以在每个任务开始时调用
+     */
+    public static void clear() {
+        current.set(Snapshot.empty);
+    }
+
+    /**
+     * 包装 Runnable, 执行时使用包装时的上下文
+     *
+     * @param runnable Runnable
+     * @return Runnable
+     */
+    public static Runnable wrap(Runnable runnable) {
+        assert runnable != null;
+        Snapshot snapshot = current.get();
+        return () -> {
+            try (Scope ignored = attach(snapshot)) {
+                runnable.run();
+            }
+        };
+    }
+
+    /**
+     * 包装 Callable, 执行时使用包装时的上下文
+     *
+     * @param callable Callable
+     * @param <T>      返回值类型
+     * @return Callable
+     */
+    public static <T> Callable<T> wrap(Callable<T> callable) {
+        assert callable != null;
+        Snapshot snapshot = current.get();
+        return () -> {
+            try (Scope ignored = attach(snapshot)) {
+                return callable.call();
+            }
+        };
+    }
+
+    /**
+     * 包装 Executor, 提交任务时捕获上下文
+     *
+     * @param executor Executor
+     * @return Executor
+     */
+    public static Executor wrap(Executor executor) {
+        assert executor != null;
+        return command -> executor.execute(wrap(command));
+    }
+
+    /**
+     * 当前上下文, 为空时返回 null, 供输出日志时快速判断
+     *
+     * @return Snapshot
+     */
+    static Snapshot currentOrNull() {
+        Snapshot snapshot = current.get();
+        return snapshot.size == 0 ? null : snapshot;
+    }
+
+    /**
+     * 不可变的上下文, 保持添加顺序
+     */
+    public static final class Snapshot {
+        private static final Snapshot empty = new Snapshot(new String[0], new Object[0]);
+
+        private final String[] keys;
+        private final Object[] values;
+        private final int size;
+
+        private Snapshot(String[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+            this.size = keys.length;
+        }
+
+        /**
+         * 添加或替换键值
+         *
+         * @param key   键
+         * @param value 值
+         * @return 新的 Snapshot
+         */
+        public Snapshot with(String key, Object value) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (values[index] == value) {
+                    return this;
+                }
+                Object[] newValues = values.clone();
+                newValues[index] = value;
+                return new Snapshot(keys, newValues);
+            }
+            String[] newKeys = Arrays.copyOf(keys, size + 1);
+            Object[] newValues = Arrays.copyOf(values, size + 1);
+            newKeys[size] = key;
+            newValues[size] = value;
+            return new Snapshot(newKeys, newValues);
+        }
+
+        /**
+         * 移除键
+         *
+         * @param key 键
+         * @return 新的 Snapshot
+         */
+        public Snapshot without(String key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (size == 1) {
+                return empty;
+            }
+            String[] newKeys = new String[size - 1];
+            Object[] newValues = new Object[size - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(values, 0, newValues, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, size - index - 1);
+            System.arraycopy(values, index + 1, newValues, index, size - index - 1);
+            return new Snapshot(newKeys, newValues);
+        }
+
+        /**
+         * 获取值
+         *
+         * @param key 键
+         * @return 值, 不存在时返回 null
+         */
+        public Object get(String key) {
+            int index = indexOf(key);
+            return index < 0 ? null : values[index];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * 按添加顺序遍历
+         *
+         * @param action 键值处理
+         */
+        public void forEach(BiConsumer<String, Object> action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+
+        String keyAt(int index) {
+            return keys[index];
+        }
+
+        /**
+         * 键, 不要修改
+         */
+        String[] keys() {
+            return keys;
+        }
+
+        Object valueAt(int index) {
+            return values[index];
+        }
+
+        private int indexOf(String key) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * 关闭时恢复之前的上下文
+     */
+    public static final class Scope implements AutoCloseable {
+        private final Snapshot previous;
+
+        private Scope(Snapshot previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            current.set(previous);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package io.onetool4j.util;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 2024/3/19 10:00
+ * 键值对日志事件, 通过 LazyLogger#atInfo 等方法获取
+ * <p>
+ * log.atInfo().kv("orderId", id).kv("latencyMs", ms).log("done")
+ * <p>
+ * 构造器在线程内复用, log 之后归还(包括输出抛出异常时), 不要保存或跨线程使用. 级别未开启时返回共享的空构造器, 所有调用直接返回.
+ * 获取后没有调用 log 的构造器(如计算键值对时抛出异常)超过 lazylogger.kv.stale.millis(默认 1000 毫秒)后视为废弃, 由之后的获取回收.
+ * 基本类型的键值对不装箱, Supplier 值在级别开启且输出时才执行.
+ * 日志后端支持上下文时(slf4j MDC、log4j2 ThreadContext)键值对在输出期间写入上下文, 否则追加到消息后面: done orderId=1 latencyMs=20
+ *
+ * @author yinbingqiu
+ */
+public final class LogEventBuilder {
+
+    static final byte TYPE_OBJECT = 0;
+    static final byte TYPE_LONG = 1;
+    static final byte TYPE_DOUBLE = 2;
+    static final byte TYPE_BOOLEAN = 3;
+
+    /**
+     * 级别未开启时共享的空构造器
+     */
+    static final LogEventBuilder noop = new LogEventBuilder();
+    /**
+     * 线程内复用的构造器, 输出过程中再次使用时(如 Supplier 内打印日志)取下一个
+     */
+    private static final ThreadLocal<LogEventBuilder[]> pools = ThreadLocal.withInitial(() -> new LogEventBuilder[4]);
+    /**
+     * 获取后超过该时长仍未输出的构造器视为废弃
+     */
+    private static final long stale_nanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(System.getProperty("lazylogger.kv.stale.millis", "1000")));
+
+    /**
+     * 为 null 表示空构造器
+     */
+    private LazyLogger logger;
+    private LoggerBridge.LevelBridge level;
+    private boolean inUse;
+    /**
+     * 是否正在输出, 输出过程中 Supplier 打印的日志可能嵌套获取构造器
+     */
+    private boolean emitting;
+    /**
+     * 获取时间, System.nanoTime
+     */
+    private long acquiredNanos;
+    String[] keys = new String[8];
+    byte[] types = new byte[8];
+    long[] primitives = new long[8];
+    Object[] objects = new Object[8];
+    /**
+     * 写入上下文前的原值, 见 ContextAware#putContext
+     */
+    String[] previous = new String[8];
+    int size;
+
+    private LogEventBuilder() {
+    }
+
+    /**
+     * 获取当前线程可用的构造器
+     *
+     * @param logger LazyLogger
+     * @param level  级别桥接
+     * @return LogEventBuilder
+     */
+    static LogEventBuilder acquire(LazyLogger logger, LoggerBridge.LevelBridge level) {
+        LogEventBuilder[] pool = pools.get();
+        LogEventBuilder builder = null;
+        for (int i = 0; i < pool.length; i++) {
+            if (pool[i] == null) {
+                pool[i] = new LogEventBuilder();
+            }
+            if (!pool[i].inUse) {
+                builder = pool[i];
+                break;
+            }
+        }
+        long now = System.nanoTime();
+        if (builder == null) {
+            builder = reclaim(pool, now);
+        }
+        builder.inUse = true;
+        builder.acquiredNanos = now;
+        builder.logger = logger;
+        builder.level = level;
+        return builder;
+    }
+
+    /**
+     * 回收获取后一直没有输出的构造器, 没有废弃的构造器时(嵌套过深)新建一个, 不复用
+     *
+     * @param pool 线程内的构造器
+     * @param now  当前时间
+     * @return LogEventBuilder
+     */
+    private static LogEventBuilder reclaim(LogEventBuilder[] pool, long now) {
+        for (LogEventBuilder builder : pool) {
+            if (!builder.emitting && now - builder.acquiredNanos > stale_nanos) {
+                builder.release();
+                return builder;
+            }
+        }
+        return new LogEventBuilder();
+    }
+
+    /**
+     * 值为 null 或字符串时直接使用, 其它对象按 LazyLogger 的序列化方式序列化
+     *
+     * @param key   键
+     * @param value 值
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder kv(String key, Object value) {
+        if (logger != null) {
+            add(key, TYPE_OBJECT, 0).objects[size - 1] = value;
+        }
+        return this;
+    }
+
+    /**
+     * 值在输出时才执行
+     *
+     * @param key   键
+     * @param value 值
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder kv(String key, Supplier<?> value) {
+        if (logger != null) {
+            add(key, TYPE_OBJECT, 0).objects[size - 1] = value;
+        }
+        return this;
+    }
+
+    /**
+     * long 值, 不装箱
+     *
+     * @param key   键
+     * @param value 值
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder kv(String key, long value) {
+        if (logger != null) {
+            add(key, TYPE_LONG, value);
+        }
+        return this;
+    }
+
+    /**
+     * double 值, 不装箱
+     *
+     * @param key   键
+     * @param value 值
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder kv(String key, double value) {
+        if (logger != null) {
+            add(key, TYPE_DOUBLE, Double.doubleToRawLongBits(value));
+        }
+        return this;
+    }
+
+    /**
+     * boolean 值, 不装箱
+     *
+     * @param key   键
+     * @param value 值
+     * @return LogEventBuilder
+     */
+    public LogEventBuilder kv(String key, boolean value) {
+        if (logger != null) {
+            add(key, TYPE_BOOLEAN, value ? 1 : 0);
+        }
+        return this;
+    }
+
+    /**
+     * 输出日志并归还构造器
+     *
+     * @param message 消息
+     */
+    public void log(String message) {
+        if (logger != null) {
+            emit(message, null);
+        }
+    }
+
+    /**
+     * 输出日志并归还构造器
+     *
+     * @param format   格式
+     * @param argument 参数
+     */
+    public void log(String format, Object argument) {
+        if (logger != null) {
+            emit(format, new Object[]{argument});
+        }
+    }
+
+    /**
+     * 输出日志并归还构造器
+     *
+     * @param format    格式
+     * @param argument1 参数
+     * @param argument2 参数
+     */
+    public void log(String format, Object argument1, Object argument2) {
+        if (logger != null) {
+            emit(format, new Object[]{argument1, argument2});
+        }
+    }
+
+    /**
+     * 输出日志并归还构造器
+     *
+     * @param format    格式
+     * @param arguments 参数
+     */
+    public void log(String format, Object... arguments) {
+        if (logger != null) {
+            emit(format, arguments);
+        }
+    }
+
+    /**
+     * 第 index 个值的字符串形式
+     *
+     * @param index      位置
+     * @param serializer 非字符串对象的序列化, 可以为 null
+     * @return 字符串
+     */
+    String valueAt(int index, ArgumentSerializer serializer) {
+        switch (types[index]) {
+            case TYPE_LONG:
+                return Long.toString(primitives[index]);
+            case TYPE_DOUBLE:
+                return Double.toString(Double.longBitsToDouble(primitives[index]));
+            case TYPE_BOOLEAN:
+                return primitives[index] != 0 ? "true" : "false";
+            default:
+                Object value = objects[index];
+                if (value instanceof Supplier) {
+                    value = ((Supplier<?>) value).get();
+                }
+                if (value == null || value instanceof String) {
+                    return (String) value;
+                }
+                return serializer == null ? String.valueOf(value) : serializer.serialize(value, ArgumentLimits.max_argument_length);
+        }
+    }
+
+    private void emit(String format, Object[] arguments) {
+        emitting = true;
+        try {
+            logger.logKeyValues(level, format, arguments, this);
+        } finally {
+            release();
+        }
+    }
+
+    private LogEventBuilder add(String key, byte type, long primitive) {
+        if (size == keys.length) {
+            int length = size * 2;
+            keys = Arrays.copyOf(keys, length);
+            types = Arrays.copyOf(types, length);
+            primitives = Arrays.copyOf(primitives, length);
+            objects = Arrays.copyOf(objects, length);
+            previous = Arrays.copyOf(previous, length);
+        }
+        keys[size] = key;
+        types[size] = type;
+        primitives[size] = primitive;
+        size++;
+        return this;
+    }
+
+    /**
+     * 清空并释放引用
+     */
+    private void release() {
+        for (int i = 0; i < size; i++) {
+            keys[i] = null;
+            objects[i] = null;
+            previous[i] = null;
+        }
+        if (keys.length > 64) {
+            keys = new String[8];
+            types = new byte[8];
+            primitives = new long[8];
+            objects = new Object[8];
+            previous = new String[8];
+        }
+        size = 0;
+        logger = null;
+        level = null;
+        emitting = false;
+        inUse = false;
+    }
+}
@@ -0,0 +1,647 @@
+package io.onetool4j.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 2024/3/15 10:20
+ * 二进制日志, 写入内存映射的滚动文件, 不依赖任何日志框架
+ * <p>
+ * 方法与 slf4j Logger 一致, 可以直接作为 LazyLogger 的日志后端: LazyLogger.getLogger(LogJournal.open(directory, "app")).
+ * 日志不做文本格式化, 只写入格式编号、时间戳、线程编号与编码后的参数(int/long/double/boolean/字符串),
+ * 格式与线程名在每个文件中第一次出现时写入一次, 每个文件可以独立解码, 见 LogJournalDecoder
+ * <p>
+ * 文件格式(大端): 魔数 LZJ1, 之后是连续的记录, 记录类型为 0 表示结束
+ * TEMPLATE: 类型 1, int 编号, 字符串
+ * THREAD:   类型 2, long 线程编号, 字符串
+ * EVENT:    类型 3, int 格式编号, long 时间戳, long 线程编号, byte 级别, byte 参数个数, 参数(byte 类型 + 值)
+ * 字符串为 int 字节数 + UTF-8 字节
+ * <p>
+ * 滚动与关闭时刷盘后立即解除旧文件的内存映射, 不等待 GC, 否则旧文件的映射与文件句柄一直保留(Windows 下无法删除)
+ *
+ * @author yinbingqiu
+ */
+public final class LogJournal {
+
+    static final int MAGIC = 0x4C5A4A31;
+    static final byte RECORD_END = 0;
+    static final byte RECORD_TEMPLATE = 1;
+    static final byte RECORD_THREAD = 2;
+    static final byte RECORD_EVENT = 3;
+    static final byte ARG_NULL = 0;
+    static final byte ARG_INT = 1;
+    static final byte ARG_LONG = 2;
+    static final byte ARG_DOUBLE = 3;
+    static final byte ARG_BOOLEAN = 4;
+    static final byte ARG_STRING = 5;
+    static final String file_suffix = ".journal";
+
+    /**
+     * 事件头: 类型、格式编号、时间戳、线程编号、级别、参数个数
+     */
+    private static final int event_header_size = 1 + 4 + 8 + 8 + 1 + 1;
+    /**
+     * 线程内复用的参数编码缓冲区
+     */
+    private static final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+    /**
+     * 解除内存映射, (ByteBuffer)void, 运行环境不支持时为 null, 由 GC 解除
+     */
+    private static final MethodHandle unmapper = findUnmapper();
+
+    /**
+     * 目录
+     */
+    private final Path directory;
+    /**
+     * 文件名前缀
+     */
+    private final String name;
+    /**
+     * 当前文件的格式编号, 滚动时清空
+     */
+    private final Map<String, Integer> templates = new HashMap<>();
+    /**
+     * 当前文件已写入名称的线程, 滚动时清空
+     */
+    private final Set<Long> threads = new HashSet<>();
+    /**
+     * 写不下而丢弃的日志数量
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * 最低级别
+     */
+    private volatile Level level = Level.INFO;
+    /**
+     * 单个文件大小
+     */
+    private volatile int rollSize = 64 * 1024 * 1024;
+    /**
+     * 保留的文件个数
+     */
+    private volatile int maxFiles = 10;
+    /**
+     * 当前文件
+     */
+    private MappedByteBuffer buffer;
+    /**
+     * 当前文件序号
+     */
+    private long fileIndex;
+    private boolean closed;
+
+    private LogJournal(Path directory, String name) {
+        this.directory = directory;
+        this.name = name;
+    }
+
+    /**
+     * 打开日志目录, 从已有文件的下一个序号开始写
+     *
+     * @param directory 目录
+     * @param name      文件名前缀
+     * @return LogJournal
+     */
+    public static LogJournal open(Path directory, String name) {
+        assert directory != null;
+        assert name != null;
+        LogJournal journal = new LogJournal(directory, name);
+        try {
+            Files.createDirectories(directory);
+            journal.fileIndex = journal.listFiles().stream()
+                    .mapToLong(journal::indexOf)
+                    .max()
+                    .orElse(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return journal;
+    }
+
+    /**
+     * 设置最低级别, 默认 INFO
+     *
+     * @param level 级别
+     * @return LogJournal
+     */
+    public LogJournal level(Level level) {
+        assert level != null;
+        this.level = level;
+        // 已桥接的 LazyLogger 立即生效, 不等待定时刷新
+        LevelCache.refresh(false);
+        return this;
+    }
+
+    /**
+     * 设置单个文件大小, 默认 64MB, 下一次滚动时生效
+     *
+     * @param bytes 文件大小, 至少 1MB
+     * @return LogJournal
+     */
+    public LogJournal rollSize(int bytes) {
+        this.rollSize = Math.max(bytes, 1024 * 1024);
+        return this;
+    }
+
+    /**
+     * 设置保留的文件个数, 默认 10
+     *
+     * @param maxFiles 文件个数
+     * @return LogJournal
+     */
+    public LogJournal maxFiles(int maxFiles) {
+        this.maxFiles = Math.max(maxFiles, 1);
+        return this;
+    }
+
+    /**
+     * 写不下而丢弃的日志数量
+     *
+     * @return 丢弃的日志数量
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 把当前文件刷到磁盘
+     */
+    public synchronized void flush() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 刷盘并停止写入
+     */
+    public synchronized void close() {
+        closed = true;
+        if (buffer != null) {
+            MappedByteBuffer previous = buffer;
+            buffer = null;
+            unmap(previous);
+        }
+    }
+
+    public boolean isTraceEnabled() {
+        return Level.TRACE.compareTo(level) >= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return Level.DEBUG.compareTo(level) >= 0;
+    }
+
+    public boolean isInfoEnabled() {
+        return Level.INFO.compareTo(level) >= 0;
+    }
+
+    public boolean isWarnEnabled() {
+        return Level.WARN.compareTo(level) >= 0;
+    }
+
+    public boolean isErrorEnabled() {
+        return true;
+    }
+
+    public void trace(String format) {
+        append(Level.TRACE, format, 0, null, null, null, null, null);
+    }
+
+    public void trace(String format, Object argument) {
+        append(Level.TRACE, format, 1, argument, null, null, null, null);
+    }
+
+    public void trace(String format, Object argument1, Object argument2) {
+        append(Level.TRACE, format, 2, argument1, argument2, null, null, null);
+    }
+
+    public void trace(String format, Object argument1, Object argument2, Object argument3) {
+        append(Level.TRACE, format, 3, argument1, argument2, argument3, null, null);
+    }
+
+    public void trace(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        append(Level.TRACE, format, 4, argument1, argument2, argument3, argument4, null);
+    }
+
+    public void trace(String format, Object... arguments) {
+        append(Level.TRACE, format, -1, null, null, null, null, arguments);
+    }
+
+    public void debug(String format) {
+        append(Level.DEBUG, format, 0, null, null, null, null, null);
+    }
+
+    public void debug(String format, Object argument) {
+        append(Level.DEBUG, format, 1, argument, null, null, null, null);
+    }
+
+    public void debug(String format, Object argument1, Object argument2) {
+        append(Level.DEBUG, format, 2, argument1, argument2, null, null, null);
+    }
+
+    public void debug(String format, Object argument1, Object argument2, Object argument3) {
+        append(Level.DEBUG, format, 3, argument1, argument2, argument3, null, null);
+    }
+
+    public void debug(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        append(Level.DEBUG, format, 4, argument1, argument2, argument3, argument4, null);
+    }
+
+    public void debug(String format, Object... arguments) {
+        append(Level.DEBUG, format, -1, null, null, null, null, arguments);
+    }
+
+    public void info(String format) {
+        append(Level.INFO, format, 0, null, null, null, null, null);
+    }
+
+    public void info(String format, Object argument) {
+        append(Level.INFO, format, 1, argument, null, null, null, null);
+    }
+
+    public void info(String format, Object argument1, Object argument2) {
+        append(Level.INFO, format, 2, argument1, argument2, null, null, null);
+    }
+
+    public void info(String format, Object argument1, Object argument2, Object argument3) {
+        append(Level.INFO, format, 3, argument1, argument2, argument3, null, null);
+    }
+
+    public void info(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        append(Level.INFO, format, 4, argument1, argument2, argument3, argument4, null);
+    }
+
+    public void info(String format, Object... arguments) {
+        append(Level.INFO, format, -1, null, null, null, null, arguments);
+    }
+
+    public void warn(String format) {
+        append(Level.WARN, format, 0, null, null, null, null, null);
+    }
+
+    public void warn(String format, Object argument) {
+        append(Level.WARN, format, 1, argument, null, null, null, null);
+    }
+
+    public void warn(String format, Object argument1, Object argument2) {
+        append(Level.WARN, format, 2, argument1, argument2, null, null, null);
+    }
+
+    public void warn(String format, Object argument1, Object argument2, Object argument3) {
+        append(Level.WARN, format, 3, argument1, argument2, argument3, null, null);
+    }
+
+    public void warn(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        append(Level.WARN, format, 4, argument1, argument2, argument3, argument4, null);
+    }
+
+    public void warn(String format, Object... arguments) {
+        append(Level.WARN, format, -1, null, null, null, null, arguments);
+    }
+
+    public void error(String format) {
+        append(Level.ERROR, format, 0, null, null, null, null, null);
+    }
+
+    public void error(String format, Object argument) {
+        append(Level.ERROR, format, 1, argument, null, null, null, null);
+    }
+
+    public void error(String format, Object argument1, Object argument2) {
+        append(Level.ERROR, format, 2, argument1, argument2, null, null, null);
+    }
+
+    public void error(String format, Object argument1, Object argument2, Object argument3) {
+        append(Level.ERROR, format, 3, argument1, argument2, argument3, null, null);
+    }
+
+    public void error(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        append(Level.ERROR, format, 4, argument1, argument2, argument3, argument4, null);
+    }
+
+    public void error(String format, Object... arguments) {
+        append(Level.ERROR, format, -1, null, null, null, null, arguments);
+    }
+
+    /**
+     * 编码参数后写入当前文件, 参数在调用线程编码, 只有复制到文件时加锁
+     *
+     * @param level     级别
+     * @param format    格式
+     * @param count     参数个数, 小于 0 表示使用 arguments
+     * @param argument1 参数
+     * @param argument2 参数
+     * @param argument3 参数
+     * @param argument4 参数
+     * @param arguments 参数
+     */
+    private void append(Level level
+            , String format
+            , int count
+            , Object argument1
+            , Object argument2
+            , Object argument3
+            , Object argument4
+            , Object[] arguments) {
+        if (level.compareTo(this.level) < 0) {
+            return;
+        }
+
+        Encoder encoder = encoders.get();
+        encoder.reset();
+        int argumentCount = count >= 0 ? count : arguments == null ? 0 : Math.min(arguments.length, 255);
+        int maxLength = ArgumentLimits.argumentLimit(argumentCount);
+        for (int i = 0; i < argumentCount; i++) {
+            Object argument = count < 0 ? arguments[i]
+                    : i == 0 ? argument1
+                    : i == 1 ? argument2
+                    : i == 2 ? argument3
+                    : argument4;
+            encoder.writeArgument(argument, maxLength);
+        }
+
+        String template = format == null ? "null" : format;
+        long timestamp = System.currentTimeMillis();
+        Thread thread = Thread.currentThread();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            try {
+                if (!write(template, timestamp, thread, level, argumentCount, encoder)) {
+                    dropped.incrementAndGet();
+                }
+            } catch (IOException e) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 写入一条事件, 需要时先写入格式与线程名, 当前文件写不下时滚动
+     *
+     * @return 是否写入
+     */
+    private boolean write(String template, long timestamp, Thread thread, Level level, int argumentCount, Encoder encoder) throws IOException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (buffer == null) {
+                roll();
+            }
+            Integer templateId = templates.get(template);
+            byte[] templateBytes = templateId == null ? template.getBytes(StandardCharsets.UTF_8) : null;
+            byte[] threadBytes = threads.contains(thread.getId()) ? null : thread.getName().getBytes(StandardCharsets.UTF_8);
+            int needed = event_header_size + encoder.length
+                    + (templateBytes == null ? 0 : 1 + 4 + 4 + templateBytes.length)
+                    + (threadBytes == null ? 0 : 1 + 8 + 4 + threadBytes.length);
+            // 保留一个字节的结束标记
+            if (buffer.remaining() < needed + 1) {
+                if (attempt == 0) {
+                    roll();
+                    continue;
+                }
+                return false;
+            }
+
+            if (templateBytes != null) {
+                templateId = templates.size() + 1;
+                templates.put(template, templateId);
+                buffer.put(RECORD_TEMPLATE).putInt(templateId).putInt(templateBytes.length).put(templateBytes);
+            }
+            if (threadBytes != null) {
+                threads.add(thread.getId());
+                buffer.put(RECORD_THREAD).putLong(thread.getId()).putInt(threadBytes.length).put(threadBytes);
+            }
+            buffer.put(RECORD_EVENT)
+                    .putInt(templateId)
+                    .putLong(timestamp)
+                    .putLong(thread.getId())
+                    .put((byte) level.ordinal())
+                    .put((byte) argumentCount)
+                    .put(encoder.bytes, 0, encoder.length);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 滚动到下一个文件, 删除超出保留个数的旧文件
+     */
+    private void roll() throws IOException {
+        if (buffer != null) {
+            MappedByteBuffer previous = buffer;
+            buffer = null;
+            unmap(previous);
+        }
+        fileIndex++;
+        Path file = directory.resolve(name + "." + fileIndex + file_suffix);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, rollSize);
+        }
+        buffer.putInt(MAGIC);
+        templates.clear();
+        threads.clear();
+
+        List<Path> files = listFiles();
+        files.sort(Comparator.comparingLong(this::indexOf));
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * 刷盘后解除内存映射, 调用后不能再访问 buffer
+     *
+     * @param buffer 内存映射
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        buffer.force();
+        if (unmapper == null) {
+            return;
+        }
+        try {
+            unmapper.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable throwable) {
+            // 解除失败时由 GC 解除
+        }
+    }
+
+    /**
+     * 查找解除内存映射的方法: Java 9+ 为 Unsafe.invokeCleaner, Java 8 为 DirectBuffer.cleaner().clean()
+     *
+     * @return (ByteBuffer)void, 不支持时为 null
+     */
+    private static MethodHandle findUnmapper() {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Class<?> unsafeType = Class.forName("sun.misc.Unsafe");
+            MethodHandle invokeCleaner = lookup.findVirtual(unsafeType, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class));
+            Field field = unsafeType.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return invokeCleaner.bindTo(field.get(null));
+        } catch (Throwable ignored) {
+            // Java 8 没有 Unsafe.invokeCleaner
+        }
+        try {
+            Class<?> directBufferType = Class.forName("sun.nio.ch.DirectBuffer");
+            MethodHandle cleaner = lookup.findVirtual(directBufferType, "cleaner", MethodType.methodType(Class.forName("sun.misc.Cleaner")));
+            MethodHandle clean = lookup.findVirtual(Class.forName("sun.misc.Cleaner"), "clean", MethodType.methodType(void.class));
+            return MethodHandles.filterReturnValue(cleaner, clean)
+                    .asType(MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * 当前目录下属于这个日志的文件
+     *
+     * @return 文件
+     */
+    private List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(path -> indexOf(path) > 0).forEach(files::add);
+        }
+        return files;
+    }
+
+    /**
+     * 文件序号, 不属于这个日志的文件返回 0
+     *
+     * @param file 文件
+     * @return 序号
+     */
+    private long indexOf(Path file) {
+        String fileName = file.getFileName().toString();
+        String prefix = name + ".";
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(file_suffix)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(fileName.substring(prefix.length(), fileName.length() - file_suffix.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 级别
+     */
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR
+    }
+
+    /**
+     * 线程内复用的参数编码缓冲区
+     */
+    private static final class Encoder {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        void reset() {
+            length = 0;
+            if (bytes.length > 64 * 1024) {
+                bytes = new byte[256];
+            }
+        }
+
+        void writeArgument(Object argument, int maxLength) {
+            if (argument == null) {
+                writeByte(ARG_NULL);
+            } else if (argument instanceof Integer || argument instanceof Short || argument instanceof Byte) {
+                writeByte(ARG_INT);
+                writeLong(((Number) argument).intValue(), 4);
+            } else if (argument instanceof Long) {
+                writeByte(ARG_LONG);
+                writeLong((Long) argument, 8);
+            } else if (argument instanceof Double || argument instanceof Float) {
+                writeByte(ARG_DOUBLE);
+                writeLong(Double.doubleToRawLongBits(((Number) argument).doubleValue()), 8);
+            } else if (argument instanceof Boolean) {
+                writeByte(ARG_BOOLEAN);
+                writeByte((Boolean) argument ? (byte) 1 : (byte) 0);
+            } else if (argument instanceof Throwable) {
+                StringWriter writer = new StringWriter();
+                ((Throwable) argument).printStackTrace(new PrintWriter(writer));
+                writeString(writer.toString(), maxLength);
+            } else {
+                writeString(String.valueOf(argument), maxLength);
+            }
+        }
+
+        /**
+         * 字符串: int 字节数 + UTF-8 字节, 超出长度预算的部分截断
+         */
+        private void writeString(String value, int maxLength) {
+            int chars = Math.min(value.length(), maxLength);
+            writeByte(ARG_STRING);
+            ensure(4 + chars * 3);
+            int lengthOffset = length;
+            length += 4;
+            for (int i = 0; i < chars; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    ensure(1);
+                    bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    bytes[length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            int byteLength = length - lengthOffset - 4;
+            bytes[lengthOffset] = (byte) (byteLength >>> 24);
+            bytes[lengthOffset + 1] = (byte) (byteLength >>> 16);
+            bytes[lengthOffset + 2] = (byte) (byteLength >>> 8);
+            bytes[lengthOffset + 3] = (byte) byteLength;
+        }
+
+        private void writeByte(byte value) {
+            ensure(1);
+            bytes[length++] = value;
+        }
+
+        /**
+         * 大端写入 size 个字节
+         */
+        private void writeLong(long value, int size) {
+            ensure(size);
+            for (int shift = (size - 1) * 8; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void ensure(int size) {
+            if (length + size > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + size));
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package io.onetool4j.util;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 2024/3/15 14:00
+ * LogJournal 解码工具, 把二进制日志还原为文本
+ * <p>
+ * 命令行: java -cp onetool4j-exception.jar io.onetool4j.util.LogJournalDecoder 文件或目录...
+ * 目录按文件序号依次解码其中所有 .journal 文件, 每条日志输出一行: 时间 [线程] 级别 日志
+ *
+ * @author yinbingqiu
+ */
+public final class LogJournalDecoder {
+
+    private static final DateTimeFormatter time_formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final LogJournal.Level[] levels = LogJournal.Level.values();
+
+    private LogJournalDecoder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: LogJournalDecoder <file or directory>...");
+            System.exit(1);
+        }
+        PrintStream out = System.out;
+        for (String arg : args) {
+            for (Path file : journalFiles(Paths.get(arg))) {
+                decode(file, out);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * 解码一个文件, 遇到结束标记或不完整的记录时停止
+     *
+     * @param file 文件
+     * @param out  输出
+     * @throws IOException 读取失败或不是 LogJournal 文件
+     */
+    public static void decode(Path file, Appendable out) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 4 || buffer.getInt() != LogJournal.MAGIC) {
+            throw new IOException("不是 LogJournal 文件:" + file);
+        }
+
+        Map<Integer, String> templates = new HashMap<>();
+        Map<Long, String> threads = new HashMap<>();
+        StringBuilder line = new StringBuilder(256);
+        try {
+            while (buffer.hasRemaining()) {
+                byte type = buffer.get();
+                if (type == LogJournal.RECORD_TEMPLATE) {
+                    templates.put(buffer.getInt(), readString(buffer));
+                } else if (type == LogJournal.RECORD_THREAD) {
+                    threads.put(buffer.getLong(), readString(buffer));
+                } else if (type == LogJournal.RECORD_EVENT) {
+                    String template = templates.get(buffer.getInt());
+                    long timestamp = buffer.getLong();
+                    long threadId = buffer.getLong();
+                    int level = buffer.get();
+                    Object[] arguments = new Object[buffer.get() & 0xFF];
+                    for (int i = 0; i < arguments.length; i++) {
+                        arguments[i] = readArgument(buffer);
+                    }
+
+                    line.setLength(0);
+                    time_formatter.formatTo(Instant.ofEpochMilli(timestamp), line);
+                    line.append(" [").append(threads.getOrDefault(threadId, String.valueOf(threadId))).append("] ")
+                            .append(level >= 0 && level < levels.length ? levels[level].name() : String.valueOf(level))
+                            .append(' ');
+                    MessageTemplate.of(String.valueOf(template)).formatTo(line, arguments);
+                    out.append(line).append('\n');
+                } else {
+                    // 结束标记
+                    break;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            // 写入中的文件最后一条记录可能不完整
+        }
+    }
+
+    /**
+     * 路径是目录时返回其中的 .journal 文件, 按文件名中的序号排序
+     *
+     * @param path 文件或目录
+     * @return 文件
+     */
+    static List<Path> journalFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Collections.singletonList(path);
+        }
+        try (Stream<Path> stream = Files.list(path)) {
+            return stream.filter(file -> file.getFileName().toString().endsWith(LogJournal.file_suffix))
+                    .sorted(Comparator.comparing((Path file) -> prefixOf(file)).thenComparingLong(LogJournalDecoder::indexOf))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String prefixOf(Path file) {
+        String name = file.getFileName().toString();
+        name = name.substring(0, name.length() - LogJournal.file_suffix.length());
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private static long indexOf(Path file) {
+        String name = file.getFileName().toString();
+        name = name.substring(0, name.length() - LogJournal.file_suffix.length());
+        try {
+            return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Object readArgument(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case LogJournal.ARG_INT:
+                return buffer.getInt();
+            case LogJournal.ARG_LONG:
+                return buffer.getLong();
+            case LogJournal.ARG_DOUBLE:
+                return buffer.getDouble();
+            case LogJournal.ARG_BOOLEAN:
+                return buffer.get() != 0;
+            case LogJournal.ARG_STRING:
+                return readString(buffer);
+            default:
+                return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
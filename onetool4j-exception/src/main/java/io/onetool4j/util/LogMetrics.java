@@ -0,0 +1,346 @@
+package io.onetool4j.util;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 2024/3/25 10:30
+ * LazyLogger 运行指标
+ * <p>
+ * 计数使用 LongAdder, 多线程记录时分段累加, 计时使用 System.nanoTime 且只在开启指标时调用.
+ * 未开启指标的 LazyLogger 只多一次字段判空. 同名的 LazyLogger 共用一份指标, 第一次开启时注册到 JMX
+ *
+ * @author yinbingqiu
+ */
+final class LogMetrics implements LazyLoggerMXBean {
+
+    /**
+     * 是否为按名称获取的 LazyLogger 默认开启指标
+     */
+    static final boolean enabled = Boolean.parseBoolean(System.getProperty("lazylogger.metrics.enabled", "false"));
+    /**
+     * JMX 域与类型
+     */
+    private static final String object_name_prefix = "io.onetool4j:type=LazyLogger,name=";
+
+    /**
+     * 日志名称 -> 指标
+     */
+    private static final Map<String, LogMetrics> metrics = new ConcurrentHashMap<>();
+    /**
+     * 合计
+     */
+    private static final Total total = new Total();
+
+    static {
+        register("all", total);
+    }
+
+    private final LongAdder[] events = new LongAdder[5];
+    private final LongAdder disabled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder supplierNanos = new LongAdder();
+    private final LongAdder serializeNanos = new LongAdder();
+    private final LongAdder summaryNanos = new LongAdder();
+    private final LongAdder renderedChars = new LongAdder();
+
+    private LogMetrics() {
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 获取日志名称对应的指标, 第一次获取时注册到 JMX
+     *
+     * @param name 日志名称
+     * @return LogMetrics
+     */
+    static LogMetrics forName(String name) {
+        LogMetrics current = metrics.get(name);
+        if (current != null) {
+            return current;
+        }
+        return metrics.computeIfAbsent(name, key -> {
+            LogMetrics created = new LogMetrics();
+            register(ObjectName.quote(key), created);
+            return created;
+        });
+    }
+
+    /**
+     * 注册到 JMX, 日志名称加引号, 与合计的 name=all 不会冲突
+     *
+     * @param name ObjectName 中的名称
+     * @param bean 指标
+     */
+    private static void register(String name, LazyLoggerMXBean bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(object_name_prefix + name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(bean, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            // JMX 不可用时指标仍然可以通过 LazyLogger 获取
+            LogStatus.report("register MXBean failed", e);
+        }
+    }
+
+    /**
+     * 输出一条日志
+     *
+     * @param levelBit 级别位
+     */
+    void event(int levelBit) {
+        events[Integer.numberOfTrailingZeros(levelBit)].increment();
+    }
+
+    void disabled() {
+        disabled.increment();
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    void supplier(long nanos) {
+        supplierNanos.add(nanos);
+    }
+
+    /**
+     * 异常摘要渲染
+     *
+     * @param nanos 耗时
+     * @param chars 字符数
+     */
+    void summary(long nanos, int chars) {
+        summaryNanos.add(nanos);
+        renderedChars.add(chars);
+    }
+
+    /**
+     * 包装序列化以统计耗时与字符数
+     * 同名的 LazyLogger 可能使用不同的序列化, 包装结果由调用方按 LazyLogger 保存, 再次调用时传入以复用
+     *
+     * @param serializer 序列化, 可以为 null
+     * @param previous   上一次的包装结果, 可以为 null
+     * @return 包装后的序列化, previous 是本指标对 serializer 的包装时直接返回
+     */
+    ArgumentSerializer timed(ArgumentSerializer serializer, ArgumentSerializer previous) {
+        if (serializer == null) {
+            return null;
+        }
+        if (previous instanceof TimedSerializer
+                && ((TimedSerializer) previous).delegate == serializer
+                && ((TimedSerializer) previous).metrics == this) {
+            return previous;
+        }
+        return new TimedSerializer(serializer, this);
+    }
+
+    @Override
+    public long getTraceCount() {
+        return events[0].sum();
+    }
+
+    @Override
+    public long getDebugCount() {
+        return events[1].sum();
+    }
+
+    @Override
+    public long getInfoCount() {
+        return events[2].sum();
+    }
+
+    @Override
+    public long getWarnCount() {
+        return events[3].sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return events[4].sum();
+    }
+
+    @Override
+    public long getDisabledCount() {
+        return disabled.sum();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getSupplierNanos() {
+        return supplierNanos.sum();
+    }
+
+    @Override
+    public long getSerializeNanos() {
+        return serializeNanos.sum();
+    }
+
+    @Override
+    public long getSummaryNanos() {
+        return summaryNanos.sum();
+    }
+
+    @Override
+    public long getRenderedChars() {
+        return renderedChars.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder event : events) {
+            event.reset();
+        }
+        disabled.reset();
+        dropped.reset();
+        supplierNanos.reset();
+        serializeNanos.reset();
+        summaryNanos.reset();
+        renderedChars.reset();
+    }
+
+    /**
+     * 统计耗时与字符数的序列化
+     */
+    private static final class TimedSerializer implements ArgumentSerializer {
+        private final ArgumentSerializer delegate;
+        private final LogMetrics metrics;
+
+        TimedSerializer(ArgumentSerializer delegate, LogMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public String name() {
+            return delegate.name();
+        }
+
+        @Override
+        public String serialize(Object argument) {
+            long start = System.nanoTime();
+            String serialized = delegate.serialize(argument);
+            record(start, serialized == null ? 0 : serialized.length());
+            return serialized;
+        }
+
+        @Override
+        public void serializeTo(Object argument, StringBuilder builder) {
+            long start = System.nanoTime();
+            int length = builder.length();
+            delegate.serializeTo(argument, builder);
+            record(start, builder.length() - length);
+        }
+
+        @Override
+        public String serialize(Object argument, int maxLength) {
+            long start = System.nanoTime();
+            String serialized = delegate.serialize(argument, maxLength);
+            record(start, serialized == null ? 0 : serialized.length());
+            return serialized;
+        }
+
+        @Override
+        public void serializeTo(Object argument, StringBuilder builder, int maxLength) {
+            long start = System.nanoTime();
+            int length = builder.length();
+            delegate.serializeTo(argument, builder, maxLength);
+            record(start, builder.length() - length);
+        }
+
+        private void record(long start, int chars) {
+            metrics.serializeNanos.add(System.nanoTime() - start);
+            metrics.renderedChars.add(chars);
+        }
+    }
+
+    /**
+     * 所有指标的合计
+     */
+    private static final class Total implements LazyLoggerMXBean {
+
+        private long sum(ToLongFunction<LogMetrics> getter) {
+            long sum = 0;
+            for (LogMetrics value : metrics.values()) {
+                sum += getter.applyAsLong(value);
+            }
+            return sum;
+        }
+
+        @Override
+        public long getTraceCount() {
+            return sum(LogMetrics::getTraceCount);
+        }
+
+        @Override
+        public long getDebugCount() {
+            return sum(LogMetrics::getDebugCount);
+        }
+
+        @Override
+        public long getInfoCount() {
+            return sum(LogMetrics::getInfoCount);
+        }
+
+        @Override
+        public long getWarnCount() {
+            return sum(LogMetrics::getWarnCount);
+        }
+
+        @Override
+        public long getErrorCount() {
+            return sum(LogMetrics::getErrorCount);
+        }
+
+        @Override
+        public long getDisabledCount() {
+            return sum(LogMetrics::getDisabledCount);
+        }
+
+        @Override
+        public long getDroppedCount() {
+            return sum(LogMetrics::getDroppedCount);
+        }
+
+        @Override
+        public long getSupplierNanos() {
+            return sum(LogMetrics::getSupplierNanos);
+        }
+
+        @Override
+        public long getSerializeNanos() {
+            return sum(LogMetrics::getSerializeNanos);
+        }
+
+        @Override
+        public long getSummaryNanos() {
+            return sum(LogMetrics::getSummaryNanos);
+        }
+
+        @Override
+        public long getRenderedChars() {
+            return sum(LogMetrics::getRenderedChars);
+        }
+
+        @Override
+        public void reset() {
+            for (LogMetrics value : metrics.values()) {
+                value.reset();
+            }
+        }
+    }
+}
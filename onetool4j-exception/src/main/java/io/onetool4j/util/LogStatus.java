@@ -0,0 +1,66 @@
+package io.onetool4j.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 2024/3/27 10:00
+ * LazyLogger 自身的状态输出, 如加载扩展失败、分发线程写日志异常
+ * <p>
+ * 日志后端本身可能就是出错的原因, 因此输出到 System.err. 每分钟最多输出 lazylogger.status.limit(默认 10) 条,
+ * 超出的条数在下一个窗口的第一条中说明; lazylogger.status.enabled=false 时不输出
+ *
+ * @author yinbingqiu
+ */
+final class LogStatus {
+
+    /**
+     * 是否输出
+     */
+    private static final boolean enabled = Boolean.parseBoolean(System.getProperty("lazylogger.status.enabled", "true"));
+    /**
+     * 每个窗口最多输出的条数
+     */
+    private static final int limit = Integer.parseInt(System.getProperty("lazylogger.status.limit", "10"));
+    /**
+     * 窗口时长, 毫秒
+     */
+    private static final long window_millis = 60_000L;
+
+    private static final AtomicLong window_start = new AtomicLong();
+    private static final AtomicInteger reported = new AtomicInteger();
+    private static final AtomicInteger suppressed = new AtomicInteger();
+
+    private LogStatus() {
+    }
+
+    /**
+     * 输出一条状态
+     *
+     * @param message 说明
+     * @param error   异常, 可以为 null
+     */
+    static void report(String message, Throwable error) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long start = window_start.get();
+        if (now - start > window_millis && window_start.compareAndSet(start, now)) {
+            reported.set(0);
+        }
+        if (reported.incrementAndGet() > limit) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        int skipped = suppressed.getAndSet(0);
+        StringBuilder builder = new StringBuilder("lazy-logger ").append(message);
+        if (error != null) {
+            builder.append(": ").append(error);
+        }
+        if (skipped > 0) {
+            builder.append(" (").append(skipped).append(" status messages suppressed)");
+        }
+        System.err.println(builder);
+    }
+}
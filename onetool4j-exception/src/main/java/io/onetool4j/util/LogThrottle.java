@@ -0,0 +1,299 @@
+package io.onetool4j.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 2024/3/7 14:20
+ * LazyLogger 按调用点(格式字符串)采样或限流
+ * <p>
+ * 在参数求值之前判断, 被丢弃的日志不会执行 Supplier, 也不会序列化参数.
+ * 同一调用点有日志被丢弃时输出一行 "N messages suppressed", 同一调用点最多每 lazylogger.throttle.report.seconds(默认 10 秒) 输出一次:
+ * 第一次丢弃后的下一条放行日志之前立即输出, 之后由下一条放行日志或后台线程(每秒检查一次)输出, 调用点不再有日志时也不会遗漏.
+ * 采样时每个调用点的第一条日志总是放行
+ *
+ * @author yinbingqiu
+ */
+final class LogThrottle {
+
+    /**
+     * 丢弃汇总的格式
+     */
+    static final String suppressed_format = "{} messages suppressed, format: {}";
+    /**
+     * 调用点上限, 超过上限的格式共用一个调用点
+     */
+    private static final int callsite_threshold = Math.min(Integer.parseInt(System.getProperty("lazylogger.throttle.callsite.threshold", "1024")), 65536);
+    /**
+     * 丢弃汇总的输出间隔
+     */
+    private static final long report_nanos = TimeUnit.SECONDS.toNanos(Math.max(Integer.parseInt(System.getProperty("lazylogger.throttle.report.seconds", "10")), 1));
+    /**
+     * 有丢弃的 LogThrottle, 后台线程定时输出丢弃汇总
+     */
+    private static final Set<LogThrottle> registry = Collections.newSetFromMap(new WeakHashMap<>());
+    /**
+     * 后台线程, 第一次丢弃时创建
+     */
+    private static ScheduledExecutorService reporter;
+
+    /**
+     * 采样率, 限流时为 0
+     */
+    private final double rate;
+    /**
+     * 每个许可的间隔, 采样时为 0
+     */
+    private final long intervalNanos;
+    /**
+     * 允许的突发量, 即 1 秒内的许可数
+     */
+    private final long burstNanos;
+    /**
+     * 调用点
+     */
+    private final Map<String, Callsite> callsites = new ConcurrentHashMap<>();
+    /**
+     * 超过上限的格式共用的调用点
+     */
+    private final Callsite overflow = new Callsite("(other formats)");
+    /**
+     * 是否已注册到后台线程
+     */
+    private volatile boolean registered;
+
+    private LogThrottle(double rate, long intervalNanos, long burstNanos) {
+        this.rate = rate;
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = burstNanos;
+    }
+
+    /**
+     * 采样
+     *
+     * @param rate 采样率, (0, 1]
+     * @return LogThrottle
+     */
+    static LogThrottle sampled(double rate) {
+        if (!(rate > 0 && rate <= 1)) {
+            throw new IllegalArgumentException("采样率必须在 (0, 1] 之间:" + rate);
+        }
+        return new LogThrottle(rate, 0, 0);
+    }
+
+    /**
+     * 限流, 令牌桶容量为 1 秒的许可数
+     *
+     * @param permitsPerSecond 每秒许可数
+     * @return LogThrottle
+     */
+    static LogThrottle rateLimited(double permitsPerSecond) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("每秒许可数必须大于 0:" + permitsPerSecond);
+        }
+        long intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        return new LogThrottle(0, intervalNanos, Math.max(intervalNanos, TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    /**
+     * 获取调用点
+     *
+     * @param format 格式
+     * @return 调用点
+     */
+    Callsite callsite(String format) {
+        String key = format == null ? "" : format;
+        Callsite callsite = callsites.get(key);
+        if (callsite != null) {
+            return callsite;
+        }
+        if (callsites.size() >= callsite_threshold) {
+            return overflow;
+        }
+        return callsites.computeIfAbsent(key, Callsite::new);
+    }
+
+    /**
+     * 是否放行, 丢弃时记录输出丢弃汇总的 LazyLogger 与级别
+     *
+     * @param callsite 调用点
+     * @param logger   LazyLogger
+     * @param level    级别桥接
+     * @return 是否放行
+     */
+    boolean tryAcquire(Callsite callsite, LazyLogger logger, LoggerBridge.LevelBridge level) {
+        boolean acquired = intervalNanos > 0 ? callsite.tryAcquirePermit(intervalNanos, burstNanos) : callsite.sample(rate);
+        if (!acquired) {
+            if (callsite.logger != logger) {
+                callsite.logger = logger;
+            }
+            if (callsite.level != level) {
+                callsite.level = level;
+            }
+            callsite.suppressed.incrementAndGet();
+            if (!registered) {
+                register(this);
+            }
+        }
+        return acquired;
+    }
+
+    /**
+     * 放行的日志之前需要补充的丢弃数量, 未到输出间隔或没有丢弃时返回 0
+     *
+     * @param callsite 调用点
+     * @return 丢弃数量
+     */
+    long drainSuppressed(Callsite callsite) {
+        return drainSuppressed(callsite, System.nanoTime());
+    }
+
+    /**
+     * 输出到达输出间隔的丢弃汇总, 由后台线程调用
+     *
+     * @param now 当前时间, System.nanoTime
+     */
+    void report(long now) {
+        report(overflow, now);
+        for (Callsite callsite : callsites.values()) {
+            report(callsite, now);
+        }
+    }
+
+    private void report(Callsite callsite, long now) {
+        LazyLogger logger = callsite.logger;
+        if (logger == null) {
+            return;
+        }
+        long suppressed = drainSuppressed(callsite, now);
+        if (suppressed > 0) {
+            logger.reportSuppressed(callsite.level, suppressed, callsite.format);
+        }
+    }
+
+    /**
+     * 注册到后台线程
+     *
+     * @param throttle LogThrottle
+     */
+    private static void register(LogThrottle throttle) {
+        synchronized (registry) {
+            registry.add(throttle);
+            throttle.registered = true;
+            if (reporter == null) {
+                reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "lazy-logger-throttle-report");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                reporter.scheduleWithFixedDelay(LogThrottle::reportAll, 1, 1, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * 输出所有 LogThrottle 的丢弃汇总
+     */
+    private static void reportAll() {
+        List<LogThrottle> throttles;
+        synchronized (registry) {
+            throttles = new ArrayList<>(registry);
+        }
+        long now = System.nanoTime();
+        for (LogThrottle throttle : throttles) {
+            try {
+                throttle.report(now);
+            } catch (Throwable throwable) {
+                // 单个日志后端异常不影响其它 LogThrottle
+                LogStatus.report("report suppressed messages failed", throwable);
+            }
+        }
+    }
+
+    private static long drainSuppressed(Callsite callsite, long now) {
+        if (callsite.suppressed.get() == 0) {
+            return 0;
+        }
+        long lastReport = callsite.lastReportNanos.get();
+        if (now - lastReport < report_nanos || !callsite.lastReportNanos.compareAndSet(lastReport, now)) {
+            return 0;
+        }
+        return callsite.suppressed.getAndSet(0);
+    }
+
+    /**
+     * 调用点状态
+     */
+    static final class Callsite {
+        /**
+         * 格式, 丢弃汇总中输出
+         */
+        private final String format;
+        /**
+         * 令牌桶的理论到达时间(GCRA), 每放行一次向后推进一个间隔
+         */
+        private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+        /**
+         * 采样计数
+         */
+        private final AtomicLong sampleCount = new AtomicLong();
+        /**
+         * 丢弃数量
+         */
+        private final AtomicLong suppressed = new AtomicLong();
+        /**
+         * 上次输出丢弃汇总的时间, 初始为一个间隔之前, 第一次丢弃后立即输出
+         */
+        private final AtomicLong lastReportNanos = new AtomicLong(System.nanoTime() - report_nanos);
+        /**
+         * 最近一次丢弃的 LazyLogger 与级别, 后台线程据此输出丢弃汇总
+         */
+        private volatile LazyLogger logger;
+        private volatile LoggerBridge.LevelBridge level;
+
+        Callsite(String format) {
+            this.format = format;
+        }
+
+        /**
+         * 令牌桶取许可, 无锁
+         *
+         * @param intervalNanos 每个许可的间隔
+         * @param burstNanos    允许的突发量
+         * @return 是否取到
+         */
+        private boolean tryAcquirePermit(long intervalNanos, long burstNanos) {
+            while (true) {
+                long now = System.nanoTime();
+                long arrival = theoreticalArrival.get();
+                long next = Math.max(arrival, now) + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, next)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 确定性采样, 第 0 次调用放行, 之后第 n 次调用在 floor(n * rate) 增加时放行
+         *
+         * @param rate 采样率
+         * @return 是否放行
+         */
+        private boolean sample(double rate) {
+            long n = sampleCount.getAndIncrement();
+            return n == 0 || (long) (n * rate) != (long) ((n - 1) * rate);
+        }
+    }
+}
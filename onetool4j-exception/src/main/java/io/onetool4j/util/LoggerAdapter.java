@@ -0,0 +1,75 @@
+package io.onetool4j.util;
+
+/**
+ * 2024/3/18 10:00
+ * LazyLogger 日志后端适配扩展点
+ * <p>
+ * 通过 ServiceLoader 加载, 在 META-INF/services/io.onetool4j.util.LoggerAdapter 中声明实现类,
+ * 日志对象的类、父类或接口与 loggerTypeName 同名时使用该适配器, 扩展实现优先于内置实现.
+ * 内置 slf4j(包括 logback)、log4j2、java.util.logging 与 System.Logger 的适配器, 只在第一次匹配到对应类型时加载.
+ * 支持线程上下文时同时实现 ContextAware
+ *
+ * @author yinbingqiu
+ */
+public interface LoggerAdapter {
+
+    /**
+     * 适配的日志类型全名, 按名称匹配, 匹配时不加载该类型
+     *
+     * @return 日志类型全名
+     */
+    String loggerTypeName();
+
+    /**
+     * 级别是否开启
+     *
+     * @param logger 日志对象
+     * @param level  级别
+     * @return 是否开启
+     */
+    boolean isEnabled(Object logger, Level level);
+
+    /**
+     * 打印日志
+     *
+     * @param logger    日志对象
+     * @param level     级别
+     * @param format    格式, {} 占位符
+     * @param arguments 参数, 最后一个参数可能是异常
+     */
+    void log(Object logger, Level level, String format, Object[] arguments);
+
+    /**
+     * 打印日志, 后端有固定参数方法时可以覆盖以避免构造数组
+     *
+     * @param logger 日志对象
+     * @param level  级别
+     * @param format 格式
+     */
+    default void log(Object logger, Level level, String format) {
+        log(logger, level, format, new Object[0]);
+    }
+
+    default void log(Object logger, Level level, String format, Object argument) {
+        log(logger, level, format, new Object[]{argument});
+    }
+
+    default void log(Object logger, Level level, String format, Object argument1, Object argument2) {
+        log(logger, level, format, new Object[]{argument1, argument2});
+    }
+
+    default void log(Object logger, Level level, String format, Object argument1, Object argument2, Object argument3) {
+        log(logger, level, format, new Object[]{argument1, argument2, argument3});
+    }
+
+    default void log(Object logger, Level level, String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        log(logger, level, format, new Object[]{argument1, argument2, argument3, argument4});
+    }
+
+    /**
+     * 级别
+     */
+    enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR
+    }
+}
@@ -0,0 +1,177 @@
+package io.onetool4j.util;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 2024/3/18 11:40
+ * LoggerAdapter 注册表
+ * <p>
+ * 第一次创建 LazyLogger 时通过 ServiceLoader 加载扩展实现, 按日志类型名称匹配, 依次尝试:
+ * 扩展实现、内置 slf4j / log4j2 / log4j / logback / java.util.logging / System.Logger / LogJournal,
+ * 最后是 LazyLogger.support_logger_types 中的类型.
+ * 内置适配器只在匹配到对应类型时才加载, 运行环境中没有使用的日志框架不会被加载
+ *
+ * @author yinbingqiu
+ */
+final class LoggerAdapters {
+
+    private LoggerAdapters() {
+    }
+
+    /**
+     * 为日志实现类匹配适配器并生成桥接
+     *
+     * @param type 日志实现类
+     * @return 匹配结果
+     */
+    static Match match(Class<?> type) {
+        Map<String, Class<?>> hierarchy = hierarchy(type);
+        for (Entry entry : Holder.entries) {
+            Class<?> loggerType = hierarchy.get(entry.loggerTypeName);
+            if (loggerType != null) {
+                return new Match(loggerType, entry.bridge.apply(loggerType));
+            }
+        }
+        for (Class<?> supportType : LazyLogger.support_logger_types) {
+            if (supportType.isAssignableFrom(type)) {
+                return new Match(supportType, LoggerBridge.of(supportType));
+            }
+        }
+        throw new IllegalArgumentException("不支持的日志类型:" + type.getName());
+    }
+
+    /**
+     * 按 {} 占位符格式化, 用于不支持 {} 占位符的后端
+     *
+     * @param format    格式
+     * @param arguments 参数
+     * @return 消息
+     */
+    static String format(String format, Object[] arguments) {
+        return format == null ? null : MessageTemplate.of(format).format(arguments);
+    }
+
+    /**
+     * 最后一个参数是异常时返回该异常, 与 slf4j 的约定一致
+     *
+     * @param arguments 参数
+     * @return 异常, 没有时返回 null
+     */
+    static Throwable throwableOf(Object[] arguments) {
+        if (arguments != null && arguments.length > 0 && arguments[arguments.length - 1] instanceof Throwable) {
+            return (Throwable) arguments[arguments.length - 1];
+        }
+        return null;
+    }
+
+    /**
+     * 日志实现类的类名、所有父类与接口
+     *
+     * @param type 日志实现类
+     * @return 类名 -> 类型
+     */
+    private static Map<String, Class<?>> hierarchy(Class<?> type) {
+        Map<String, Class<?>> hierarchy = new HashMap<>();
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        pending.add(type);
+        while (!pending.isEmpty()) {
+            Class<?> clazz = pending.poll();
+            if (hierarchy.putIfAbsent(clazz.getName(), clazz) != null) {
+                continue;
+            }
+            if (clazz.getSuperclass() != null) {
+                pending.add(clazz.getSuperclass());
+            }
+            pending.addAll(Arrays.asList(clazz.getInterfaces()));
+        }
+        return hierarchy;
+    }
+
+    /**
+     * 编译的内置适配器, 日志类型由其它类加载器加载(适配器无法转换类型)或适配器加载失败时, 退化为方法句柄桥接
+     *
+     * @param adapter 适配器, 调用时才加载适配器类
+     * @return 桥接生成方法
+     */
+    private static Function<Class<?>, LoggerBridge> compiled(Supplier<LoggerAdapter> adapter) {
+        return loggerType -> {
+            if (LoggerBridge.isVisible(loggerType)) {
+                try {
+                    return LoggerBridge.of(loggerType, adapter.get());
+                } catch (LinkageError error) {
+                    // 退化为方法句柄桥接
+                }
+            }
+            return LoggerBridge.of(loggerType);
+        };
+    }
+
+    /**
+     * 第一次使用时加载
+     */
+    private static final class Holder {
+        private static final List<Entry> entries = load();
+
+        private static List<Entry> load() {
+            List<Entry> entries = new ArrayList<>();
+            Iterator<LoggerAdapter> iterator = ServiceLoader.load(LoggerAdapter.class, LoggerAdapter.class.getClassLoader()).iterator();
+            while (true) {
+                try {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    LoggerAdapter adapter = iterator.next();
+                    entries.add(new Entry(adapter.loggerTypeName(), loggerType -> LoggerBridge.of(loggerType, adapter)));
+                } catch (ServiceConfigurationError error) {
+                    // 单个扩展实现加载失败不影响其它实现
+                    LogStatus.report("load LoggerAdapter failed", error);
+                }
+            }
+
+            // 使用 lambda 而不是方法引用, 适配器类在匹配到对应类型时才加载
+            entries.add(new Entry("org.slf4j.Logger", compiled(() -> new Slf4jLoggerAdapter())));
+            entries.add(new Entry("org.apache.logging.log4j.Logger", compiled(() -> new Log4j2LoggerAdapter())));
+            entries.add(new Entry("org.apache.log4j.Logger", LoggerBridge::of));
+            // logback 实现了 org.slf4j.Logger, 通常已经在上面匹配
+            entries.add(new Entry("ch.qos.logback.classic.Logger", compiled(() -> new Slf4jLoggerAdapter())));
+            entries.add(new Entry("java.util.logging.Logger", compiled(() -> new JulLoggerAdapter())));
+            entries.add(new Entry("java.lang.System$Logger", compiled(() -> new SystemLoggerAdapter())));
+            entries.add(new Entry(LogJournal.class.getName(), LoggerBridge::of));
+            return entries;
+        }
+    }
+
+    /**
+     * 日志类型名称 -> 桥接生成方法
+     */
+    private static final class Entry {
+        private final String loggerTypeName;
+        private final Function<Class<?>, LoggerBridge> bridge;
+
+        Entry(String loggerTypeName, Function<Class<?>, LoggerBridge> bridge) {
+            this.loggerTypeName = loggerTypeName;
+            this.bridge = bridge;
+        }
+    }
+
+    /**
+     * 匹配结果
+     */
+    static final class Match {
+        /**
+         * 匹配的日志类型
+         */
+        final Class<?> loggerType;
+        /**
+         * 日志后端桥接
+         */
+        final LoggerBridge bridge;
+
+        Match(Class<?> loggerType, LoggerBridge bridge) {
+            this.loggerType = loggerType;
+            this.bridge = bridge;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package io.onetool4j.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * 2024/3/11 09:50
+ * 日志后端实现类的描述
+ * <p>
+ * 每个日志实现类(如 Log4jLogger、ch.qos.logback.classic.Logger)通过 ClassValue 只计算一次:
+ * 匹配 LoggerAdapter、获取 LoggerBridge、判断是否为 log4j2、查找 getName 方法,
+ * 之后创建 LazyLogger 不再有类型遍历和类探测
+ *
+ * @author yinbingqiu
+ */
+final class LoggerBackend {
+
+    /**
+     * 日志实现类 -> 描述
+     */
+    private static final ClassValue<LoggerBackend> backends = new ClassValue<LoggerBackend>() {
+        @Override
+        protected LoggerBackend computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+    /**
+     * 按名称获取日志后端的工厂方法, (String)Object, 运行环境没有日志框架时为 null
+     */
+    private static final MethodHandle logger_factory = findLoggerFactory();
+
+    /**
+     * 匹配的日志类型
+     */
+    final Class<?> loggerType;
+    /**
+     * 日志后端桥接
+     */
+    final LoggerBridge bridge;
+    /**
+     * 是否为 log4j2, 包括通过 log4j-slf4j-impl 桥接的 slf4j Logger
+     */
+    final boolean log4j2;
+    /**
+     * 获取日志名称的方法, (Object)String, 没有 getName 方法时为 null
+     */
+    private final MethodHandle nameGetter;
+
+    private LoggerBackend(Class<?> loggerType, LoggerBridge bridge, boolean log4j2, MethodHandle nameGetter) {
+        this.loggerType = loggerType;
+        this.bridge = bridge;
+        this.log4j2 = log4j2;
+        this.nameGetter = nameGetter;
+    }
+
+    /**
+     * 获取日志后端的描述
+     *
+     * @param log Logger
+     * @return LoggerBackend
+     */
+    static LoggerBackend of(Object log) {
+        return backends.get(log.getClass());
+    }
+
+    /**
+     * 计算日志实现类的描述
+     *
+     * @param type 日志实现类
+     * @return LoggerBackend
+     */
+    private static LoggerBackend create(Class<?> type) {
+        LoggerAdapters.Match match = LoggerAdapters.match(type);
+        return new LoggerBackend(match.loggerType, match.bridge, isLog4j2(type, match.loggerType)
+                , findNameGetter(match.loggerType, type));
+    }
+
+    /**
+     * 日志后端的名称
+     *
+     * @param log Logger
+     * @return 名称, 没有 getName 方法或调用失败时返回 null
+     */
+    String nameOf(Object log) {
+        if (nameGetter == null) {
+            return null;
+        }
+        try {
+            return (String) nameGetter.invokeExact(log);
+        } catch (Throwable throwable) {
+            return null;
+        }
+    }
+
+    /**
+     * 查找 getName 方法, 先在匹配的日志类型上查找, 再在实现类上查找
+     *
+     * @param loggerType 匹配的日志类型
+     * @param type       日志实现类
+     * @return (Object)String, 没有时返回 null
+     */
+    private static MethodHandle findNameGetter(Class<?> loggerType, Class<?> type) {
+        for (Class<?> clazz : new Class<?>[]{loggerType, type}) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findVirtual(clazz, "getName", MethodType.methodType(String.class))
+                        .asType(MethodType.methodType(String.class, Object.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // 继续在实现类上查找
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 日志实现类是否为 log4j2
+     *
+     * @param type       日志实现类
+     * @param loggerType 匹配的日志类型
+     * @return 是否为 log4j2
+     */
+    private static boolean isLog4j2(Class<?> type, Class<?> loggerType) {
+        if (!Reflections.hasClass("org.apache.logging.log4j.util.StringBuilderFormattable")) {
+            return false;
+        }
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            if ("org.apache.logging.slf4j.Log4jLogger".equals(clazz.getName())) {
+                return true;
+            }
+        }
+        return "org.apache.logging.log4j.Logger".equals(loggerType.getName());
+    }
+
+    /**
+     * 按名称获取日志后端, 依次尝试 slf4j、log4j2、log4j
+     *
+     * @param name 日志名称
+     * @return Logger
+     */
+    static Object getLogger(String name) {
+        if (logger_factory == null) {
+            throw new IllegalArgumentException("当前运行环境未引入slf4j、log4j2或log4j依赖,无法按名称获取日志");
+        }
+        try {
+            return logger_factory.invokeExact(name);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        }
+    }
+
+    /**
+     * 查找按名称获取日志后端的工厂方法
+     *
+     * @return (String)Object, 没有日志框架时为 null
+     */
+    private static MethodHandle findLoggerFactory() {
+        String[][] factories = {
+                {"org.slf4j.LoggerFactory", "getLogger"}
+                , {"org.apache.logging.log4j.LogManager", "getLogger"}
+                , {"org.apache.log4j.Logger", "getLogger"}};
+        for (String[] factory : factories) {
+            if (!Reflections.hasClass(factory[0])) {
+                continue;
+            }
+            try {
+                return MethodHandles.publicLookup()
+                        .unreflect(Reflections.getMethod(factory[0], factory[1], String.class))
+                        .asType(MethodType.methodType(Object.class, String.class));
+            } catch (Throwable throwable) {
+                // 继续尝试下一个日志框架
+            }
+        }
+        return null;
+    }
+}
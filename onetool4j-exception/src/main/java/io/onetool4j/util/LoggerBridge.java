@@ -0,0 +1,575 @@
+package io.onetool4j.util;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 2024/2/20 10:12
+ * 日志后端桥接
+ * <p>
+ * 每种日志类型只生成一次, 通过 LambdaMetafactory 把后端的 isXxxEnabled / xxx 方法编译成普通的接口调用,
+ * 避免 Method.invoke 的反射开销、Boolean 装箱以及 InvocationTargetException 包装
+ *
+ * @author yinbingqiu
+ */
+public final class LoggerBridge {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    /**
+     * 桥接缓存
+     */
+    private static final Map<Class<?>, LoggerBridge> bridge_cache = new ConcurrentHashMap<>();
+
+    /**
+     * 日志类型
+     */
+    final Class<?> loggerType;
+    /**
+     * trace 级别
+     */
+    final LevelBridge trace;
+    /**
+     * debug 级别
+     */
+    final LevelBridge debug;
+    /**
+     * info 级别
+     */
+    final LevelBridge info;
+    /**
+     * warn 级别
+     */
+    final LevelBridge warn;
+    /**
+     * error 级别
+     */
+    final LevelBridge error;
+    /**
+     * 支持上下文的适配器, 见 ContextAware, 不支持时为 null
+     */
+    final ContextAware contextAdapter;
+
+    /**
+     * 构造方法
+     */
+    private LoggerBridge(Class<?> loggerType
+            , LevelBridge trace
+            , LevelBridge debug
+            , LevelBridge info
+            , LevelBridge warn
+            , LevelBridge error
+            , ContextAware contextAdapter) {
+        this.loggerType = loggerType;
+        this.trace = trace;
+        this.debug = debug;
+        this.info = info;
+        this.warn = warn;
+        this.error = error;
+        this.contextAdapter = contextAdapter;
+    }
+
+    /**
+     * 获取日志类型对应的桥接
+     *
+     * @param loggerType 日志类型, 需要提供 slf4j 风格的 isXxxEnabled / xxx(String, Object...) 方法, 或者是 log4j 1.x Logger
+     * @return LoggerBridge
+     */
+    public static LoggerBridge of(Class<?> loggerType) {
+        assert loggerType != null;
+        return bridge_cache.computeIfAbsent(loggerType, LoggerBridge::create);
+    }
+
+    /**
+     * 通过 LoggerAdapter 生成桥接, 每个级别绑定一次 LoggerAdapter.Level
+     *
+     * @param loggerType 日志类型
+     * @param adapter    适配器
+     * @return LoggerBridge
+     */
+    public static LoggerBridge of(Class<?> loggerType, LoggerAdapter adapter) {
+        assert loggerType != null;
+        assert adapter != null;
+        return new LoggerBridge(loggerType
+                , adapt(adapter, LoggerAdapter.Level.TRACE)
+                , adapt(adapter, LoggerAdapter.Level.DEBUG)
+                , adapt(adapter, LoggerAdapter.Level.INFO)
+                , adapt(adapter, LoggerAdapter.Level.WARN)
+                , adapt(adapter, LoggerAdapter.Level.ERROR)
+                , adapter instanceof ContextAware ? (ContextAware) adapter : null);
+    }
+
+    /**
+     * 生成 LoggerAdapter 的级别桥接
+     *
+     * @param adapter 适配器
+     * @param level   级别
+     * @return LevelBridge
+     */
+    private static LevelBridge adapt(LoggerAdapter adapter, LoggerAdapter.Level level) {
+        return new LevelBridge(logger -> adapter.isEnabled(logger, level)
+                , (logger, format) -> adapter.log(logger, level, format)
+                , (logger, format, argument) -> adapter.log(logger, level, format, argument)
+                , (logger, format, argument1, argument2) -> adapter.log(logger, level, format, argument1, argument2)
+                , (logger, format, argument1, argument2, argument3) -> adapter.log(logger, level, format, argument1, argument2, argument3)
+                , (logger, format, argument1, argument2, argument3, argument4) -> adapter.log(logger, level, format, argument1, argument2, argument3, argument4)
+                , (logger, format, arguments) -> adapter.log(logger, level, format, arguments));
+    }
+
+    /**
+     * 生成桥接
+     *
+     * @param loggerType 日志类型
+     * @return LoggerBridge
+     */
+    private static LoggerBridge create(Class<?> loggerType) {
+        try {
+            if ("org.apache.log4j.Logger".equals(loggerType.getName())) {
+                return createLog4j(loggerType);
+            }
+            return new LoggerBridge(loggerType
+                    , createLevel(loggerType, "trace", "isTraceEnabled")
+                    , createLevel(loggerType, "debug", "isDebugEnabled")
+                    , createLevel(loggerType, "info", "isInfoEnabled")
+                    , createLevel(loggerType, "warn", "isWarnEnabled")
+                    , createLevel(loggerType, "error", "isErrorEnabled")
+                    , null);
+        } catch (Throwable throwable) {
+            throw new IllegalArgumentException("无法生成日志桥接:" + loggerType.getName(), throwable);
+        }
+    }
+
+    /**
+     * 生成 slf4j / log4j2 / logback 风格的级别桥接, 这些后端都提供 xxx(String, Object...) 方法
+     *
+     * @param loggerType        日志类型
+     * @param levelMethod       日志方法名
+     * @param enabledMethodName 级别判断方法名
+     * @return LevelBridge
+     */
+    private static LevelBridge createLevel(Class<?> loggerType, String levelMethod, String enabledMethodName) throws Throwable {
+        MethodHandle enabled = lookup.findVirtual(loggerType, enabledMethodName, MethodType.methodType(boolean.class));
+        MethodHandle log0 = lookup.findVirtual(loggerType, levelMethod, MethodType.methodType(void.class, String.class));
+        MethodHandle log1 = lookup.findVirtual(loggerType, levelMethod, MethodType.methodType(void.class, String.class, Object.class));
+        MethodHandle log2 = lookup.findVirtual(loggerType, levelMethod, MethodType.methodType(void.class, String.class, Object.class, Object.class));
+        MethodHandle logN = lookup.findVirtual(loggerType, levelMethod, MethodType.methodType(void.class, String.class, Object[].class));
+        LogCallN logCallN = lambda(LogCallN.class, "log", logN);
+
+        // log4j2 提供最多 10 个参数的固定参数方法, 直接调用可以走可复用消息, slf4j 最多只有 2 个, 需要构造数组
+        MethodHandle log3 = findOptional(loggerType, levelMethod, String.class, Object.class, Object.class, Object.class);
+        MethodHandle log4 = findOptional(loggerType, levelMethod, String.class, Object.class, Object.class, Object.class, Object.class);
+        return new LevelBridge(lambda(EnabledCheck.class, "isEnabled", enabled)
+                , lambda(LogCall0.class, "log", log0)
+                , lambda(LogCall1.class, "log", log1)
+                , lambda(LogCall2.class, "log", log2)
+                , log3 != null ? lambda(LogCall3.class, "log", log3)
+                : (logger, format, argument1, argument2, argument3) -> logCallN.log(logger, format, new Object[]{argument1, argument2, argument3})
+                , log4 != null ? lambda(LogCall4.class, "log", log4)
+                : (logger, format, argument1, argument2, argument3, argument4) -> logCallN.log(logger, format, new Object[]{argument1, argument2, argument3, argument4})
+                , logCallN);
+    }
+
+    /**
+     * 查找日志方法, 不存在时返回 null
+     *
+     * @param loggerType     日志类型
+     * @param levelMethod    日志方法名
+     * @param parameterTypes 参数类型
+     * @return MethodHandle
+     */
+    private static MethodHandle findOptional(Class<?> loggerType, String levelMethod, Class<?>... parameterTypes) throws IllegalAccessException {
+        try {
+            return lookup.findVirtual(loggerType, levelMethod, MethodType.methodType(void.class, parameterTypes));
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 生成 log4j 1.x 的桥接, log4j 1.x 只有 xxx(Object) / xxx(Object, Throwable) 方法, 由桥接负责格式化消息
+     *
+     * @param loggerType 日志类型
+     * @return LoggerBridge
+     */
+    private static LoggerBridge createLog4j(Class<?> loggerType) throws Throwable {
+        Class<?> priorityType = Class.forName("org.apache.log4j.Priority", false, loggerType.getClassLoader());
+        Class<?> levelType = Class.forName("org.apache.log4j.Level", false, loggerType.getClassLoader());
+        MethodHandle isEnabledFor = lookup.findVirtual(loggerType, "isEnabledFor", MethodType.methodType(boolean.class, priorityType));
+
+        EnabledCheck warnEnabled = boundEnabledCheck(isEnabledFor, levelType.getField("WARN").get(null));
+        EnabledCheck errorEnabled = boundEnabledCheck(isEnabledFor, levelType.getField("ERROR").get(null));
+
+        return new LoggerBridge(loggerType
+                , createLog4jLevel(loggerType, "trace", lambda(EnabledCheck.class, "isEnabled"
+                , lookup.findVirtual(loggerType, "isTraceEnabled", MethodType.methodType(boolean.class))))
+                , createLog4jLevel(loggerType, "debug", lambda(EnabledCheck.class, "isEnabled"
+                , lookup.findVirtual(loggerType, "isDebugEnabled", MethodType.methodType(boolean.class))))
+                , createLog4jLevel(loggerType, "info", lambda(EnabledCheck.class, "isEnabled"
+                , lookup.findVirtual(loggerType, "isInfoEnabled", MethodType.methodType(boolean.class))))
+                , createLog4jLevel(loggerType, "warn", warnEnabled)
+                , createLog4jLevel(loggerType, "error", errorEnabled)
+                , null);
+    }
+
+    /**
+     * 生成 log4j 1.x 的级别桥接
+     *
+     * @param loggerType  日志类型
+     * @param levelMethod 日志方法名
+     * @param enabled     级别判断
+     * @return LevelBridge
+     */
+    private static LevelBridge createLog4jLevel(Class<?> loggerType, String levelMethod, EnabledCheck enabled) throws Throwable {
+        MessageCall message = lambda(MessageCall.class, "log"
+                , lookup.findVirtual(loggerType, levelMethod, MethodType.methodType(void.class, Object.class)));
+        ThrowableMessageCall throwableMessage = lambda(ThrowableMessageCall.class, "log"
+                , lookup.findVirtual(loggerType, levelMethod, MethodType.methodType(void.class, Object.class, Throwable.class)));
+
+        LogCallN logN = (logger, format, arguments) -> {
+            Throwable throwable = null;
+            if (arguments != null && arguments.length > 0 && arguments[arguments.length - 1] instanceof Throwable) {
+                throwable = (Throwable) arguments[arguments.length - 1];
+            }
+            String text = format == null ? null : MessageTemplate.of(format).format(arguments);
+            if (throwable == null) {
+                message.log(logger, text);
+            } else {
+                throwableMessage.log(logger, text, throwable);
+            }
+        };
+        return new LevelBridge(enabled
+                , (logger, format) -> message.log(logger, format)
+                , (logger, format, argument) -> logN.log(logger, format, new Object[]{argument})
+                , (logger, format, argument1, argument2) -> logN.log(logger, format, new Object[]{argument1, argument2})
+                , (logger, format, argument1, argument2, argument3) -> logN.log(logger, format, new Object[]{argument1, argument2, argument3})
+                , (logger, format, argument1, argument2, argument3, argument4) -> logN.log(logger, format, new Object[]{argument1, argument2, argument3, argument4})
+                , logN);
+    }
+
+    /**
+     * 绑定了级别参数的 isEnabledFor, 不是直接方法句柄, 无法使用 LambdaMetafactory
+     *
+     * @param isEnabledFor isEnabledFor(Priority)
+     * @param level        级别
+     * @return EnabledCheck
+     */
+    private static EnabledCheck boundEnabledCheck(MethodHandle isEnabledFor, Object level) {
+        MethodHandle handle = MethodHandles.insertArguments(isEnabledFor, 1, level)
+                .asType(MethodType.methodType(boolean.class, Object.class));
+        return logger -> {
+            try {
+                return (boolean) handle.invokeExact(logger);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable throwable) {
+                throw new RuntimeException(throwable);
+            }
+        };
+    }
+
+    /**
+     * 把直接方法句柄编译成函数式接口实例
+     *
+     * @param samType 函数式接口
+     * @param samName 接口方法名
+     * @param impl    实现方法句柄
+     * @param <T>     函数式接口类型
+     * @return 函数式接口实例
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T lambda(Class<T> samType, String samName, MethodHandle impl) throws Throwable {
+        // 接收者类型擦除为 Object, 其余参数类型与后端方法一致
+        MethodType samMethodType = impl.type().changeParameterType(0, Object.class);
+        if (!isVisible(impl.type().parameterType(0))) {
+            // 日志类型对当前类加载器不可见时, 生成的 lambda 类无法链接, 退化为调用方法句柄
+            return (T) invoker(samType, impl.asType(samMethodType));
+        }
+        CallSite callSite = LambdaMetafactory.metafactory(lookup
+                , samName
+                , MethodType.methodType(samType)
+                , samMethodType
+                , impl
+                , impl.type());
+        return (T) callSite.getTarget().invoke();
+    }
+
+    /**
+     * 通过 invokeExact 调用方法句柄的函数式接口实例, 用于日志类型对当前类加载器不可见的情况.
+     * 接口是包内可见的, 不能使用 MethodHandleProxies
+     *
+     * @param samType 函数式接口
+     * @param handle  接收者类型已擦除为 Object 的方法句柄
+     * @return 函数式接口实例
+     */
+    private static Object invoker(Class<?> samType, MethodHandle handle) {
+        if (samType == EnabledCheck.class) {
+            return (EnabledCheck) logger -> {
+                try {
+                    return (boolean) handle.invokeExact(logger);
+                } catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+        if (samType == LogCall0.class) {
+            return (LogCall0) (logger, format) -> {
+                try {
+                    handle.invokeExact(logger, format);
+                } catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+        if (samType == LogCall1.class) {
+            return (LogCall1) (logger, format, argument) -> {
+                try {
+                    handle.invokeExact(logger, format, argument);
+                } catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+        if (samType == LogCall2.class) {
+            return (LogCall2) (logger, format, argument1, argument2) -> {
+                try {
+                    handle.invokeExact(logger, format, argument1, argument2);
+                } catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+        if (samType == LogCall3.class) {
+            return (LogCall3) (logger, format, argument1, argument2, argument3) -> {
+                try {
+                    handle.invokeExact(logger, format, argument1, argument2, argument3);
+                } catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+        if (samType == LogCall4.class) {
+            return (LogCall4) (logger, format, argument1, argument2, argument3, argument4) -> {
+                try {
+                    handle.invokeExact(logger, format, argument1, argument2, argument3, argument4);
+                } catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+        if (samType == LogCallN.class) {
+            return (LogCallN) (logger, format, arguments) -> {
+                try {
+                    handle.invokeExact(logger, format, arguments);
+                } catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+        if (samType == MessageCall.class) {
+            return (MessageCall) (logger, message) -> {
+                try {
+                    handle.invokeExact(logger, message);
+                } catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+        if (samType == ThrowableMessageCall.class) {
+            return (ThrowableMessageCall) (logger, message, thrown) -> {
+                try {
+                    handle.invokeExact(logger, message, thrown);
+                } catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+        throw new IllegalArgumentException("不支持的函数式接口:" + samType.getName());
+    }
+
+    private static RuntimeException rethrow(Throwable throwable) {
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        return new RuntimeException(throwable);
+    }
+
+    /**
+     * 日志类型对当前类加载器是否可见
+     *
+     * @param loggerType 日志类型
+     * @return 是否可见
+     */
+    static boolean isVisible(Class<?> loggerType) {
+        try {
+            return Class.forName(loggerType.getName(), false, LoggerBridge.class.getClassLoader()) == loggerType;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 单个级别的桥接
+     */
+    static final class LevelBridge {
+        private final EnabledCheck enabled;
+        private final LogCall0 log0;
+        private final LogCall1 log1;
+        private final LogCall2 log2;
+        private final LogCall3 log3;
+        private final LogCall4 log4;
+        private final LogCallN logN;
+
+        LevelBridge(EnabledCheck enabled
+                , LogCall0 log0
+                , LogCall1 log1
+                , LogCall2 log2
+                , LogCall3 log3
+                , LogCall4 log4
+                , LogCallN logN) {
+            this.enabled = enabled;
+            this.log0 = log0;
+            this.log1 = log1;
+            this.log2 = log2;
+            this.log3 = log3;
+            this.log4 = log4;
+            this.logN = logN;
+        }
+
+        /**
+         * 级别是否开启
+         *
+         * @param logger 日志对象
+         * @return 是否开启
+         */
+        boolean isEnabled(Object logger) {
+            return enabled.isEnabled(logger);
+        }
+
+        /**
+         * 打印日志
+         *
+         * @param logger 日志对象
+         * @param format 格式
+         */
+        void log(Object logger, String format) {
+            log0.log(logger, format);
+        }
+
+        /**
+         * 打印日志
+         *
+         * @param logger   日志对象
+         * @param format   格式
+         * @param argument 参数
+         */
+        void log(Object logger, String format, Object argument) {
+            log1.log(logger, format, argument);
+        }
+
+        /**
+         * 打印日志
+         *
+         * @param logger    日志对象
+         * @param format    格式
+         * @param argument1 参数
+         * @param argument2 参数
+         */
+        void log(Object logger, String format, Object argument1, Object argument2) {
+            log2.log(logger, format, argument1, argument2);
+        }
+
+        /**
+         * 打印日志
+         *
+         * @param logger    日志对象
+         * @param format    格式
+         * @param argument1 参数
+         * @param argument2 参数
+         * @param argument3 参数
+         */
+        void log(Object logger, String format, Object argument1, Object argument2, Object argument3) {
+            log3.log(logger, format, argument1, argument2, argument3);
+        }
+
+        /**
+         * 打印日志
+         *
+         * @param logger    日志对象
+         * @param format    格式
+         * @param argument1 参数
+         * @param argument2 参数
+         * @param argument3 参数
+         * @param argument4 参数
+         */
+        void log(Object logger, String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+            log4.log(logger, format, argument1, argument2, argument3, argument4);
+        }
+
+        /**
+         * 打印日志
+         *
+         * @param logger    日志对象
+         * @param format    格式
+         * @param arguments 参数
+         */
+        void log(Object logger, String format, Object[] arguments) {
+            if (arguments == null) {
+                log0.log(logger, format);
+            } else {
+                logN.log(logger, format, arguments);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface EnabledCheck {
+        boolean isEnabled(Object logger);
+    }
+
+    @FunctionalInterface
+    interface LogCall0 {
+        void log(Object logger, String format);
+    }
+
+    @FunctionalInterface
+    interface LogCall1 {
+        void log(Object logger, String format, Object argument);
+    }
+
+    @FunctionalInterface
+    interface LogCall2 {
+        void log(Object logger, String format, Object argument1, Object argument2);
+    }
+
+    @FunctionalInterface
+    interface LogCall3 {
+        void log(Object logger, String format, Object argument1, Object argument2, Object argument3);
+    }
+
+    @FunctionalInterface
+    interface LogCall4 {
+        void log(Object logger, String format, Object argument1, Object argument2, Object argument3, Object argument4);
+    }
+
+    @FunctionalInterface
+    interface LogCallN {
+        void log(Object logger, String format, Object[] arguments);
+    }
+
+    @FunctionalInterface
+    interface MessageCall {
+        void log(Object logger, Object message);
+    }
+
+    @FunctionalInterface
+    interface ThrowableMessageCall {
+        void log(Object logger, Object message, Throwable throwable);
+    }
+}
@@ -0,0 +1,162 @@
+package io.onetool4j.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 2024/2/21 14:30
+ * 预编译的日志消息模板
+ * <p>
+ * 日志格式几乎都是编译期常量, 每个格式只解析一次占位符 "{}"(允许中间有空格, 如 "{ }"), 之后直接复用
+ *
+ * @author yinbingqiu
+ */
+public final class MessageTemplate {
+
+    /**
+     * 模板缓存上限, 超过上限后新的格式不再缓存, 避免动态拼接的格式撑爆内存
+     */
+    private static final int cache_threshold = Math.min(Integer.parseInt(System.getProperty("lazylogger.template.cache.threshold", "4096")), 65536);
+    /**
+     * 模板缓存
+     */
+    private static final Map<String, MessageTemplate> template_cache = new ConcurrentHashMap<>();
+    /**
+     * 没有占位符时共用的偏移量
+     */
+    private static final int[] empty_offsets = new int[0];
+
+    /**
+     * 格式
+     */
+    private final String format;
+    /**
+     * 占位符起始偏移量, 指向 '{'
+     */
+    private final int[] placeholderStarts;
+    /**
+     * 占位符结束偏移量, 指向 '}' 的下一个字符
+     */
+    private final int[] placeholderEnds;
+
+    /**
+     * 构造方法
+     */
+    private MessageTemplate(String format, int[] placeholderStarts, int[] placeholderEnds) {
+        this.format = format;
+        this.placeholderStarts = placeholderStarts;
+        this.placeholderEnds = placeholderEnds;
+    }
+
+    /**
+     * 获取格式对应的模板
+     *
+     * @param format 格式
+     * @return MessageTemplate
+     */
+    public static MessageTemplate of(String format) {
+        assert format != null;
+        MessageTemplate template = template_cache.get(format);
+        if (template != null) {
+            return template;
+        }
+
+        template = parse(format);
+        if (template_cache.size() < cache_threshold) {
+            MessageTemplate previous = template_cache.putIfAbsent(format, template);
+            if (previous != null) {
+                template = previous;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * 解析格式
+     *
+     * @param format 格式
+     * @return MessageTemplate
+     */
+    private static MessageTemplate parse(String format) {
+        int length = format.length();
+        int count = 0;
+        int[] starts = empty_offsets;
+        int[] ends = empty_offsets;
+        for (int i = 0; i < length; i++) {
+            if (format.charAt(i) != '{') {
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && format.charAt(end) == ' ') {
+                end++;
+            }
+            if (end < length && format.charAt(end) == '}') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, Math.max(4, count * 2));
+                    ends = Arrays.copyOf(ends, starts.length);
+                }
+                starts[count] = i;
+                ends[count] = end + 1;
+                count++;
+                i = end;
+            }
+        }
+
+        if (count != starts.length) {
+            starts = Arrays.copyOf(starts, count);
+            ends = Arrays.copyOf(ends, count);
+        }
+        return new MessageTemplate(format, starts, ends);
+    }
+
+    /**
+     * 格式
+     *
+     * @return 格式
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * 占位符数量
+     *
+     * @return 占位符数量
+     */
+    public int getPlaceholderCount() {
+        return placeholderStarts.length;
+    }
+
+    /**
+     * 按占位符顺序填充参数, 参数不足时保留占位符原文, 多余的参数忽略
+     *
+     * @param arguments 参数
+     * @return 消息
+     */
+    public String format(Object[] arguments) {
+        if (arguments == null || arguments.length == 0 || placeholderStarts.length == 0) {
+            return format;
+        }
+        StringBuilder builder = new StringBuilder(format.length() + 16 * arguments.length);
+        formatTo(builder, arguments);
+        return builder.toString();
+    }
+
+    /**
+     * 按占位符顺序填充参数到 builder
+     *
+     * @param builder   StringBuilder
+     * @param arguments 参数
+     */
+    public void formatTo(StringBuilder builder, Object[] arguments) {
+        int argumentCount = arguments == null ? 0 : arguments.length;
+        int count = Math.min(placeholderStarts.length, argumentCount);
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            builder.append(format, start, placeholderStarts[i]).append(arguments[i]);
+            start = placeholderEnds[i];
+        }
+        builder.append(format, start, format.length());
+    }
+}
@@ -0,0 +1,236 @@
+package io.onetool4j.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 2024/3/8 10:30
+ * LazyLogger 重复日志聚合
+ * <p>
+ * 不带异常的日志按级别与格式模板分组, 时间窗口内只输出第一条, 其余只计数, 窗口结束后输出一条 "repeated N times in Ws".
+ * 窗口结束后的第一条日志或后台线程(每秒一次)负责输出汇总, 带异常的日志仍由 SummaryExceptions 摘要
+ *
+ * @author yinbingqiu
+ */
+final class RepeatAggregator {
+
+    /**
+     * 汇总的格式
+     */
+    static final String repeated_format = "[{}] repeated {} times in {}s";
+    /**
+     * 放弃输出
+     */
+    static final long DROP = -1;
+    /**
+     * 窗口关闭的标记, 计数为负表示窗口已经关闭
+     */
+    private static final long CLOSED = Long.MIN_VALUE;
+    /**
+     * 每个级别的格式模板上限, 超过上限的格式不聚合
+     */
+    private static final int template_threshold = Math.min(Integer.parseInt(System.getProperty("lazylogger.repeat.template.threshold", "1024")), 65536);
+    /**
+     * 后台输出汇总的间隔
+     */
+    private static final long sweep_millis = 1000;
+
+    /**
+     * 开启了聚合的 LazyLogger
+     */
+    private static final Map<LazyLogger, Boolean> registry = new WeakHashMap<>();
+    /**
+     * 后台线程, 第一次需要时创建
+     */
+    private static ScheduledExecutorService sweeper;
+
+    /**
+     * 时间窗口
+     */
+    private final long windowNanos;
+    /**
+     * 时间窗口, 秒, 用于输出
+     */
+    private final long windowSeconds;
+    /**
+     * 级别 -> 格式模板 -> 当前窗口, 同一格式的不同级别分别聚合, 不会把 ERROR 计入 WARN 的窗口
+     */
+    private final Map<LoggerBridge.LevelBridge, Map<String, Window>> levels = new ConcurrentHashMap<>();
+
+    /**
+     * 构造方法
+     *
+     * @param windowNanos 时间窗口, 纳秒
+     */
+    RepeatAggregator(long windowNanos) {
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("聚合时间窗口必须大于 0");
+        }
+        this.windowNanos = windowNanos;
+        this.windowSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(windowNanos));
+    }
+
+    /**
+     * 注册 LazyLogger, 后台线程定时输出已结束窗口的汇总
+     *
+     * @param logger LazyLogger
+     */
+    static void register(LazyLogger logger) {
+        synchronized (registry) {
+            registry.put(logger, Boolean.TRUE);
+            if (sweeper == null) {
+                sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "lazy-logger-repeat-sweep");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                sweeper.scheduleWithFixedDelay(RepeatAggregator::sweepAll, sweep_millis, sweep_millis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 输出所有 LazyLogger 已结束窗口的汇总
+     */
+    private static void sweepAll() {
+        List<LazyLogger> loggers;
+        synchronized (registry) {
+            loggers = new ArrayList<>(registry.keySet());
+        }
+        for (LazyLogger logger : loggers) {
+            try {
+                logger.sweepRepeated();
+            } catch (Throwable throwable) {
+                // 单个日志后端异常不影响其它 LazyLogger
+                LogStatus.report("report repeated messages failed", throwable);
+            }
+        }
+    }
+
+    /**
+     * 判断是否输出
+     *
+     * @param level  级别桥接
+     * @param format 格式
+     * @return DROP 表示窗口内重复, 不输出; 否则为输出前需要补充汇总的上一个窗口的重复次数
+     */
+    long tryAdmit(LoggerBridge.LevelBridge level, String format) {
+        if (format == null) {
+            return 0;
+        }
+        Map<String, Window> windows = levels.get(level);
+        if (windows == null) {
+            windows = levels.computeIfAbsent(level, k -> new ConcurrentHashMap<>());
+        }
+        while (true) {
+            long now = System.nanoTime();
+            Window window = windows.get(format);
+            if (window == null) {
+                if (windows.size() >= template_threshold) {
+                    return 0;
+                }
+                if (windows.putIfAbsent(format, new Window(level, now)) == null) {
+                    return 0;
+                }
+                continue;
+            }
+
+            if (now - window.start < windowNanos) {
+                if (window.repeats.getAndIncrement() >= 0) {
+                    return DROP;
+                }
+                // 窗口已被其它线程关闭, 重试
+                continue;
+            }
+
+            long repeats = close(windows, format, window);
+            if (repeats >= 0 && windows.putIfAbsent(format, new Window(level, now)) == null) {
+                return repeats;
+            }
+            if (repeats > 0) {
+                // 新窗口已被其它线程开启, 汇总仍需要输出
+                return repeats;
+            }
+        }
+    }
+
+    /**
+     * 关闭已结束的窗口
+     *
+     * @param consumer 汇总输出
+     */
+    void sweep(RepeatConsumer consumer) {
+        long now = System.nanoTime();
+        for (Map<String, Window> windows : levels.values()) {
+            for (Map.Entry<String, Window> entry : windows.entrySet()) {
+                Window window = entry.getValue();
+                if (now - window.start < windowNanos) {
+                    continue;
+                }
+                long repeats = close(windows, entry.getKey(), window);
+                if (repeats > 0) {
+                    consumer.accept(window.level, entry.getKey(), repeats);
+                }
+            }
+        }
+    }
+
+    /**
+     * 关闭窗口, 只有一个线程能关闭成功
+     *
+     * @param windows 窗口所属级别的窗口
+     * @param format  格式
+     * @param window  窗口
+     * @return 关闭成功时返回重复次数, 否则返回 -1
+     */
+    private static long close(Map<String, Window> windows, String format, Window window) {
+        if (!windows.remove(format, window)) {
+            return -1;
+        }
+        return window.repeats.getAndSet(CLOSED);
+    }
+
+    /**
+     * 汇总输出的时间窗口, 秒
+     *
+     * @return 秒
+     */
+    long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /**
+     * 时间窗口
+     */
+    private static final class Window {
+        /**
+         * 窗口的级别, 汇总按这个级别输出
+         */
+        private final LoggerBridge.LevelBridge level;
+        /**
+         * 窗口开始时间
+         */
+        private final long start;
+        /**
+         * 重复次数
+         */
+        private final AtomicLong repeats = new AtomicLong();
+
+        Window(LoggerBridge.LevelBridge level, long start) {
+            this.level = level;
+            this.start = start;
+        }
+    }
+
+    /**
+     * 汇总输出
+     */
+    @FunctionalInterface
+    interface RepeatConsumer {
+        void accept(LoggerBridge.LevelBridge level, String format, long repeats);
+    }
+}
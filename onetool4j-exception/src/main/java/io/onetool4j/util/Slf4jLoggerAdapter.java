@@ -0,0 +1,136 @@
+package io.onetool4j.util;
+
+import org.slf4j.Logger;
+import org.slf4j.MDC;
+
+/**
+ * 2024/3/18 10:30
+ * slf4j 适配器, logback 的 ch.qos.logback.classic.Logger 实现了 org.slf4j.Logger, 同样使用该适配器.
+ * 键值对写入 MDC
+ *
+ * @author yinbingqiu
+ */
+final class Slf4jLoggerAdapter implements LoggerAdapter, ContextAware {
+
+    @Override
+    public String loggerTypeName() {
+        return "org.slf4j.Logger";
+    }
+
+    @Override
+    public boolean isEnabled(Object logger, Level level) {
+        Logger log = (Logger) logger;
+        switch (level) {
+            case TRACE:
+                return log.isTraceEnabled();
+            case DEBUG:
+                return log.isDebugEnabled();
+            case INFO:
+                return log.isInfoEnabled();
+            case WARN:
+                return log.isWarnEnabled();
+            default:
+                return log.isErrorEnabled();
+        }
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format) {
+        Logger log = (Logger) logger;
+        switch (level) {
+            case TRACE:
+                log.trace(format);
+                break;
+            case DEBUG:
+                log.debug(format);
+                break;
+            case INFO:
+                log.info(format);
+                break;
+            case WARN:
+                log.warn(format);
+                break;
+            default:
+                log.error(format);
+        }
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object argument) {
+        Logger log = (Logger) logger;
+        switch (level) {
+            case TRACE:
+                log.trace(format, argument);
+                break;
+            case DEBUG:
+                log.debug(format, argument);
+                break;
+            case INFO:
+                log.info(format, argument);
+                break;
+            case WARN:
+                log.warn(format, argument);
+                break;
+            default:
+                log.error(format, argument);
+        }
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object argument1, Object argument2) {
+        Logger log = (Logger) logger;
+        switch (level) {
+            case TRACE:
+                log.trace(format, argument1, argument2);
+                break;
+            case DEBUG:
+                log.debug(format, argument1, argument2);
+                break;
+            case INFO:
+                log.info(format, argument1, argument2);
+                break;
+            case WARN:
+                log.warn(format, argument1, argument2);
+                break;
+            default:
+                log.error(format, argument1, argument2);
+        }
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object[] arguments) {
+        Logger log = (Logger) logger;
+        switch (level) {
+            case TRACE:
+                log.trace(format, arguments);
+                break;
+            case DEBUG:
+                log.debug(format, arguments);
+                break;
+            case INFO:
+                log.info(format, arguments);
+                break;
+            case WARN:
+                log.warn(format, arguments);
+                break;
+            default:
+                log.error(format, arguments);
+        }
+    }
+
+    @Override
+    public String putContext(String key, String value) {
+        String previous = MDC.get(key);
+        MDC.put(key, value);
+        return previous;
+    }
+
+    @Override
+    public void restoreContext(String key, String previous) {
+        if (previous == null) {
+            MDC.remove(key);
+        } else {
+            MDC.put(key, previous);
+        }
+    }
+}
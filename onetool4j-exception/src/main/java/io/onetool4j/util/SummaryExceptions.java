@@ -1,5 +1,7 @@
 package io.onetool4j.util;
 
+import io.onetool4j.exception.SummaryException;
+
 import java.util.*;
 
 /**
@@ -24,22 +26,27 @@ public abstract class SummaryExceptions extends RuntimeException {
      * Caption for labeling suppressed exception stack traces
      */
     private static final String SUPPRESSED_CAPTION = "Suppressed: ";
+    /**
+     * 计算异常指纹时异常链的最大深度, 防止 getCause 成环
+     */
+    private static final int MAX_CAUSE_DEPTH = 64;
+    private static final long FINGERPRINT_SEED = 0x9E3779B97F4A7C15L;
+    private static final long FINGERPRINT_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
     /**
      * 用于生成随机字符串
      */
     private static final String characters = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
     /**
-     * 异常合并缓存
+     * 异常合并缓存, 见 SummaryRegistry, 按条数(默认 2000)与可选的近似内存占用(字节, 默认不限制)淘汰
      */
-    private static final Map<SummaryKey, SummaryStats> stack_traces = new LinkedHashMap<SummaryKey, SummaryStats>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<SummaryKey, SummaryStats> eldest) {
-            return size() > Math.min(Integer.parseInt(System.getProperty("exception.supportSummary.stack.cache.threshold", "2000")), 2000);
-        }
-    };
+    private static final SummaryRegistry<SummaryKey> stack_traces = new SummaryRegistry<>(
+            Integer.parseInt(System.getProperty("exception.supportSummary.stack.cache.threshold", "2000"))
+            , Long.parseLong(System.getProperty("exception.supportSummary.stack.cache.bytes", "0"))
+            , SummaryKey::searchKey);
 
     /**
-     * 生成随机字符串
+     * 生成随机字符串, 摘要的搜索 key 已改为确定的异常指纹, 见 getSummaryKey
      *
      * @param length 长度
      * @return 随机字符串
@@ -59,76 +66,152 @@ public abstract class SummaryExceptions extends RuntimeException {
     }
 
     /**
+     * 异常堆栈或摘要, 同一异常指纹在窗口内只输出一次完整堆栈, 之后只输出摘要
      *
+     * @param throwable         异常
+     * @param lock              日志对象, 为 null 时不输出; 注册表是并发的, 不再在其上加锁
+     * @param excludeClassList  不输出的类
+     * @param countThreshold    窗口内的次数阈值
+     * @param durationThreshold 窗口时长, 毫秒
+     * @return 堆栈或摘要
      */
     public static String getFullStackTrace(Throwable throwable, Object lock, Set<String> excludeClassList, int countThreshold, int durationThreshold) {
         if (throwable == null || lock == null) {
             return "";
         }
+        // 输出摘要前先输出当前线程的飞行记录, 见 LazyLogger#flightRecorder
+        String recorded = FlightRecorder.active && throwable instanceof SummaryException
+                ? FlightRecorder.drain("summary exception")
+                : null;
+
+        StringBuilder builder = new StringBuilder();
+        if (recorded != null) {
+            builder.append(recorded).append("\n");
+        }
+
+        SummaryKey summaryKey = getSummaryKey(throwable, excludeClassList);
+        SummaryRegistry.Admission admission = stack_traces.acquire(summaryKey, countThreshold, durationThreshold);
+        SummaryRegistry.Window window = admission.window;
+        if (admission.fresh) {
+            builder.append(throwable).append("\n");
+            builder.append("\tsummary exception search key[").append(window.searchKey).append("] ").append(countThreshold).append("times/").append(durationThreshold / 1000).append("s").append("\n");
+            // 同一指纹的堆栈通常相同, 新窗口只重新生成头部; 指纹只取栈顶与栈底,
+            // cause 的消息、中间帧、suppressed 异常与 excludeClassList 都可能不同, 内容哈希相同时才复用上一个窗口渲染的结果
+            long bodyHash = bodyHash(throwable, excludeClassList);
+            String body = stack_traces.body(window, bodyHash);
+            if (body == null) {
+                body = renderBody(throwable, excludeClassList);
+                stack_traces.body(window, bodyHash, body);
+            }
+            builder.append(body);
+        } else {
+            String summaryMessage = window.summaryMessage;
+            if (summaryMessage == null) {
+                summaryMessage = stack_traces.summaryMessage(window, throwable + "\n" +
+                        "\tsummary exception search key[" + window.searchKey + "] " + countThreshold + "times/" + durationThreshold / 1000 + "s" + "\n");
+            }
+            builder.append(summaryMessage);
+        }
+
+        return builder.toString();
+    }
 
+    /**
+     * 渲染堆栈、suppressed 异常与 cause, 不包括第一行的异常信息
+     *
+     * @param throwable        异常
+     * @param excludeClassList 不输出的类
+     * @return 堆栈
+     */
+    private static String renderBody(Throwable throwable, Set<String> excludeClassList) {
         // Guard against malicious overrides of Throwable.equals by
         // using a Set with identity equality semantics.
         Set<Throwable> dejaVu = Collections.newSetFromMap(new IdentityHashMap<>());
         dejaVu.add(throwable);
         StringBuilder builder = new StringBuilder();
 
-        synchronized (lock) {
-            SummaryKey summaryKey = getSummaryKey(throwable, excludeClassList);
-            SummaryStats mergeStats = stack_traces.get(summaryKey);
-            if (mergeStats == null
-                    || mergeStats.count >= countThreshold
-                    || (System.currentTimeMillis() - mergeStats.timestamp) > durationThreshold) {
-                mergeStats = new SummaryStats(generateRandomString(16));
-                stack_traces.put(summaryKey, mergeStats);
-
-                // Print our stack traceElements
-                builder.append(throwable).append("\n");
-                builder.append("\tsummary exception search key[").append(mergeStats.uuid).append("] ").append(countThreshold).append("times/").append(durationThreshold / 1000).append("s").append("\n");
-                StackTraceElement[] traceElements = throwable.getStackTrace();
-
-                for (StackTraceElement traceElement : traceElements) {
-                    if (!excludeClassList.contains(traceElement.getClassName())) {
-                        builder.append("\tat ").append(traceElement).append("\n");
-                    }
-                }
+        // Print our stack traceElements
+        StackTraceElement[] traceElements = throwable.getStackTrace();
+        for (StackTraceElement traceElement : traceElements) {
+            if (!excludeClassList.contains(traceElement.getClassName())) {
+                builder.append("\tat ").append(traceElement).append("\n");
+            }
+        }
 
-                // Print suppressed exceptions, if any
-                for (Throwable se : throwable.getSuppressed()) {
-                    appendEnclosedStackTrace(builder, se, lock, traceElements, SUPPRESSED_CAPTION, "\t", dejaVu, excludeClassList);
-                }
+        // Print suppressed exceptions, if any
+        for (Throwable se : throwable.getSuppressed()) {
+            appendEnclosedStackTrace(builder, se, traceElements, SUPPRESSED_CAPTION, "\t", dejaVu, excludeClassList);
+        }
 
 
-                // Print cause, if any
-                Throwable ourCause = throwable.getCause();
-                if (ourCause != null) {
-                    appendEnclosedStackTrace(builder, ourCause, lock, traceElements, CAUSE_CAPTION, "", dejaVu, excludeClassList);
-                }
-            } else {
-                mergeStats.increment();
-                if (mergeStats.summaryMessage == null) {
-                    mergeStats.summaryMessage = throwable + "\n" +
-                            "\tsummary exception search key[" + mergeStats.uuid + "] " + countThreshold + "times/" + durationThreshold / 1000 + "s" + "\n";
-                }
-                builder.append(mergeStats.summaryMessage);
-            }
+        // Print cause, if any
+        Throwable ourCause = throwable.getCause();
+        if (ourCause != null) {
+            appendEnclosedStackTrace(builder, ourCause, traceElements, CAUSE_CAPTION, "", dejaVu, excludeClassList);
         }
-
         return builder.toString();
     }
 
+    /**
+     * 堆栈内容的哈希, 遍历顺序与 renderBody 相同, 混合 cause 与 suppressed 异常的 toString、
+     * 每一帧的 hashCode 以及该帧是否被 excludeClassList 排除, 不渲染帧
+     *
+     * @param throwable        异常
+     * @param excludeClassList 不输出的类
+     * @return 哈希
+     */
+    private static long bodyHash(Throwable throwable, Set<String> excludeClassList) {
+        Set<Throwable> dejaVu = Collections.newSetFromMap(new IdentityHashMap<>());
+        dejaVu.add(throwable);
+        long hash = mixFrames(FINGERPRINT_SEED, throwable.getStackTrace(), excludeClassList);
+        for (Throwable se : throwable.getSuppressed()) {
+            hash = mixEnclosed(hash, se, SUPPRESSED_CAPTION, dejaVu, excludeClassList);
+        }
+        Throwable ourCause = throwable.getCause();
+        if (ourCause != null) {
+            hash = mixEnclosed(hash, ourCause, CAUSE_CAPTION, dejaVu, excludeClassList);
+        }
+        return fmix64(hash);
+    }
+
+    private static long mixEnclosed(long hash, Throwable se, String caption, Set<Throwable> dejaVu, Set<String> excludeClassList) {
+        hash = mix(hash, caption.hashCode());
+        hash = mix(hash, se.toString().hashCode());
+        if (!dejaVu.add(se)) {
+            return mix(hash, -1);
+        }
+        hash = mixFrames(hash, se.getStackTrace(), excludeClassList);
+        for (Throwable suppressed : se.getSuppressed()) {
+            hash = mixEnclosed(hash, suppressed, SUPPRESSED_CAPTION, dejaVu, excludeClassList);
+        }
+        Throwable ourCause = se.getCause();
+        if (ourCause != null) {
+            hash = mixEnclosed(hash, ourCause, CAUSE_CAPTION, dejaVu, excludeClassList);
+        }
+        // 嵌套结束, 区分同级与下一级
+        return mix(hash, 0);
+    }
+
+    private static long mixFrames(long hash, StackTraceElement[] traceElements, Set<String> excludeClassList) {
+        hash = mix(hash, traceElements.length);
+        for (StackTraceElement traceElement : traceElements) {
+            hash = mix(hash, traceElement.hashCode());
+            hash = mix(hash, excludeClassList.contains(traceElement.getClassName()) ? 1 : 0);
+        }
+        return hash;
+    }
+
     /**
      * 打印异常堆栈
      *
      * @param builder        StringBuilder
      * @param se             Throwable
-     * @param lock           Object
      * @param enclosingTrace StackTraceElement[]
      * @param caption        String
      * @param prefix         String
      * @param dejaVu         throwable set
      */
-    private static void appendEnclosedStackTrace(StringBuilder builder, Throwable se, Object lock, StackTraceElement[] enclosingTrace, String caption, String prefix, Set<Throwable> dejaVu, Set<String> excludeClassList) {
-        assert Thread.holdsLock(lock);
+    private static void appendEnclosedStackTrace(StringBuilder builder, Throwable se, StackTraceElement[] enclosingTrace, String caption, String prefix, Set<Throwable> dejaVu, Set<String> excludeClassList) {
         if (dejaVu.contains(se)) {
             builder.append("\t[CIRCULAR REFERENCE:").append(se).append("]").append("\n");
         } else {
@@ -160,14 +243,14 @@ public abstract class SummaryExceptions extends RuntimeException {
 
             // Print suppressed exceptions, if any
             for (Throwable suppressed : se.getSuppressed()) {
-                appendEnclosedStackTrace(builder, suppressed, lock, traceElements, SUPPRESSED_CAPTION, prefix + "\t", dejaVu, excludeClassList);
+                appendEnclosedStackTrace(builder, suppressed, traceElements, SUPPRESSED_CAPTION, prefix + "\t", dejaVu, excludeClassList);
             }
 
 
             // Print cause, if any
             Throwable ourCause = se.getCause();
             if (ourCause != null) {
-                appendEnclosedStackTrace(builder, ourCause, lock, traceElements, CAUSE_CAPTION, prefix, dejaVu, excludeClassList);
+                appendEnclosedStackTrace(builder, ourCause, traceElements, CAUSE_CAPTION, prefix, dejaVu, excludeClassList);
             }
 
         }
@@ -175,225 +258,126 @@ public abstract class SummaryExceptions extends RuntimeException {
 
 
     /**
-     * 构建异常堆栈
+     * 异常指纹, 一次遍历异常链上每个异常的类名、栈顶与栈底(不在 excludeClassList 中的第一帧与最后一帧),
+     * 混合类名、方法名与行号得到 64 位哈希, 不创建中间对象.
+     * 只使用 String.hashCode 等确定的哈希, 同一版本的代码在不同进程、不同机器上得到相同的指纹, 以 16 位十六进制作为搜索 key.
+     * 异常已经捕获了完整堆栈, StackWalker 只能遍历当前线程的调用栈, 这里不适用
      *
-     * @param e BaseException
+     * @param e                异常
+     * @param excludeClassList 不参与计算的类
+     * @return SummaryKey
      */
     private static SummaryKey getSummaryKey(Throwable e, Set<String> excludeClassList) {
-
-        List<Throwable> throwables = new ArrayList<>();
-        Throwable cause = e;
-        while (cause != null) {
-            throwables.add(cause);
-            cause = cause.getCause();
-        }
-
-        List<StacktraceTuple> list = new ArrayList<>();
-        for (Throwable throwable : throwables) {
-            StackTraceElement[] stackTrace = throwable.getStackTrace();
+        long hash = FINGERPRINT_SEED;
+        int depth = 0;
+        for (Throwable cause = e; cause != null && depth < MAX_CAUSE_DEPTH; cause = cause.getCause(), depth++) {
+            StackTraceElement[] stackTrace = cause.getStackTrace();
             int length = stackTrace.length;
-            if (stackTrace == null || length == 0) {
+            if (length == 0) {
                 continue;
             }
 
-            StackTrace top = null;
+            StackTraceElement top = null;
             for (int i = 0; i < length; i++) {
-                StackTraceElement stackTraceElement = stackTrace[i];
-                if (!excludeClassList.contains(stackTraceElement.getClassName())) {
-                    top = new StackTrace();
-                    top.className = stackTraceElement.getClassName();
-                    top.methodName = stackTraceElement.getMethodName();
-                    top.lineNumber = stackTraceElement.getLineNumber();
+                if (!excludeClassList.contains(stackTrace[i].getClassName())) {
+                    top = stackTrace[i];
                     break;
                 }
             }
-            StackTrace buttom = null;
+            StackTraceElement bottom = null;
             for (int i = length - 1; i >= 1; i--) {
-                StackTraceElement stackTraceElement = stackTrace[i];
-                if (!excludeClassList.contains(stackTraceElement.getClassName())) {
-                    buttom = new StackTrace();
-                    buttom.className = stackTraceElement.getClassName();
-                    buttom.methodName = stackTraceElement.getMethodName();
-                    buttom.lineNumber = stackTraceElement.getLineNumber();
+                if (!excludeClassList.contains(stackTrace[i].getClassName())) {
+                    bottom = stackTrace[i];
                     break;
                 }
             }
-
-            list.add(new StacktraceTuple(top, buttom));
+            // 异常之间的分隔, 区分 [a][b] 与 [a, b]
+            hash = mix(hash, depth);
+            hash = mix(hash, cause.getClass().getName().hashCode());
+            hash = mix(hash, top);
+            hash = mix(hash, bottom);
         }
+        return new SummaryKey(e.getClass().getName(), fmix64(hash));
+    }
 
-        return new SummaryKey(e, list);
+    private static long mix(long hash, StackTraceElement element) {
+        if (element == null) {
+            return mix(hash, 0x5BD1E995);
+        }
+        hash = mix(hash, element.getClassName().hashCode());
+        hash = mix(hash, element.getMethodName().hashCode());
+        return mix(hash, element.getLineNumber());
     }
 
+    private static long mix(long hash, int value) {
+        return (hash ^ (value & 0xFFFFFFFFL)) * FINGERPRINT_MULTIPLIER + 0x165667B19E3779F9L;
+    }
 
     /**
-     * StackTrace
+     * MurmurHash3 的 64 位收尾, 使每一位都受所有输入影响
+     *
+     * @param hash 哈希
+     * @return 哈希
      */
-    static class StackTrace {
-        /**
-         * className
-         */
-        private String className;
-        /**
-         * methodName
-         */
-        private String methodName;
-        /**
-         * lineNumber
-         */
-        private int lineNumber;
-
-        /**
-         * hashCode
-         */
-        @Override
-        public int hashCode() {
-            return Objects.hash(className, methodName, lineNumber);
-        }
-
-        /**
-         * equals
-         *
-         * @param obj Object
-         * @return boolean
-         */
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-
-            if (obj == null || getClass() != obj.getClass()) {
-                return false;
-            }
-            StackTrace other = (StackTrace) obj;
-            return Objects.equals(className, other.className)
-                    && Objects.equals(methodName, other.methodName)
-                    && Objects.equals(lineNumber, other.lineNumber);
-        }
+    private static long fmix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
     }
 
     /**
-     * MergeStats
+     * 异常指纹, 不可变, 按 64 位哈希比较, 不保存异常对象, 避免缓存引用异常链及其消息中的对象
      */
-    private static class SummaryStats {
+    private static final class SummaryKey {
         /**
-         * 合并时间戳
+         * 异常类名, 与 Class 共用字符串
          */
-        private long timestamp;
+        final String className;
         /**
-         * 合并次数
+         * 64 位指纹
          */
-        private int count;
+        final long fingerprint;
         /**
-         * 用于标识合并的uuid
+         * 缓存的 hashCode
          */
-        private String uuid;
+        private final int hash;
 
-        private String summaryMessage;
-
-        /**
-         * 构造方法
-         *
-         * @param uuid uuid
-         */
-        public SummaryStats(String uuid) {
-            this.timestamp = System.currentTimeMillis();
-            this.count = 1;
-            this.uuid = uuid;
-        }
-
-        /**
-         * increment
-         */
-        public void increment() {
-            this.count++;
+        SummaryKey(String className, long fingerprint) {
+            this.className = className;
+            this.fingerprint = fingerprint;
+            this.hash = (int) (fingerprint ^ (fingerprint >>> 32));
         }
-    }
-
-    private static boolean nullEquals(Object obj1, Object obj2) {
-        if (obj1 == obj2) {
-            return true;
-        }
-
-        if (obj1 == null || obj2 == null) {
-            return false;
-        }
-
-        return obj1.equals(obj2);
-    }
 
-    private static class StacktraceTuple {
         /**
-         * 栈顶
-         */
-        StackTrace topStacktrace;
-        /**
-         * 栈底
+         * 搜索 key, 16 位十六进制的指纹
+         *
+         * @return 搜索 key
          */
-        StackTrace buttomStacktrace;
-
-        public StacktraceTuple(StackTrace topStacktrace, StackTrace buttomStacktrace) {
-            this.topStacktrace = topStacktrace;
-            this.buttomStacktrace = buttomStacktrace;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null || !(obj instanceof StacktraceTuple)) {
-                return false;
+        String searchKey() {
+            char[] chars = new char[16];
+            for (int i = 15; i >= 0; i--) {
+                chars[i] = HEX_DIGITS[(int) ((fingerprint >>> ((15 - i) * 4)) & 0xF)];
             }
-            StacktraceTuple other = (StacktraceTuple) obj;
-            return nullEquals(topStacktrace, other.topStacktrace)
-                    && nullEquals(buttomStacktrace, other.buttomStacktrace);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(topStacktrace, buttomStacktrace);
-        }
-    }
-
-    /**
-     * MergeStats
-     */
-    private static class SummaryKey {
-        public Throwable throwable;
-
-        public List<StacktraceTuple> stacktraceTuples;
-
-        public SummaryKey(Throwable throwable, List<StacktraceTuple> stacktraceTuples) {
-            this.throwable = throwable;
-            this.stacktraceTuples = stacktraceTuples;
+            return new String(chars);
         }
 
-
         @Override
         public boolean equals(Object obj) {
             if (this == obj) {
                 return true;
             }
-            if (obj == null || !(obj instanceof SummaryKey)) {
+            if (!(obj instanceof SummaryKey)) {
                 return false;
             }
-            SummaryKey other = (SummaryKey) obj;
-            if (this.throwable == other.throwable) {
-                return true;
-            }
-
-            return Objects.equals(throwable, other.throwable)
-                    || nullEquals(stacktraceTuples, other.stacktraceTuples);
+            return fingerprint == ((SummaryKey) obj).fingerprint;
         }
 
-
         @Override
         public int hashCode() {
-            return Objects.hash(stacktraceTuples);
+            return hash;
         }
     }
-
-
 }
@@ -0,0 +1,500 @@
+package io.onetool4j.util;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 2024/3/26 10:00
+ * 异常摘要的并发注册表, 替代全局加锁的 LinkedHashMap
+ * <p>
+ * 异常指纹 -> 当前窗口, 使用 ConcurrentHashMap(按桶分段加锁, 读不加锁), 窗口内的计数使用 LongAdder,
+ * 窗口结束(次数或时间达到阈值)时通过 CAS 替换为新窗口, 只有替换成功的线程输出完整堆栈, 其它线程输出摘要.
+ * 计数先判断后累加, 并发时一个窗口的次数可能略超过阈值.
+ * <p>
+ * 淘汰使用分段 LRU: 新项进入试用段, 再次命中时移到保护段, 保护段最多占容量的 4/5, 超出时最久未访问的降回试用段.
+ * 两个段是访问顺序的双向链表, 只在持有策略锁时修改: 新项先放入无锁队列, 命中时 tryLock 调整顺序,
+ * 取不到锁时放弃这次调整(顺序是近似的), 读路径上的线程从不等待. 超过容量时从试用段头部、再从保护段头部逐个淘汰,
+ * 每次 O(1), 不排序.
+ * 容量包括条数与可选的近似内存占用: 每项按固定开销加上缓存的字符串估算, 不保存异常对象.
+ * 渲染后的堆栈按指纹缓存, 同时保存堆栈内容的哈希, 哈希相同时才复用;
+ * 通过 SoftReference 引用, 内存不足时可以被回收, 回收后重新渲染
+ *
+ * @param <K> 异常指纹
+ * @author yinbingqiu
+ */
+final class SummaryRegistry<K> {
+
+    private static final AtomicReferenceFieldUpdater<Entry, Window> window_updater
+            = AtomicReferenceFieldUpdater.newUpdater(Entry.class, Window.class, "window");
+    private static final AtomicReferenceFieldUpdater<Window, String> summary_updater
+            = AtomicReferenceFieldUpdater.newUpdater(Window.class, String.class, "summaryMessage");
+    /**
+     * 每项的固定开销估算: 哈希表节点、指纹、窗口、计数器等
+     */
+    static final int ENTRY_BYTES = 256;
+    /**
+     * 所在的段
+     */
+    private static final int PENDING = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int EVICTED = 3;
+
+    /**
+     * 容量, 条数
+     */
+    private final int capacity;
+    /**
+     * 保护段容量, 条数
+     */
+    private final int protectedCapacity;
+    /**
+     * 容量, 近似内存占用, 字节, 小于等于 0 时不限制
+     */
+    private final long maxWeight;
+    /**
+     * 当前近似内存占用
+     */
+    private final AtomicLong weight = new AtomicLong();
+    /**
+     * 异常指纹 -> 搜索 key, 开启新窗口时调用
+     */
+    private final Function<K, String> searchKeys;
+    /**
+     * 异常指纹 -> 窗口
+     */
+    private final Map<K, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * 策略锁, 保护两个段的链表, 只有一个线程调整顺序或淘汰
+     */
+    private final ReentrantLock policy = new ReentrantLock();
+    /**
+     * 新项, 持有策略锁时移入试用段
+     */
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    /**
+     * 试用段
+     */
+    private final AccessOrder probation = new AccessOrder();
+    /**
+     * 保护段
+     */
+    private final AccessOrder protectedSegment = new AccessOrder();
+
+    /**
+     * 构造方法
+     *
+     * @param capacity   容量, 条数
+     * @param maxWeight  容量, 近似内存占用, 字节, 小于等于 0 时不限制
+     * @param searchKeys 异常指纹 -> 搜索 key
+     */
+    SummaryRegistry(int capacity, long maxWeight, Function<K, String> searchKeys) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("异常摘要缓存容量必须大于 0");
+        }
+        this.capacity = capacity;
+        this.protectedCapacity = Math.max(1, capacity * 4 / 5);
+        this.maxWeight = maxWeight;
+        this.searchKeys = searchKeys;
+    }
+
+    /**
+     * 记录一次异常
+     *
+     * @param key               异常指纹
+     * @param countThreshold    窗口内的次数阈值
+     * @param durationThreshold 窗口时长, 毫秒
+     * @return 新窗口时 fresh 为 true, 需要输出完整堆栈
+     */
+    Admission acquire(K key, int countThreshold, int durationThreshold) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry created = new Entry(key, now);
+            Window window = new Window(created, searchKeys.apply(key), now);
+            created.window = window;
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                pending.add(created);
+                charge(created, ENTRY_BYTES + weigh(window.searchKey));
+                return window.fresh;
+            }
+        }
+        // 保护段的项在同一毫秒内再次命中时不调整顺序, 减少抢锁
+        if (entry.accessed != now || entry.segment != PROTECTED) {
+            entry.accessed = now;
+            recordAccess(entry);
+        }
+
+        while (true) {
+            Window window = entry.window;
+            if (window.count.sum() < countThreshold && now - window.start <= durationThreshold) {
+                window.count.increment();
+                return window.repeated;
+            }
+            Window next = new Window(entry, searchKeys.apply(key), now);
+            if (window_updater.compareAndSet(entry, window, next)) {
+                long summaryWeight;
+                synchronized (entry) {
+                    summaryWeight = window.summaryWeight;
+                    window.summaryWeight = 0;
+                }
+                if (summaryWeight != 0) {
+                    charge(entry, -summaryWeight);
+                }
+                return next.fresh;
+            }
+            // 其它线程已经开启新窗口, 重新判断
+        }
+    }
+
+    /**
+     * 窗口的摘要, 只保存第一次设置的值
+     *
+     * @param window         窗口
+     * @param summaryMessage 摘要
+     * @return 窗口的摘要
+     */
+    String summaryMessage(Window window, String summaryMessage) {
+        if (summary_updater.compareAndSet(window, null, summaryMessage)) {
+            Entry entry = window.entry;
+            long bytes = weigh(summaryMessage);
+            synchronized (entry) {
+                // 窗口已被替换时不再计入, 替换时只扣除已计入的部分
+                if (window != entry.window) {
+                    return summaryMessage;
+                }
+                window.summaryWeight = bytes;
+            }
+            charge(entry, bytes);
+            return summaryMessage;
+        }
+        return window.summaryMessage;
+    }
+
+    /**
+     * 窗口所属指纹缓存的堆栈
+     *
+     * @param window   窗口
+     * @param bodyHash 堆栈内容的哈希
+     * @return 堆栈, 没有、已被回收或内容不同时返回 null
+     */
+    String body(Window window, long bodyHash) {
+        SoftReference<Body> reference = window.entry.body;
+        Body body = reference == null ? null : reference.get();
+        return body == null || body.hash != bodyHash ? null : body.text;
+    }
+
+    /**
+     * 缓存窗口所属指纹的堆栈, 替换之前缓存的堆栈
+     *
+     * @param window   窗口
+     * @param bodyHash 堆栈内容的哈希
+     * @param body     堆栈
+     */
+    void body(Window window, long bodyHash, String body) {
+        Entry entry = window.entry;
+        long bytes;
+        synchronized (entry) {
+            bytes = weigh(body) - entry.bodyWeight;
+            entry.body = new SoftReference<>(new Body(bodyHash, body));
+            entry.bodyWeight = weigh(body);
+        }
+        charge(entry, bytes);
+    }
+
+    /**
+     * 当前缓存的异常指纹数
+     *
+     * @return 数量
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * 当前近似内存占用
+     *
+     * @return 字节
+     */
+    long weight() {
+        return weight.get();
+    }
+
+    /**
+     * 字符串的近似内存占用
+     *
+     * @param value 字符串
+     * @return 字节
+     */
+    static int weigh(String value) {
+        return 40 + value.length() * 2;
+    }
+
+    /**
+     * 调整一项的内存占用, 已淘汰的项不再计入
+     *
+     * @param entry 项
+     * @param bytes 字节
+     */
+    private void charge(Entry entry, long bytes) {
+        synchronized (entry) {
+            if (entry.removed) {
+                return;
+            }
+            entry.weight += bytes;
+            weight.addAndGet(bytes);
+        }
+        if (bytes > 0) {
+            evictIfNecessary();
+        }
+    }
+
+    private boolean overCapacity() {
+        return entries.size() > capacity || (maxWeight > 0 && weight.get() > maxWeight);
+    }
+
+    /**
+     * 命中时调整顺序: 试用段的项移到保护段, 保护段的项移到尾部. 取不到锁时放弃
+     *
+     * @param entry 项
+     */
+    private void recordAccess(Entry entry) {
+        if (!policy.tryLock()) {
+            return;
+        }
+        try {
+            drainPending();
+            if (entry.segment == PROBATION) {
+                probation.remove(entry);
+                protectedSegment.addLast(entry);
+                entry.segment = PROTECTED;
+                while (protectedSegment.size > protectedCapacity) {
+                    Entry demoted = protectedSegment.removeFirst();
+                    probation.addLast(demoted);
+                    demoted.segment = PROBATION;
+                }
+            } else if (entry.segment == PROTECTED) {
+                protectedSegment.remove(entry);
+                protectedSegment.addLast(entry);
+            }
+        } finally {
+            policy.unlock();
+        }
+    }
+
+    /**
+     * 新项移入试用段, 持有策略锁时调用
+     */
+    private void drainPending() {
+        for (Entry entry = pending.poll(); entry != null; entry = pending.poll()) {
+            probation.addLast(entry);
+            entry.segment = PROBATION;
+        }
+    }
+
+    /**
+     * 超过容量时从试用段头部、再从保护段头部逐个淘汰
+     */
+    private void evictIfNecessary() {
+        if (!overCapacity() || !policy.tryLock()) {
+            return;
+        }
+        try {
+            drainPending();
+            while (overCapacity()) {
+                Entry victim = probation.size > 0 ? probation.removeFirst()
+                        : protectedSegment.size > 0 ? protectedSegment.removeFirst() : null;
+                if (victim == null) {
+                    return;
+                }
+                // 其它线程可能还持有该项, 之后命中时不再调整顺序
+                victim.segment = EVICTED;
+                if (entries.remove(victim.key, victim)) {
+                    synchronized (victim) {
+                        victim.removed = true;
+                        weight.addAndGet(-victim.weight);
+                    }
+                }
+            }
+        } finally {
+            policy.unlock();
+        }
+    }
+
+    /**
+     * 注册表中的一项
+     */
+    private static final class Entry {
+        /**
+         * 异常指纹
+         */
+        final Object key;
+        /**
+         * 当前窗口
+         */
+        volatile Window window;
+        /**
+         * 最后访问时间, 毫秒
+         */
+        volatile long accessed;
+        /**
+         * 所在的段, 持有策略锁时修改
+         */
+        volatile int segment = PENDING;
+        /**
+         * 段内的前后项, 持有策略锁时修改
+         */
+        Entry previous;
+        Entry next;
+        /**
+         * 近似内存占用, 在 Entry 上同步修改
+         */
+        long weight;
+        /**
+         * 是否已淘汰, 在 Entry 上同步修改
+         */
+        boolean removed;
+        /**
+         * 渲染后的堆栈
+         */
+        volatile SoftReference<Body> body;
+        /**
+         * 堆栈的近似内存占用, 在 Entry 上同步修改
+         */
+        long bodyWeight;
+
+        Entry(Object key, long now) {
+            this.key = key;
+            this.accessed = now;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的段, 头部最久未访问, 持有策略锁时访问
+     */
+    private static final class AccessOrder {
+        Entry head;
+        Entry tail;
+        int size;
+
+        void addLast(Entry entry) {
+            entry.previous = tail;
+            entry.next = null;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+            size++;
+        }
+
+        void remove(Entry entry) {
+            if (entry.previous == null) {
+                head = entry.next;
+            } else {
+                entry.previous.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.previous;
+            } else {
+                entry.next.previous = entry.previous;
+            }
+            entry.previous = null;
+            entry.next = null;
+            size--;
+        }
+
+        Entry removeFirst() {
+            Entry first = head;
+            remove(first);
+            return first;
+        }
+    }
+
+    /**
+     * 缓存的堆栈与内容哈希
+     */
+    private static final class Body {
+        final long hash;
+        final String text;
+
+        Body(long hash, String text) {
+            this.hash = hash;
+            this.text = text;
+        }
+    }
+
+    /**
+     * 摘要窗口
+     */
+    static final class Window {
+        /**
+         * 所属的项
+         */
+        private final Entry entry;
+        /**
+         * 搜索 key, 摘要与完整堆栈中都会输出
+         */
+        final String searchKey;
+        /**
+         * 开始时间, 毫秒
+         */
+        final long start;
+        /**
+         * 窗口内的次数
+         */
+        final LongAdder count = new LongAdder();
+        /**
+         * 摘要, 第一次输出摘要时生成, 通过 SummaryRegistry#summaryMessage 设置
+         */
+        volatile String summaryMessage;
+        /**
+         * 已计入内存占用的摘要大小, 在 Entry 上同步修改
+         */
+        long summaryWeight;
+        /**
+         * 开启窗口的结果
+         */
+        final Admission fresh = new Admission(this, true);
+        /**
+         * 窗口内重复的结果, 复用避免分配
+         */
+        final Admission repeated = new Admission(this, false);
+
+        Window(Entry entry, String searchKey, long start) {
+            this.entry = entry;
+            this.searchKey = searchKey;
+            this.start = start;
+            this.count.increment();
+        }
+    }
+
+    /**
+     * 记录结果
+     */
+    static final class Admission {
+        /**
+         * 窗口
+         */
+        final Window window;
+        /**
+         * 是否为新窗口
+         */
+        final boolean fresh;
+
+        Admission(Window window, boolean fresh) {
+            this.window = window;
+            this.fresh = fresh;
+        }
+    }
+}
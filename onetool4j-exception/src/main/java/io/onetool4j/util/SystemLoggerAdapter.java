@@ -0,0 +1,88 @@
+package io.onetool4j.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * 2024/3/18 11:20
+ * JDK 9+ System.Logger 适配器
+ * <p>
+ * 项目以 Java 8 编译, 无法直接引用 System.Logger, 第一次匹配到 System.Logger 时解析方法句柄,
+ * 之后通过 static final 方法句柄调用, 没有 Method.invoke. 按 {} 占位符格式化后输出, 最后一个参数是异常时单独传入
+ *
+ * @author yinbingqiu
+ */
+final class SystemLoggerAdapter implements LoggerAdapter {
+
+    /**
+     * LoggerAdapter.Level 序号 -> System.Logger.Level
+     */
+    private static final Object[] levels;
+    /**
+     * isLoggable, (Object,Object)boolean
+     */
+    private static final MethodHandle is_loggable;
+    /**
+     * log(Level, String), (Object,Object,String)void
+     */
+    private static final MethodHandle log;
+    /**
+     * log(Level, String, Throwable), (Object,Object,String,Throwable)void
+     */
+    private static final MethodHandle log_thrown;
+
+    static {
+        try {
+            Class<?> loggerType = Class.forName("java.lang.System$Logger");
+            Class<?> levelType = Class.forName("java.lang.System$Logger$Level");
+            levels = new Object[]{levelType.getField("TRACE").get(null)
+                    , levelType.getField("DEBUG").get(null)
+                    , levelType.getField("INFO").get(null)
+                    , levelType.getField("WARNING").get(null)
+                    , levelType.getField("ERROR").get(null)};
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            is_loggable = lookup.findVirtual(loggerType, "isLoggable", MethodType.methodType(boolean.class, levelType))
+                    .asType(MethodType.methodType(boolean.class, Object.class, Object.class));
+            log = lookup.findVirtual(loggerType, "log", MethodType.methodType(void.class, levelType, String.class))
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class, String.class));
+            log_thrown = lookup.findVirtual(loggerType, "log", MethodType.methodType(void.class, levelType, String.class, Throwable.class))
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class, String.class, Throwable.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public String loggerTypeName() {
+        return "java.lang.System$Logger";
+    }
+
+    @Override
+    public boolean isEnabled(Object logger, Level level) {
+        try {
+            return (boolean) is_loggable.invokeExact(logger, levels[level.ordinal()]);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        }
+    }
+
+    @Override
+    public void log(Object logger, Level level, String format, Object[] arguments) {
+        String message = LoggerAdapters.format(format, arguments);
+        Throwable throwable = LoggerAdapters.throwableOf(arguments);
+        try {
+            if (throwable == null) {
+                log.invokeExact(logger, levels[level.ordinal()], message);
+            } else {
+                log_thrown.invokeExact(logger, levels[level.ordinal()], message, throwable);
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+}
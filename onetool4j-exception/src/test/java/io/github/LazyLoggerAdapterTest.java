@@ -0,0 +1,29 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+public class LazyLoggerAdapterTest extends TestCase {
+
+    public void testJul() {
+        LogCapture capture = LogCapture.of("lazy-logger-jul");
+        List<LogRecord> records = capture.records();
+
+        LazyLogger logger = LazyLogger.getLogger(capture.logger());
+        logger.info("jul a={} b={}", () -> 1, () -> "2");
+        logger.debug("jul hidden a={}", () -> {
+            throw new AssertionError("debug 未开启, 不应执行");
+        });
+        logger.warn("jul warn");
+
+        assertEquals(2, records.size());
+        assertEquals(Level.INFO, records.get(0).getLevel());
+        assertEquals("jul a=1 b=2", records.get(0).getMessage());
+        assertEquals(Level.WARNING, records.get(1).getLevel());
+        assertEquals("jul warn", records.get(1).getMessage());
+    }
+}
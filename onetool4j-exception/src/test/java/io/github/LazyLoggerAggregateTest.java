@@ -0,0 +1,28 @@
+package io.github;
+
+import io.onetool4j.util.AggregateRecorder;
+import io.onetool4j.util.LazyLogger;
+import io.onetool4j.util.LoggerAdapter;
+import junit.framework.TestCase;
+
+import java.util.Collections;
+
+public class LazyLoggerAggregateTest extends TestCase {
+
+    public void testAggregate() {
+        LogCapture capture = LogCapture.of("lazy-logger-aggregate");
+        LazyLogger logger = LazyLogger.getLogger(capture.logger());
+
+        AggregateRecorder latency = logger.aggregate("latency");
+        assertSame(latency, logger.aggregate("latency"));
+        for (int i = 1; i <= 100; i++) {
+            latency.record(i);
+        }
+        logger.aggregate("hidden", LoggerAdapter.Level.DEBUG).record(1);
+        latency.flush();
+        latency.flush();
+        logger.aggregate("hidden", LoggerAdapter.Level.DEBUG).flush();
+
+        assertEquals(Collections.singletonList("[latency] count=100 min=1 max=100 avg=50.5 p50<=63 p90<=100 p99<=100"), capture.messages());
+    }
+}
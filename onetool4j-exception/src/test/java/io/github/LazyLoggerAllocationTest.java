@@ -0,0 +1,70 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import junit.framework.TestCase;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * 用 ThreadMXBean#getThreadAllocatedBytes 验证 LazyLogger 的分配情况
+ */
+public class LazyLoggerAllocationTest extends TestCase {
+
+    private static final int iterations = 200_000;
+    /**
+     * benchmark 输出到 Null appender, 级别为 info
+     */
+    private static final LazyLogger logger = LazyLogger.getLogger(LoggerFactory.getLogger("benchmark"));
+    /**
+     * 不捕获变量的 lambda 只有一个实例
+     */
+    private static final Supplier<Integer> supplier = () -> 1;
+
+    private final Integer a = 1;
+    private final String b = "b";
+    private final Object[] arguments = {a, b, a};
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public void testDisabledAllocatesNothing() {
+        Runnable disabled = () -> {
+            for (int i = 0; i < iterations; i++) {
+                logger.debug("disabled");
+                logger.debug("disabled a={}", a);
+                logger.debug("disabled a={} b={}", a, b);
+                logger.debug("disabled a={} b={} c={}", a, b, a);
+                logger.debug("disabled a={} b={} c={} d={}", a, b, a, b);
+                logger.debug("disabled a={}", supplier);
+            }
+        };
+        disabled.run();
+
+        long before = allocatedBytes();
+        disabled.run();
+        long allocated = allocatedBytes() - before;
+
+        assertTrue("disabled calls allocated " + allocated + " bytes", allocated < 4096);
+    }
+
+    public void testEnabledReusesArguments() {
+        Runnable enabled = () -> {
+            for (int i = 0; i < iterations; i++) {
+                logger.info("enabled a={} b={}", a, b);
+                logger.info("enabled a={} b={} c={}", arguments);
+            }
+        };
+        enabled.run();
+
+        long before = allocatedBytes();
+        enabled.run();
+        long allocated = allocatedBytes() - before;
+
+        // 复制一次参数数组至少 24 字节, 平均值低于它说明 LazyLogger 自身没有分配
+        assertTrue("enabled calls allocated " + allocated + " bytes", allocated / (2L * iterations) < 24);
+    }
+}
@@ -0,0 +1,123 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import junit.framework.TestCase;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+public class LazyLoggerAsyncTest extends TestCase {
+
+    public void testFlush() throws InterruptedException {
+        LazyLogger logger = LazyLogger.getLogger(LoggerFactory.getLogger(LazyLoggerAsyncTest.class))
+                .async(1024, LazyLogger.WaitStrategy.BLOCKING, LazyLogger.FullPolicy.BLOCK);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    logger.info("async thread={} i={}", id, i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        logger.error("async error a={}", () -> 1, () -> new IllegalArgumentException("test"));
+
+        assertTrue(logger.flush(Duration.ofSeconds(5)));
+    }
+
+    public void testDelivered() throws InterruptedException {
+        LogCapture capture = LogCapture.of("lazy-logger-async.delivered");
+        LazyLogger logger = LazyLogger.getLogger(capture.logger())
+                .async(1024, LazyLogger.WaitStrategy.BLOCKING, LazyLogger.FullPolicy.BLOCK);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    logger.info("async thread={} i={}", id, i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(logger.flush(Duration.ofSeconds(5)));
+        assertEquals(400, capture.records().size());
+        assertTrue(capture.messages().contains("async thread=3 i=99"));
+    }
+
+    public void testDropWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        LogCapture capture = LogCapture.of("lazy-logger-async.drop", release);
+        LazyLogger logger = LazyLogger.getLogger(capture.logger())
+                .async(4, LazyLogger.WaitStrategy.BLOCKING, LazyLogger.FullPolicy.DROP);
+
+        // 分发线程阻塞在第一条日志上, 缓冲区只能容纳 4 条, 其余直接丢弃, 调用线程不等待
+        for (int i = 0; i < 10; i++) {
+            logger.info("drop i={}", i);
+        }
+        release.countDown();
+
+        assertTrue(logger.flush(Duration.ofSeconds(5)));
+        assertEquals(Arrays.asList("drop i=0", "drop i=1", "drop i=2", "drop i=3"), capture.messages());
+    }
+
+    public void testBlockWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        LogCapture capture = LogCapture.of("lazy-logger-async.block", release);
+        LazyLogger logger = LazyLogger.getLogger(capture.logger())
+                .async(4, LazyLogger.WaitStrategy.BLOCKING, LazyLogger.FullPolicy.BLOCK);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                logger.info("block i={}", i);
+            }
+        });
+        producer.start();
+        producer.join(300);
+        // 缓冲区满时调用线程等待空位
+        assertTrue(producer.isAlive());
+        release.countDown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+
+        assertTrue(logger.flush(Duration.ofSeconds(5)));
+        assertEquals(10, capture.records().size());
+        assertEquals("block i=9", capture.messages().get(9));
+    }
+
+    public void testReconfigureStopsPreviousDispatcher() {
+        LogCapture capture = LogCapture.of("lazy-logger-async.reconfigure");
+        LazyLogger logger = LazyLogger.getLogger(capture.logger());
+        int before = asyncThreads();
+        for (int i = 0; i < 5; i++) {
+            logger.async(16, LazyLogger.WaitStrategy.BLOCKING, LazyLogger.FullPolicy.BLOCK);
+            logger.info("reconfigure i={}", i);
+        }
+
+        assertTrue(logger.flush(Duration.ofSeconds(5)));
+        assertEquals(5, capture.records().size());
+        // 之前的分发器已关闭, 只剩最后一个分发线程
+        assertEquals(before + 1, asyncThreads());
+    }
+
+    private static int asyncThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && "lazy-logger-async".equals(thread.getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
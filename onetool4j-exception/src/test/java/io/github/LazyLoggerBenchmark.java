@@ -0,0 +1,59 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LazyLogger 与直接调用 slf4j 的对比基准
+ * <p>
+ * benchmark 日志输出到 Null appender, 级别为 info, 因此 debug 走关闭分支, info 走开启分支
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyLoggerBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger("benchmark");
+    private static final LazyLogger logger = LazyLogger.getLogger(log);
+
+    private Integer a = 1;
+    private String b = "b";
+
+    @Benchmark
+    public void slf4jDisabled() {
+        log.debug("benchmark a={} b={}", a, b);
+    }
+
+    @Benchmark
+    public void lazyLoggerDisabled() {
+        logger.debug("benchmark a={} b={}", a, b);
+    }
+
+    @Benchmark
+    public void slf4jEnabled() {
+        log.info("benchmark a={} b={}", a, b);
+    }
+
+    @Benchmark
+    public void lazyLoggerEnabled() {
+        logger.info("benchmark a={} b={}", a, b);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LazyLoggerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,71 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import io.onetool4j.util.LogConfig;
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.LogRecord;
+
+public class LazyLoggerConfigTest extends TestCase {
+
+    public void testConfig() throws Exception {
+        LogCapture capture = LogCapture.of("lazy-logger-config.order");
+        List<LogRecord> records = capture.records();
+        LazyLogger logger = LazyLogger.getLogger(capture.logger());
+        Path file = Files.createTempFile("lazy-logger", ".properties");
+        try {
+            Files.write(file, Arrays.asList("logger.lazy-logger-config.level=WARN", "template.skip\\ {}.level=ERROR"));
+            LogConfig.watch(file);
+            // 再次监听时停止之前的监听
+            LogConfig.watch(file);
+            assertEquals(1, awaitWatchThreads(1));
+            logger.info("hidden {}", () -> {
+                throw new AssertionError("info 已关闭, 不应执行");
+            });
+            logger.warn("skip {}", 1);
+            logger.warn("shown {}", 1);
+            logger.error("skip {}", 2);
+            assertEquals(Arrays.asList("shown 1", "skip 2"), capture.messages());
+
+            records.clear();
+            Files.write(file, Collections.singletonList("logger.lazy-logger-config.order.level=INFO"));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (records.isEmpty() && System.currentTimeMillis() < deadline) {
+                logger.info("reloaded");
+                Thread.sleep(50);
+            }
+            assertEquals("reloaded", records.get(0).getMessage());
+
+            LogConfig.unwatch();
+            assertEquals(0, awaitWatchThreads(0));
+        } finally {
+            LogConfig.unwatch();
+            LogConfig.reset();
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * 等待停止的监听线程退出, 返回剩余的监听线程数
+     */
+    private static int awaitWatchThreads(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            int count = 0;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.isAlive() && "lazy-logger-config-watch".equals(thread.getName())) {
+                    count++;
+                }
+            }
+            if (count <= expected || System.currentTimeMillis() > deadline) {
+                return count;
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import io.onetool4j.util.LogContext;
+import junit.framework.TestCase;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.ThreadContext;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class LazyLoggerContextTest extends TestCase {
+
+    public void testJulAppendsContext() throws Exception {
+        LogCapture capture = LogCapture.of("lazy-logger-context");
+        LazyLogger logger = LazyLogger.getLogger(capture.logger());
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            try (LogContext.Scope ignored = LogContext.put("traceId", "t-1")) {
+                logger.info("in scope {}", 1);
+                pool.submit(LogContext.wrap(() -> logger.info("wrapped"))).get();
+                pool.submit(() -> logger.info("not wrapped")).get();
+            }
+            logger.info("out of scope");
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(Arrays.asList("in scope 1 traceId=t-1", "wrapped traceId=t-1", "not wrapped", "out of scope"), capture.messages());
+    }
+
+    public void testSlf4jContextInMdc() throws Exception {
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+        LazyLogger logger = LazyLogger.getLogger(LoggerFactory.getLogger("lazy-logger-context.mdc"));
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        MDC.put("traceId", "outer");
+        try {
+            try (LogContext.Scope ignored = LogContext.put("traceId", "t-1")) {
+                logger.info("context {}", LogCapture.probe(seen, () -> MDC.get("traceId")));
+                // 传递到其它线程的上下文同样在输出期间写入该线程的 MDC
+                pool.submit(LogContext.wrap(() -> logger.info("wrapped {}", LogCapture.probe(seen, () -> MDC.get("traceId"))))).get();
+            }
+            logger.info("out of scope {}", LogCapture.probe(seen, () -> MDC.get("traceId")));
+
+            assertEquals(Arrays.asList("t-1", "t-1", "outer"), seen);
+            assertEquals("outer", MDC.get("traceId"));
+            assertNull(pool.submit(() -> MDC.get("traceId")).get());
+        } finally {
+            MDC.remove("traceId");
+            pool.shutdown();
+        }
+    }
+
+    public void testLog4j2ContextInThreadContext() {
+        List<String> seen = new ArrayList<>();
+        LazyLogger logger = LazyLogger.getLogger(LogManager.getLogger("lazy-logger-context.thread-context"));
+        try (LogContext.Scope ignored = LogContext.put("traceId", "t-1")) {
+            try (LogContext.Scope nested = LogContext.put("orderId", 42L)) {
+                logger.info("context {}", LogCapture.probe(seen, () -> ThreadContext.get("traceId") + "," + ThreadContext.get("orderId")));
+            }
+        }
+
+        assertEquals(Collections.singletonList("t-1,42"), seen);
+        assertNull(ThreadContext.get("traceId"));
+        assertNull(ThreadContext.get("orderId"));
+    }
+}
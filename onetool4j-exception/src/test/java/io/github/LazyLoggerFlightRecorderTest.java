@@ -0,0 +1,43 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import junit.framework.TestCase;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LazyLoggerFlightRecorderTest extends TestCase {
+
+    private static final LazyLogger logger = LazyLogger.getLogger(LoggerFactory.getLogger("benchmark")).flightRecorder();
+
+    @Override
+    protected void tearDown() {
+        // 未输出的记录留在线程内, 会随之后其它测试的 ERROR 一起输出
+        LazyLogger.resetFlightRecorder();
+    }
+
+    public void testDumpOnError() {
+        LazyLogger.resetFlightRecorder();
+        AtomicInteger evaluated = new AtomicInteger();
+
+        logger.debug("flight recorder a={}", evaluated::incrementAndGet);
+        logger.debug("flight recorder a={}", evaluated::incrementAndGet);
+        assertEquals(0, evaluated.get());
+
+        logger.error("flight recorder failed");
+        assertEquals(2, evaluated.get());
+
+        // 已经输出过的记录不再重复输出
+        logger.error("flight recorder failed");
+        assertEquals(2, evaluated.get());
+    }
+
+    public void testReset() {
+        AtomicInteger evaluated = new AtomicInteger();
+        logger.debug("flight recorder a={}", evaluated::incrementAndGet);
+        LazyLogger.resetFlightRecorder();
+
+        logger.error("flight recorder failed");
+        assertEquals(0, evaluated.get());
+    }
+}
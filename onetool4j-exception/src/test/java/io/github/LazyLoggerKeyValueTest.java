@@ -0,0 +1,96 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import junit.framework.TestCase;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.ThreadContext;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LazyLoggerKeyValueTest extends TestCase {
+
+    public void testKeyValues() {
+        LogCapture capture = LogCapture.of("lazy-logger-kv");
+        LazyLogger logger = LazyLogger.getLogger(capture.logger());
+
+        logger.atInfo().kv("orderId", 42L).kv("latencyMs", 3.5).kv("ok", true).kv("user", () -> "bob").log("done {}", "x");
+        assertSame(logger.atDebug(), logger.atTrace());
+        logger.atDebug().kv("hidden", () -> {
+            throw new AssertionError("debug 未开启, 不应执行");
+        }).log("hidden");
+
+        // jul 不支持上下文, 键值对追加到消息后面
+        assertEquals(Collections.singletonList("done x orderId=42 latencyMs=3.5 ok=true user=bob"), capture.messages());
+    }
+
+    public void testSlf4jKeyValuesInMdc() {
+        List<String> seen = new ArrayList<>();
+        LazyLogger logger = LazyLogger.getLogger(LoggerFactory.getLogger("lazy-logger-kv.mdc"));
+        MDC.put("traceId", "outer");
+        try {
+            logger.atInfo().kv("traceId", "inner").kv("orderId", 42L).kv("ok", true).kv("user", () -> "bob")
+                    .log("kv {}", LogCapture.probe(seen, () -> MDC.get("traceId") + "," + MDC.get("orderId") + "," + MDC.get("ok") + "," + MDC.get("user")));
+
+            // 输出期间键值对写入 MDC, 输出后恢复原值
+            assertEquals(Collections.singletonList("inner,42,true,bob"), seen);
+            assertEquals("outer", MDC.get("traceId"));
+            assertNull(MDC.get("orderId"));
+            assertNull(MDC.get("user"));
+        } finally {
+            MDC.remove("traceId");
+        }
+    }
+
+    public void testLog4j2KeyValuesInThreadContext() {
+        List<String> seen = new ArrayList<>();
+        LazyLogger logger = LazyLogger.getLogger(LogManager.getLogger("lazy-logger-kv.thread-context"));
+        ThreadContext.put("traceId", "outer");
+        try {
+            logger.atWarn().kv("traceId", "inner").kv("latencyMs", 3.5)
+                    .log("kv {}", LogCapture.probe(seen, () -> ThreadContext.get("traceId") + "," + ThreadContext.get("latencyMs")));
+
+            assertEquals(Collections.singletonList("inner,3.5"), seen);
+            assertEquals("outer", ThreadContext.get("traceId"));
+            assertNull(ThreadContext.get("latencyMs"));
+        } finally {
+            ThreadContext.remove("traceId");
+        }
+    }
+
+    public void testDroppedEventSkipsValues() {
+        LogCapture capture = LogCapture.of("lazy-logger-kv.admission");
+        LazyLogger logger = LazyLogger.getLogger(capture.logger()).repeatAggregation(Duration.ofMinutes(1));
+        AtomicInteger evaluated = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            logger.atInfo().kv("orderId", evaluated::incrementAndGet).log("kv repeated");
+        }
+        logger.rateLimited(1);
+        for (int i = 0; i < 3; i++) {
+            logger.atWarn().kv("orderId", evaluated::incrementAndGet).log("kv limited");
+        }
+
+        // 重复聚合与限流按原格式判断, 丢弃的日志不执行键值对的 Supplier
+        assertEquals(2, evaluated.get());
+        assertEquals(Arrays.asList("kv repeated orderId=1", "kv limited orderId=2"), capture.messages());
+    }
+
+    public void testFormatIsReusedForSameKeys() {
+        LogCapture capture = LogCapture.of("lazy-logger-kv.format");
+        LazyLogger logger = LazyLogger.getLogger(capture.logger());
+
+        for (int i = 0; i < 2; i++) {
+            logger.atInfo().kv("orderId", i).kv("ok", true).log("kv {}", "x");
+        }
+        logger.atInfo().kv("orderId", 2).log("kv {}", "x");
+
+        assertEquals(Arrays.asList("kv x orderId=0 ok=true", "kv x orderId=1 ok=true", "kv x orderId=2"), capture.messages());
+    }
+}
@@ -0,0 +1,33 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import junit.framework.TestCase;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LazyLoggerLevelCacheTest extends TestCase {
+
+    private static final String name = "io.github.LazyLoggerLevelCacheTest.reconfigured";
+
+    public void testReconfigureRefreshesLevels() {
+        LazyLogger logger = LazyLogger.getLogger(LoggerFactory.getLogger(name)).levelCacheEnable();
+        AtomicInteger evaluated = new AtomicInteger();
+
+        logger.debug("level cache a={}", evaluated::incrementAndGet);
+        assertEquals(0, evaluated.get());
+
+        Configurator.setLevel(name, Level.DEBUG);
+        try {
+            logger.debug("level cache a={}", evaluated::incrementAndGet);
+            assertEquals(1, evaluated.get());
+        } finally {
+            Configurator.setLevel(name, Level.INFO);
+        }
+
+        logger.debug("level cache a={}", evaluated::incrementAndGet);
+        assertEquals(1, evaluated.get());
+    }
+}
@@ -0,0 +1,36 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import io.onetool4j.util.LazyLoggerMXBean;
+import junit.framework.TestCase;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+public class LazyLoggerMetricsTest extends TestCase {
+
+    public void testMetrics() throws Exception {
+        LogCapture capture = LogCapture.of("lazy-logger-metrics");
+        LazyLogger logger = LazyLogger.getLogger(capture.logger()).serializer("json").metrics();
+        LazyLoggerMXBean metrics = logger.getMetrics();
+
+        logger.info("a={} b={}", () -> 1, () -> Collections.singletonMap("k", "v"));
+        logger.debug("hidden");
+        logger.error("failed", new IllegalStateException("boom"));
+
+        assertEquals(2, capture.records().size());
+        assertEquals(1, metrics.getInfoCount());
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(1, metrics.getDisabledCount());
+        assertTrue(metrics.getSupplierNanos() > 0);
+        assertTrue(metrics.getSerializeNanos() > 0);
+        assertTrue(metrics.getSummaryNanos() > 0);
+        assertTrue(metrics.getRenderedChars() > 0);
+
+        ObjectName name = new ObjectName("io.onetool4j:type=LazyLogger,name=" + ObjectName.quote("lazy-logger-metrics"));
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "InfoCount"));
+        ObjectName all = new ObjectName("io.onetool4j:type=LazyLogger,name=all");
+        assertTrue((Long) ManagementFactory.getPlatformMBeanServer().getAttribute(all, "ErrorCount") >= 1);
+    }
+}
@@ -0,0 +1,63 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import junit.framework.TestCase;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+public class LazyLoggerRepeatTest extends TestCase {
+
+    public void testRepeatedMessagesAreAggregated() {
+        LazyLogger logger = LazyLogger.getLogger(LoggerFactory.getLogger("benchmark")).repeatAggregation(Duration.ofMinutes(1));
+        AtomicInteger evaluated = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            logger.warn("downstream timeout a={}", evaluated::incrementAndGet);
+        }
+        assertEquals(1, evaluated.get());
+
+        // 不同的格式模板单独聚合
+        logger.warn("downstream refused a={}", evaluated::incrementAndGet);
+        assertEquals(2, evaluated.get());
+    }
+
+    public void testSummaryAfterWindowCloses() throws InterruptedException {
+        // 其它测试留在线程内的飞行记录会随 ERROR 一起输出
+        LazyLogger.resetFlightRecorder();
+        LogCapture capture = LogCapture.of("lazy-logger-repeat.summary");
+        LazyLogger logger = LazyLogger.getLogger(capture.logger()).repeatAggregation(Duration.ofMillis(200));
+
+        for (int i = 0; i < 3; i++) {
+            logger.warn("downstream timeout a={}", i);
+        }
+        // 同一格式的 ERROR 单独聚合, 不计入 WARN 的窗口
+        logger.error("downstream timeout a={}", 9);
+        logger.error("downstream timeout a={}", 10);
+        // 窗口结束前不输出汇总
+        assertEquals(Arrays.asList("downstream timeout a=0", "downstream timeout a=9"), capture.messages());
+
+        Thread.sleep(300);
+        logger.warn("downstream timeout a={}", 3);
+
+        List<LogRecord> records = capture.records();
+        assertEquals(capture.messages().toString(), 4, records.size());
+        assertEquals(Level.WARNING, records.get(2).getLevel());
+        assertEquals("[downstream timeout a={}] repeated 2 times in 1s", records.get(2).getMessage());
+        assertEquals("downstream timeout a=3", records.get(3).getMessage());
+
+        // 后台线程输出 ERROR 窗口的汇总
+        long deadline = System.currentTimeMillis() + 5000;
+        while (records.size() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(capture.messages().toString(), 5, records.size());
+        assertEquals(Level.SEVERE, records.get(4).getLevel());
+        assertEquals("[downstream timeout a={}] repeated 1 times in 1s", records.get(4).getMessage());
+    }
+}
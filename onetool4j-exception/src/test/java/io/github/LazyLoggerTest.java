@@ -105,6 +105,13 @@ public class LazyLoggerTest extends TestCase {
                 , IllegalArgumentException::new);
     }
 
+    public void testForClassIsCached() {
+        LazyLogger cached = LazyLogger.forClass(LazyLoggerTest.class);
+        assertSame(cached, LazyLogger.forName(LazyLoggerTest.class.getName()));
+        assertNotSame(cached, LazyLogger.forClass(LazyLoggerTest.class, LazyLogger.SerializableType.FASTJSON));
+        cached.info("test forClass a={}", () -> 1);
+    }
+
 
     public static class InnerClass {
         private Integer a = 1;
@@ -0,0 +1,76 @@
+package io.github;
+
+import io.onetool4j.util.LazyLogger;
+import junit.framework.TestCase;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+public class LazyLoggerThrottleTest extends TestCase {
+
+    public void testSampledSkipsSuppliers() {
+        LazyLogger logger = LazyLogger.getLogger(LoggerFactory.getLogger("benchmark")).sampled(0.1);
+        AtomicInteger evaluated = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            logger.info("sampled a={}", evaluated::incrementAndGet);
+        }
+        assertEquals(10, evaluated.get());
+    }
+
+    public void testRateLimitedSkipsSuppliers() {
+        LazyLogger logger = LazyLogger.getLogger(LoggerFactory.getLogger("benchmark")).rateLimited(5);
+        AtomicInteger evaluated = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            logger.info("rate limited a={}", evaluated::incrementAndGet);
+        }
+        assertTrue("evaluated " + evaluated.get(), evaluated.get() >= 5 && evaluated.get() < 10);
+
+        // 调用点之间互不影响
+        logger.info("rate limited other a={}", evaluated::incrementAndGet);
+        assertTrue("evaluated " + evaluated.get(), evaluated.get() >= 6);
+    }
+
+    public void testSampledAdmitsFirstEvent() {
+        List<String> messages = new ArrayList<>();
+        LazyLogger logger = LazyLogger.getLogger(julLogger("lazy-logger-throttle.first", messages)).sampled(0.5);
+
+        for (int i = 0; i < 3; i++) {
+            logger.info("once {}", i);
+        }
+        // 采样率很低时, 只出现一次的日志也会输出
+        logger.sampled(0.01).warn("rare {}", 1);
+
+        // 第一次丢弃后, 下一条放行的日志之前立即输出丢弃汇总
+        assertEquals(Arrays.asList("once 0", "1 messages suppressed, format: once {}", "once 2", "rare 1"), messages);
+    }
+
+    private static Logger julLogger(String name, List<String> messages) {
+        Logger jul = Logger.getLogger(name);
+        jul.setUseParentHandlers(false);
+        jul.setLevel(Level.INFO);
+        jul.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return jul;
+    }
+}
@@ -0,0 +1,111 @@
+package io.github;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * 测试用的 java.util.logging 日志, 记录输出的日志
+ */
+final class LogCapture extends Handler {
+
+    private final Logger logger;
+    private final List<LogRecord> records = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release;
+
+    private LogCapture(Logger logger, CountDownLatch release) {
+        this.logger = logger;
+        this.release = release;
+    }
+
+    /**
+     * INFO 级别的日志, 不输出到父日志
+     *
+     * @param name 日志名称
+     * @return LogCapture
+     */
+    static LogCapture of(String name) {
+        return of(name, null);
+    }
+
+    /**
+     * INFO 级别的日志, 输出时等待 release, 用于模拟阻塞的日志后端
+     *
+     * @param name    日志名称
+     * @param release 为 null 时不等待
+     * @return LogCapture
+     */
+    static LogCapture of(String name, CountDownLatch release) {
+        Logger jul = Logger.getLogger(name);
+        jul.setUseParentHandlers(false);
+        jul.setLevel(Level.INFO);
+        for (Handler handler : jul.getHandlers()) {
+            jul.removeHandler(handler);
+        }
+        LogCapture capture = new LogCapture(jul, release);
+        jul.addHandler(capture);
+        return capture;
+    }
+
+    /**
+     * 日志后端格式化时执行 read 并记录结果, 用于检查输出期间的 MDC / ThreadContext
+     *
+     * @param seen 记录
+     * @param read 读取
+     * @return 参数
+     */
+    static Object probe(List<String> seen, Supplier<String> read) {
+        return new Object() {
+            @Override
+            public String toString() {
+                String value = read.get();
+                seen.add(value);
+                return value;
+            }
+        };
+    }
+
+    Logger logger() {
+        return logger;
+    }
+
+    List<LogRecord> records() {
+        return records;
+    }
+
+    List<String> messages() {
+        synchronized (records) {
+            List<String> messages = new ArrayList<>();
+            for (LogRecord record : records) {
+                messages.add(record.getMessage());
+            }
+            return messages;
+        }
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (release != null) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        records.add(record);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
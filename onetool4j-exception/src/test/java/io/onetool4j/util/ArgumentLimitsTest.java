@@ -0,0 +1,56 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ArgumentLimitsTest extends TestCase {
+
+    public void testUnchangedIsNotCopied() {
+        List<Object> list = Arrays.asList(1, Arrays.asList("a", "b"), Collections.singletonMap("k", "v"));
+        assertSame(list, ArgumentLimits.summarize(list, Integer.MAX_VALUE));
+        assertEquals("x", ArgumentLimits.summarize("x", Integer.MAX_VALUE));
+    }
+
+    public void testNestedCollectionSummarized() {
+        List<Integer> inner = new ArrayList<>();
+        for (int i = 0; i < ArgumentLimits.max_elements * 10; i++) {
+            inner.add(i);
+        }
+        List<?> summarized = (List<?>) ArgumentLimits.summarize(Arrays.asList("head", inner), Integer.MAX_VALUE);
+
+        assertEquals("head", summarized.get(0));
+        List<?> summarizedInner = (List<?>) summarized.get(1);
+        assertEquals(ArgumentLimits.max_elements + 1, summarizedInner.size());
+        assertEquals(ArgumentLimits.remaining(inner.size()), summarizedInner.get(ArgumentLimits.max_elements));
+    }
+
+    public void testDepthLimit() {
+        Object nested = "leaf";
+        for (int i = 0; i < ArgumentLimits.max_depth + 2; i++) {
+            nested = Collections.singletonList(nested);
+        }
+        Object current = ArgumentLimits.summarize(nested, Integer.MAX_VALUE);
+        for (int i = 0; i < ArgumentLimits.max_depth; i++) {
+            current = ((List<?>) current).get(0);
+        }
+        assertEquals(Collections.singletonList(null).getClass().getName(), current);
+    }
+
+    public void testLengthBudgetBoundsTraversal() {
+        List<List<Integer>> outer = new ArrayList<>();
+        for (int i = 0; i < ArgumentLimits.max_elements; i++) {
+            outer.add(Collections.nCopies(ArgumentLimits.max_elements, i));
+        }
+        // 长度预算 100 最多容纳 50 个元素, 外层和内层一共只遍历 50 个元素
+        List<?> summarized = (List<?>) ArgumentLimits.summarize(outer, 100);
+        int elements = 0;
+        for (Object element : summarized) {
+            elements += element instanceof List ? ((List<?>) element).size() : 1;
+        }
+        assertTrue("elements " + elements, elements <= 60);
+    }
+}
@@ -0,0 +1,50 @@
+package io.onetool4j.util;
+
+import com.alibaba.fastjson2.annotation.JSONField;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FastjsonSerializerTest extends TestCase {
+
+    public void testJsonFieldIsHonoredWithinBudget() {
+        String json = FastjsonSerializer.getInstance().serialize(new Account("bob", "secret"), 1024);
+
+        // 有长度预算时仍由 fastjson 序列化, serialize=false 的字段不输出
+        assertTrue(json, json.contains("bob"));
+        assertFalse(json, json.contains("secret"));
+    }
+
+    public void testBudgetTruncates() {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add("value-" + i);
+        }
+        StringBuilder builder = new StringBuilder("prefix ");
+        FastjsonSerializer.getInstance().serializeTo(values, builder, 64);
+
+        assertTrue(builder.toString(), builder.toString().startsWith("prefix "));
+        assertTrue(builder.toString(), builder.toString().endsWith(ArgumentLimits.truncated_marker));
+        assertEquals("prefix ".length() + 64 + ArgumentLimits.truncated_marker.length(), builder.length());
+    }
+
+    public static class Account {
+        private final String name;
+        private final String password;
+
+        Account(String name, String password) {
+            this.name = name;
+            this.password = password;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @JSONField(serialize = false)
+        public String getPassword() {
+            return password;
+        }
+    }
+}
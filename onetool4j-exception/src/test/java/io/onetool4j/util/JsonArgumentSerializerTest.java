@@ -0,0 +1,67 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JsonArgumentSerializerTest extends TestCase {
+
+    private final ArgumentSerializer serializer = ArgumentSerializers.get(ArgumentSerializers.JSON);
+
+    public void testValues() {
+        assertEquals("\"a\\\"b\\n\"", serializer.serialize("a\"b\n"));
+        assertEquals("[1,null,2.5]", serializer.serialize(Arrays.asList(1, null, 2.5)));
+        assertEquals("[1,2]", serializer.serialize(new int[]{1, 2}));
+        assertEquals("{\"k\":\"v\"}", serializer.serialize(Collections.singletonMap("k", "v")));
+    }
+
+    public void testBean() {
+        assertEquals("{\"a\":1,\"b\":\"2\",\"ok\":true}", serializer.serialize(new Bean()));
+
+        StringBuilder builder = new StringBuilder("bean=");
+        serializer.serializeTo(new Bean(), builder);
+        assertEquals("bean={\"a\":1,\"b\":\"2\",\"ok\":true}", builder.toString());
+    }
+
+    public void testCollectionSummarized() {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < ArgumentLimits.max_elements * 10; i++) {
+            list.add(1);
+        }
+        String serialized = serializer.serialize(list);
+        assertTrue(serialized, serialized.endsWith(",\"" + ArgumentLimits.remaining(list.size()) + "\"]"));
+    }
+
+    public void testLengthLimit() {
+        char[] chars = new char[100_000];
+        Arrays.fill(chars, 'x');
+        String serialized = serializer.serialize(Collections.singletonMap("k", new String(chars)), 100);
+        assertEquals(100 + ArgumentLimits.truncated_marker.length(), serialized.length());
+        assertTrue(serialized.endsWith(ArgumentLimits.truncated_marker));
+    }
+
+    public static class Bean {
+        private final Integer a = 1;
+        private final String b = "2";
+        private final String c = null;
+
+        public Integer getA() {
+            return a;
+        }
+
+        public String getB() {
+            return b;
+        }
+
+        public String getC() {
+            return c;
+        }
+
+        public boolean isOk() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+public class KeyValueFormatTest extends TestCase {
+
+    public void testSameKeysReuseFormat() {
+        KeyValueFormat first = KeyValueFormat.of("done {}", new String[]{"orderId", "ok", null}, 2);
+        assertEquals("done {} orderId={} ok={}", first.format);
+        assertEquals(1, first.placeholders);
+        assertSame(first, KeyValueFormat.of("done {}", new String[]{new String("orderId"), "ok"}, 2));
+
+        KeyValueFormat other = KeyValueFormat.of("done {}", new String[]{"orderId"}, 1);
+        assertEquals("done {} orderId={}", other.format);
+        assertSame(other, KeyValueFormat.of("done {}", new String[]{"orderId"}, 1));
+    }
+
+    public void testNullFormatAndKey() {
+        assertEquals("null null={}", KeyValueFormat.of(null, new String[]{null}, 1).format);
+    }
+}
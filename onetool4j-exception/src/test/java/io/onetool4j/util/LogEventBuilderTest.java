@@ -0,0 +1,50 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+public class LogEventBuilderTest extends TestCase {
+
+    public void testLogReturnsBuilder() {
+        Logger jul = Logger.getLogger("lazy-logger-builder.reuse");
+        jul.setUseParentHandlers(false);
+        LazyLogger logger = LazyLogger.getLogger(jul);
+        LogEventBuilder first = logger.atInfo();
+        first.kv("orderId", 1L).log("reuse");
+
+        assertSame(first, logger.atInfo());
+    }
+
+    public void testAbandonedBuildersAreReclaimed() throws InterruptedException {
+        LazyLogger logger = LazyLogger.getLogger(Logger.getLogger("lazy-logger-builder.abandon"));
+        // 另一个线程的构造器池是空的, 不受其它测试影响
+        LogEventBuilder[][] result = new LogEventBuilder[2][];
+        Thread thread = new Thread(() -> {
+            LogEventBuilder[] abandoned = new LogEventBuilder[4];
+            for (int i = 0; i < abandoned.length; i++) {
+                abandoned[i] = logger.atInfo().kv("orderId", i);
+            }
+            // 刚获取的构造器可能正在计算键值对, 不回收
+            LogEventBuilder fresh = logger.atInfo();
+            try {
+                Thread.sleep(1200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            result[0] = abandoned;
+            result[1] = new LogEventBuilder[]{fresh, logger.atInfo()};
+        });
+        thread.start();
+        thread.join();
+
+        List<LogEventBuilder> abandoned = Arrays.asList(result[0]);
+        assertFalse(abandoned.contains(result[1][0]));
+        LogEventBuilder reclaimed = result[1][1];
+        assertTrue(abandoned.contains(reclaimed));
+        assertEquals(0, reclaimed.size);
+        assertNull(reclaimed.keys[0]);
+    }
+}
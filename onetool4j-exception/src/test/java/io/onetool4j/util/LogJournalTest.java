@@ -0,0 +1,89 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class LogJournalTest extends TestCase {
+
+    public void testRoundTrip() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        LogJournal journal = LogJournal.open(directory, "app");
+        LazyLogger logger = LazyLogger.getLogger(journal);
+        logger.info("values {} {} {} {} {}", 1, 2L, 3.5, true, "中文");
+        logger.debug("hidden {}", 1);
+        logger.info("list {}", Arrays.asList(1, 2, 3));
+        logger.error("no arguments");
+        journal.close();
+
+        List<Path> files = LogJournalDecoder.journalFiles(directory);
+        assertEquals(1, files.size());
+        StringBuilder decoded = new StringBuilder();
+        LogJournalDecoder.decode(files.get(0), decoded);
+        String[] lines = decoded.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].endsWith("[" + Thread.currentThread().getName() + "] INFO values 1 2 3.5 true 中文"));
+        assertTrue(lines[1], lines[1].endsWith("INFO list [1, 2, 3]"));
+        assertTrue(lines[2], lines[2].endsWith("ERROR no arguments"));
+    }
+
+    public void testRollAndRetention() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        LogJournal journal = LogJournal.open(directory, "app").rollSize(1024 * 1024).maxFiles(2);
+        char[] padding = new char[200];
+        Arrays.fill(padding, 'x');
+        for (int i = 0; i < 20_000; i++) {
+            journal.info("line {} {}", i, new String(padding));
+        }
+        journal.close();
+
+        List<Path> files = LogJournalDecoder.journalFiles(directory);
+        assertEquals(2, files.size());
+        StringBuilder decoded = new StringBuilder();
+        for (Path file : files) {
+            LogJournalDecoder.decode(file, decoded);
+        }
+        assertTrue(decoded.toString().endsWith("line 19999 " + new String(padding) + "\n"));
+        assertEquals(0, journal.getDroppedCount());
+    }
+
+    public void testRolledFilesAreUnmapped() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        LogJournal journal = LogJournal.open(directory, "app").rollSize(1024 * 1024).maxFiles(1);
+        char[] padding = new char[200];
+        Arrays.fill(padding, 'x');
+        for (int i = 0; i < 20_000; i++) {
+            journal.info("line {} {}", i, new String(padding));
+        }
+        journal.close();
+
+        // 关闭后映射已解除, 文件可以删除
+        for (Path file : LogJournalDecoder.journalFiles(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    public void testSummaryIsArgument() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        LogJournal journal = LogJournal.open(directory, "app");
+        LazyLogger logger = LazyLogger.getLogger(journal);
+        for (int i = 0; i < 3; i++) {
+            logger.error("order failed id={}", i, new IllegalStateException("boom " + i));
+        }
+        journal.close();
+
+        Path file = LogJournalDecoder.journalFiles(directory).get(0);
+        String raw = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        // 格式只写入一次, 异常摘要是参数
+        assertEquals(raw.indexOf("order failed"), raw.lastIndexOf("order failed"));
+        StringBuilder decoded = new StringBuilder();
+        LogJournalDecoder.decode(file, decoded);
+        assertTrue(decoded.toString(), decoded.toString().contains("ERROR order failed id=0\njava.lang.IllegalStateException: boom 0\n"));
+        assertTrue(decoded.toString(), decoded.toString().contains("ERROR order failed id=2\njava.lang.IllegalStateException"));
+    }
+}
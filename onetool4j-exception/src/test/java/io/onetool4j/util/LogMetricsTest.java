@@ -0,0 +1,49 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+public class LogMetricsTest extends TestCase {
+
+    public void testTimedIsReusedPerSerializer() {
+        LogMetrics metrics = LogMetrics.forName("lazy-logger-metrics.timed");
+        ArgumentSerializer json = new NamedSerializer("json");
+        ArgumentSerializer fastjson = new NamedSerializer("fastjson");
+
+        // 同名的两个 LazyLogger 使用不同的序列化, 各自保存包装结果, 交替输出时不重新包装
+        ArgumentSerializer timedJson = metrics.timed(json, null);
+        ArgumentSerializer timedFastjson = metrics.timed(fastjson, null);
+        for (int i = 0; i < 3; i++) {
+            assertSame(timedJson, metrics.timed(json, timedJson));
+            assertSame(timedFastjson, metrics.timed(fastjson, timedFastjson));
+        }
+        assertEquals("json", timedJson.name());
+        assertEquals("fastjson", timedFastjson.name());
+
+        // 序列化方式或指标变化时重新包装
+        assertNotSame(timedJson, metrics.timed(fastjson, timedJson));
+        assertNotSame(timedJson, LogMetrics.forName("lazy-logger-metrics.other").timed(json, timedJson));
+        assertNull(metrics.timed(null, timedJson));
+
+        long before = metrics.getRenderedChars();
+        assertEquals("json:1", timedJson.serialize(1));
+        assertEquals(before + 6, metrics.getRenderedChars());
+    }
+
+    private static final class NamedSerializer implements ArgumentSerializer {
+        private final String name;
+
+        NamedSerializer(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String serialize(Object argument) {
+            return name + ":" + argument;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+public class LogThrottleTest extends TestCase {
+
+    public void testSampleAdmitsFirstCall() {
+        LogThrottle throttle = LogThrottle.sampled(0.01);
+        LogThrottle.Callsite callsite = throttle.callsite("sampled {}");
+        List<Integer> admitted = new ArrayList<>();
+        for (int i = 0; i < 201; i++) {
+            if (throttle.tryAcquire(callsite, null, null)) {
+                admitted.add(i);
+            }
+        }
+        assertEquals(Arrays.asList(0, 100, 200), admitted);
+    }
+
+    public void testQuietCallsiteIsReported() {
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        Logger jul = julLogger("lazy-logger-throttle.quiet", messages);
+        LazyLogger logger = LazyLogger.getLogger(jul);
+        LoggerBridge.LevelBridge info = LoggerBackend.of(jul).bridge.info;
+        LogThrottle throttle = LogThrottle.sampled(0.5);
+        LogThrottle.Callsite callsite = throttle.callsite("quiet {}");
+
+        assertTrue(throttle.tryAcquire(callsite, logger, info));
+        assertFalse(throttle.tryAcquire(callsite, logger, info));
+        // 调用点之后没有日志, 由后台线程输出
+        long now = System.nanoTime();
+        throttle.report(now);
+        assertEquals(Collections.singletonList("1 messages suppressed, format: quiet {}"), messages);
+
+        assertTrue(throttle.tryAcquire(callsite, logger, info));
+        assertFalse(throttle.tryAcquire(callsite, logger, info));
+        throttle.report(now);
+        assertEquals(1, messages.size());
+        throttle.report(now + TimeUnit.MINUTES.toNanos(1));
+        assertEquals(2, messages.size());
+    }
+
+    private static Logger julLogger(String name, List<String> messages) {
+        Logger jul = Logger.getLogger(name);
+        jul.setUseParentHandlers(false);
+        jul.setLevel(Level.INFO);
+        jul.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return jul;
+    }
+}
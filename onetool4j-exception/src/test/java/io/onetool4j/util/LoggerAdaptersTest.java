@@ -0,0 +1,244 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.ThreadContext;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+public class LoggerAdaptersTest extends TestCase {
+
+    public void testServiceLoaderExtensionTakesPrecedence() {
+        TaggedAdapter.records.clear();
+        TaggedLogger tagged = new TaggedLogger("lazy-logger-tagged");
+
+        // TaggedLogger 同时是 java.util.logging.Logger, 扩展实现优先于内置 jul 适配器
+        LoggerAdapters.Match match = LoggerAdapters.match(TaggedLogger.class);
+        assertSame(Tagged.class, match.loggerType);
+        assertTrue(match.bridge.contextAdapter instanceof TaggedAdapter);
+
+        LazyLogger logger = LazyLogger.getLogger(tagged);
+        logger.info("tagged a={}", () -> 1);
+        logger.debug("tagged hidden");
+        assertEquals(1, TaggedAdapter.records.size());
+        assertEquals("INFO tagged a=1 {}", TaggedAdapter.records.get(0));
+    }
+
+    public void testContextAwareRestoresContext() {
+        TaggedAdapter.records.clear();
+        TaggedAdapter.context.put("traceId", "outer");
+        try {
+            LazyLogger logger = LazyLogger.getLogger(new TaggedLogger("lazy-logger-tagged-context"));
+            logger.atInfo().kv("traceId", "inner").kv("orderId", 42L).log("done");
+
+            // 输出期间键值对写入上下文, 不追加到消息后面; 输出后恢复原值
+            assertEquals("INFO done {orderId=42, traceId=inner}", TaggedAdapter.records.get(0));
+            assertEquals("outer", TaggedAdapter.context.get("traceId"));
+            assertFalse(TaggedAdapter.context.containsKey("orderId"));
+        } finally {
+            TaggedAdapter.context.clear();
+        }
+    }
+
+    public void testSupportLoggerTypesKeepDetectedBackends() {
+        // 与之前的版本一样包含运行环境中存在的日志接口, 内置适配器仍然优先匹配
+        assertTrue(LazyLogger.support_logger_types.contains(org.slf4j.Logger.class));
+        assertTrue(LazyLogger.support_logger_types.contains(org.apache.logging.log4j.Logger.class));
+        assertTrue(LoggerAdapters.match(LoggerFactory.getLogger("lazy-logger-types").getClass()).bridge.contextAdapter instanceof Slf4jLoggerAdapter);
+    }
+
+    public void testJulIsNotContextAware() {
+        assertNull(LoggerAdapters.match(Logger.class).bridge.contextAdapter);
+    }
+
+    public void testSlf4jRestoresMdc() {
+        org.slf4j.Logger slf4j = LoggerFactory.getLogger("lazy-logger-slf4j");
+        assertTrue(LoggerAdapters.match(slf4j.getClass()).bridge.contextAdapter instanceof Slf4jLoggerAdapter);
+
+        List<String> seen = new ArrayList<>();
+        MDC.put("traceId", "outer");
+        try {
+            LazyLogger.getLogger(slf4j).atInfo().kv("traceId", "inner").kv("orderId", 42L).log("slf4j {}", probe(seen, () -> MDC.get("traceId") + "," + MDC.get("orderId")));
+
+            assertEquals("inner,42", seen.get(0));
+            assertEquals("outer", MDC.get("traceId"));
+            assertNull(MDC.get("orderId"));
+        } finally {
+            MDC.remove("traceId");
+        }
+    }
+
+    public void testLog4j2RestoresThreadContext() {
+        org.apache.logging.log4j.Logger log4j = LogManager.getLogger("lazy-logger-log4j2");
+        assertTrue(LoggerAdapters.match(log4j.getClass()).bridge.contextAdapter instanceof Log4j2LoggerAdapter);
+
+        List<String> seen = new ArrayList<>();
+        ThreadContext.put("traceId", "outer");
+        try {
+            LazyLogger.getLogger(log4j).atInfo().kv("traceId", "inner").kv("orderId", 42L).log("log4j2 {}", probe(seen, () -> ThreadContext.get("traceId") + "," + ThreadContext.get("orderId")));
+
+            assertEquals("inner,42", seen.get(0));
+            assertEquals("outer", ThreadContext.get("traceId"));
+            assertNull(ThreadContext.get("orderId"));
+        } finally {
+            ThreadContext.remove("traceId");
+        }
+    }
+
+    public void testSystemLogger() throws Exception {
+        Method getLogger;
+        try {
+            getLogger = System.class.getMethod("getLogger", String.class);
+        } catch (NoSuchMethodException e) {
+            // java 8 没有 System.Logger
+            return;
+        }
+        List<LogRecord> records = new ArrayList<>();
+        Logger jul = julLogger("lazy-logger-system", records);
+        Object system = getLogger.invoke(null, "lazy-logger-system");
+
+        LazyLogger logger = LazyLogger.getLogger(system);
+        logger.info("system a={} b={}", () -> 1, () -> "2");
+        logger.debug("system hidden a={}", () -> {
+            throw new AssertionError("debug 未开启, 不应执行");
+        });
+        logger.error("system failed", new IllegalStateException("boom"));
+
+        assertEquals(2, records.size());
+        assertEquals(Level.INFO, records.get(0).getLevel());
+        assertEquals("system a=1 b=2", records.get(0).getMessage());
+        assertEquals(Level.SEVERE, records.get(1).getLevel());
+        assertTrue(records.get(1).getMessage(), records.get(1).getMessage().startsWith("system failed"));
+        assertSame(jul, Logger.getLogger("lazy-logger-system"));
+    }
+
+    public void testOtherClassLoaderFallsBackToMethodHandles() throws Exception {
+        // 同名的 slf4j 类型由不共享父加载器的类加载器加载, 内置适配器无法转换类型
+        URL slf4jJar = org.slf4j.Logger.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader isolated = new URLClassLoader(new URL[]{slf4jJar}, null)) {
+            Class<?> substituteType = isolated.loadClass("org.slf4j.helpers.SubstituteLogger");
+            Class<?> recordingType = isolated.loadClass("org.slf4j.event.EventRecodingLogger");
+            Queue<Object> events = new ConcurrentLinkedQueue<>();
+            Object substitute = substituteType.getConstructor(String.class, Queue.class, boolean.class)
+                    .newInstance("lazy-logger-isolated", events, false);
+            Constructor<?> constructor = recordingType.getConstructor(substituteType, Queue.class);
+            Object recording = constructor.newInstance(substitute, events);
+
+            Class<?> loggerType = isolated.loadClass("org.slf4j.Logger");
+            assertNotSame(org.slf4j.Logger.class, loggerType);
+            assertFalse(LoggerBridge.isVisible(loggerType));
+            LoggerAdapters.Match match = LoggerAdapters.match(recording.getClass());
+            assertSame(loggerType, match.loggerType);
+            assertNull(match.bridge.contextAdapter);
+
+            LazyLogger.getLogger(recording).info("isolated a={}", () -> 1);
+
+            assertEquals(1, events.size());
+            Object event = events.poll();
+            assertEquals("isolated a={}", event.getClass().getMethod("getMessage").invoke(event));
+            Object[] arguments = (Object[]) event.getClass().getMethod("getArgumentArray").invoke(event);
+            assertEquals(1, arguments[0]);
+        }
+    }
+
+    private static Object probe(List<String> seen, Supplier<String> read) {
+        return new Object() {
+            @Override
+            public String toString() {
+                String value = read.get();
+                seen.add(value);
+                return value;
+            }
+        };
+    }
+
+    private static Logger julLogger(String name, List<LogRecord> records) {
+        Logger jul = Logger.getLogger(name);
+        jul.setUseParentHandlers(false);
+        jul.setLevel(Level.INFO);
+        jul.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return jul;
+    }
+
+    /**
+     * 扩展适配器匹配的标记接口
+     */
+    public interface Tagged {
+    }
+
+    /**
+     * 同时是 java.util.logging.Logger 与 Tagged 的日志类型
+     */
+    public static class TaggedLogger extends Logger implements Tagged {
+        TaggedLogger(String name) {
+            super(name, null);
+            setLevel(Level.INFO);
+        }
+    }
+
+    /**
+     * 通过 META-INF/services 注册的扩展适配器, 输出追加当前上下文
+     */
+    public static class TaggedAdapter implements LoggerAdapter, ContextAware {
+        static final List<String> records = new ArrayList<>();
+        static final Map<String, String> context = new TreeMap<>();
+
+        @Override
+        public String loggerTypeName() {
+            return Tagged.class.getName();
+        }
+
+        @Override
+        public boolean isEnabled(Object logger, LoggerAdapter.Level level) {
+            return ((Logger) logger).isLoggable(level.ordinal() >= LoggerAdapter.Level.INFO.ordinal() ? java.util.logging.Level.INFO : java.util.logging.Level.FINE);
+        }
+
+        @Override
+        public void log(Object logger, LoggerAdapter.Level level, String format, Object[] arguments) {
+            records.add(level + " " + LoggerAdapters.format(format, arguments) + " " + context);
+        }
+
+        @Override
+        public String putContext(String key, String value) {
+            return context.put(key, value);
+        }
+
+        @Override
+        public void restoreContext(String key, String previous) {
+            if (previous == null) {
+                context.remove(key);
+            } else {
+                context.put(key, previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+public class MessageTemplateTest extends TestCase {
+
+    public void testPlaceholderCount() {
+        assertEquals(0, MessageTemplate.of("no placeholder").getPlaceholderCount());
+        assertEquals(3, MessageTemplate.of("a={} b={ } c={  }").getPlaceholderCount());
+        assertEquals(1, MessageTemplate.of("{a} {x {}").getPlaceholderCount());
+    }
+
+    public void testCached() {
+        String format = "cached a={}";
+        assertSame(MessageTemplate.of(format), MessageTemplate.of(new String(format)));
+    }
+
+    public void testFormat() {
+        MessageTemplate template = MessageTemplate.of("a={} b={ } c={}");
+        assertEquals("a=1 b=2 c={}", template.format(new Object[]{1, 2}));
+        assertEquals("a=1 b=2 c=3", template.format(new Object[]{1, 2, 3, 4}));
+        assertEquals("a={} b={ } c={}", template.format(null));
+    }
+}
@@ -0,0 +1,93 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class SummaryExceptionsTest extends TestCase {
+
+    public void testSameCallSiteIsSummarized() {
+        List<String> traces = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            traces.add(SummaryExceptions.getFullStackTrace(new IllegalStateException("loop " + i), this, Collections.emptySet(), 10, 60000));
+        }
+        String other = SummaryExceptions.getFullStackTrace(new IllegalStateException("other"), this, Collections.emptySet(), 10, 60000);
+
+        assertTrue(traces.get(0), traces.get(0).contains("\tat "));
+        assertFalse(traces.get(1), traces.get(1).contains("\tat "));
+        // 摘要使用窗口内第一次的消息
+        assertEquals(traces.get(1), traces.get(2));
+        assertTrue(other, other.contains("\tat "));
+    }
+
+    public void testSearchKeyIsStableFingerprint() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            // 次数阈值为 1, 每次都开启新窗口
+            String trace = SummaryExceptions.getFullStackTrace(new IllegalArgumentException("key " + i), this, Collections.emptySet(), 1, 60000);
+            Matcher matcher = Pattern.compile("search key\\[([0-9a-f]{16})]").matcher(trace);
+            assertTrue(trace, matcher.find());
+            keys.add(matcher.group(1));
+        }
+        assertEquals(keys.get(0), keys.get(1));
+    }
+
+    public void testRolloverReusesRenderedBody() {
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            // 次数阈值为 1, 每次都开启新窗口, 只有第一行随异常变化
+            String trace = SummaryExceptions.getFullStackTrace(new IllegalStateException("body " + i, new RuntimeException("cause")), this, Collections.emptySet(), 1, 60000);
+            assertTrue(trace, trace.startsWith("java.lang.IllegalStateException: body " + i + "\n"));
+            assertTrue(trace, trace.contains("Caused by: java.lang.RuntimeException: cause"));
+            bodies.add(trace.substring(trace.indexOf("\tat ")));
+        }
+        assertEquals(bodies.get(0), bodies.get(1));
+    }
+
+    public void testRolloverRendersDifferentCause() {
+        List<String> traces = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            // 指纹相同, cause 的消息不同时不能复用上一个窗口的堆栈
+            Throwable cause = new RuntimeException("cause " + i);
+            if (i == 2) {
+                cause.addSuppressed(new IllegalArgumentException("suppressed"));
+            }
+            traces.add(SummaryExceptions.getFullStackTrace(new IllegalStateException("body", cause), this, Collections.emptySet(), 1, 60000));
+        }
+        assertTrue(traces.get(0), traces.get(0).contains("Caused by: java.lang.RuntimeException: cause 0\n"));
+        assertTrue(traces.get(1), traces.get(1).contains("Caused by: java.lang.RuntimeException: cause 1\n"));
+        assertTrue(traces.get(2), traces.get(2).contains("Caused by: java.lang.RuntimeException: cause 2\n"));
+        assertTrue(traces.get(2), traces.get(2).contains("\tSuppressed: java.lang.IllegalArgumentException: suppressed\n"));
+        assertFalse(traces.get(1), traces.get(1).contains("Suppressed: "));
+    }
+
+    public void testRolloverRespectsExcludeClassList() {
+        List<String> traces = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            // 只排除中间帧, 栈顶与栈底不变, 指纹相同, 复用同一个条目, 只有内容哈希不同
+            IllegalStateException exception = new IllegalStateException("exclude");
+            exception.setStackTrace(new StackTraceElement[]{
+                    new StackTraceElement("demo.Top", "call", "Top.java", 1),
+                    new StackTraceElement("demo.Middle", "call", "Middle.java", 2),
+                    new StackTraceElement("demo.Bottom", "call", "Bottom.java", 3)});
+            String trace = SummaryExceptions.getFullStackTrace(exception, this
+                    , i == 1 ? Collections.singleton("demo.Middle") : Collections.emptySet(), 1, 60000);
+            Matcher matcher = Pattern.compile("search key\\[([0-9a-f]{16})]").matcher(trace);
+            assertTrue(trace, matcher.find());
+            keys.add(matcher.group(1));
+            traces.add(trace);
+        }
+        assertEquals(keys.get(0), keys.get(1));
+        assertEquals(keys.get(0), keys.get(2));
+        assertTrue(traces.get(0), traces.get(0).contains("\tat demo.Middle.call"));
+        assertFalse(traces.get(1), traces.get(1).contains("\tat demo.Middle.call"));
+        assertTrue(traces.get(1), traces.get(1).contains("\tat demo.Top.call"));
+        assertTrue(traces.get(1), traces.get(1).contains("\tat demo.Bottom.call"));
+        assertTrue(traces.get(2), traces.get(2).contains("\tat demo.Middle.call"));
+    }
+}
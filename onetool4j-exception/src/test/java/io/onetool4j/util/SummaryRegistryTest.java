@@ -0,0 +1,89 @@
+package io.onetool4j.util;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SummaryRegistryTest extends TestCase {
+
+    public void testConcurrentWindows() throws Exception {
+        SummaryRegistry<String> registry = new SummaryRegistry<>(16, 0, key -> "search");
+        AtomicInteger fresh = new AtomicInteger();
+        int threads = 8;
+        int perThread = 10000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    if (registry.acquire("key", 100, 60000).fresh) {
+                        fresh.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        // 并发时窗口的次数可能略超过阈值, 新窗口数不会超过 总数/阈值
+        assertTrue("fresh " + fresh.get(), fresh.get() > 0 && fresh.get() <= threads * perThread / 100);
+        assertEquals(1, registry.size());
+    }
+
+    public void testEvictColdFirst() {
+        SummaryRegistry<String> registry = new SummaryRegistry<>(8, 0, key -> key);
+        assertTrue(registry.acquire("hot", 100, 60000).fresh);
+        assertFalse(registry.acquire("hot", 100, 60000).fresh);
+        for (int i = 0; i < 100; i++) {
+            registry.acquire("cold" + i, 100, 60000);
+        }
+
+        assertTrue("size " + registry.size(), registry.size() <= 8);
+        assertFalse(registry.acquire("hot", 100, 60000).fresh);
+    }
+
+    public void testProtectedSegmentIsCapped() {
+        SummaryRegistry<String> registry = new SummaryRegistry<>(10, 0, key -> key);
+        for (int i = 0; i < 10; i++) {
+            registry.acquire("hot" + i, 100, 60000);
+            registry.acquire("hot" + i, 100, 60000);
+        }
+        // 保护段最多 8 项, hot0、hot1 降回试用段, 新项插入时先淘汰 hot0
+        registry.acquire("cold", 100, 60000);
+
+        assertEquals(10, registry.size());
+        assertFalse(registry.acquire("cold", 100, 60000).fresh);
+        assertFalse(registry.acquire("hot9", 100, 60000).fresh);
+        assertFalse(registry.acquire("hot1", 100, 60000).fresh);
+        assertTrue(registry.acquire("hot0", 100, 60000).fresh);
+    }
+
+    public void testRetiredWindowSummaryIsNotCharged() {
+        SummaryRegistry<String> registry = new SummaryRegistry<>(16, 0, key -> key);
+        SummaryRegistry.Admission first = registry.acquire("key", 1, 60000);
+        long initial = registry.weight();
+        // 次数达到阈值, 开启新窗口, 之后才为旧窗口设置摘要
+        assertTrue(registry.acquire("key", 1, 60000).fresh);
+        registry.summaryMessage(first.window, "late summary");
+        assertEquals(initial, registry.weight());
+
+        SummaryRegistry.Admission second = registry.acquire("key", 2, 60000);
+        registry.summaryMessage(second.window, "summary");
+        assertEquals(initial + SummaryRegistry.weigh("summary"), registry.weight());
+        registry.acquire("key", 1, 60000);
+        assertEquals(initial, registry.weight());
+    }
+
+    public void testWeightBound() {
+        long maxWeight = SummaryRegistry.ENTRY_BYTES * 10L;
+        SummaryRegistry<String> registry = new SummaryRegistry<>(1000, maxWeight, key -> key);
+        for (int i = 0; i < 100; i++) {
+            SummaryRegistry.Admission admission = registry.acquire("key" + i, 100, 60000);
+            registry.acquire("key" + i, 100, 60000);
+            registry.summaryMessage(admission.window, "summary " + i);
+        }
+
+        assertTrue("weight " + registry.weight(), registry.weight() <= maxWeight);
+        assertTrue("size " + registry.size(), registry.size() < 10);
+    }
+}